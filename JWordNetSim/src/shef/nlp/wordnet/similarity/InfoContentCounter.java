@@ -0,0 +1,558 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.SynsetIdMap;
+import net.didion.jwnl.dictionary.graph.WordNetGraph;
+
+/**
+ * Builds information content files, in the format read by {@link ICMeasure},
+ * from a tokenized corpus. Each token is lemmatized using the morphological
+ * processor of the current WordNet dictionary and its count is shared equally
+ * between the senses of the lemma (Resnik's method), separately for nouns and
+ * verbs. The counts of each synset are then propagated up to every synset in
+ * its hypernym closure.
+ * <p>
+ * The corpus is counted by several threads at once, each of which keeps its
+ * own array of counts, and the arrays are merged once the whole corpus has
+ * been read. The corpus should contain whitespace separated tokens, and as
+ * tokens are looked up one at a time multi-word expressions will not be
+ * counted.
+ * @author Mark A. Greenwood
+ */
+public class InfoContentCounter
+{
+	/**
+	 * The POS tags for which information content is defined.
+	 */
+	private static final POS[] POS_TAGS = new POS[]{POS.NOUN, POS.VERB};
+
+	/**
+	 * The number of lines handed to a counting thread in one go.
+	 */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * Marks the end of the corpus on the work queue.
+	 */
+	private static final List<String> END = new ArrayList<String>();
+
+	/**
+	 * The hypernym structure of the noun and verb hierarchies.
+	 */
+	private Hierarchy[] hierarchies = new Hierarchy[POS_TAGS.length];
+
+	/**
+	 * The senses of each lemma, indexed by POS tag, so that we only
+	 * need to ask WordNet about each distinct token once.
+	 */
+	private Map<String,int[][]> senses = new ConcurrentHashMap<String,int[][]>();
+
+	/**
+	 * The number of threads to count with.
+	 */
+	private int threads;
+
+	/**
+	 * The amount added to the count of every synset before the counts are
+	 * propagated up the hierarchy, i.e. 1 for add-1 smoothing.
+	 */
+	private double smoothing = 0;
+
+	/**
+	 * The counts (before propagation) merged from all the counting threads.
+	 */
+	private double[][] counts = new double[POS_TAGS.length][];
+
+	/**
+	 * The WordNet dictionary the counts are for.
+	 */
+	private Dictionary dictionary;
+
+	/**
+	 * Creates a new counter using the current WordNet dictionary.
+	 * @param threads the number of threads to count with
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	public InfoContentCounter(int threads) throws JWNLException
+	{
+		this(Dictionary.getInstance(), threads);
+	}
+
+	/**
+	 * Creates a new counter using the given WordNet dictionary.
+	 * @param dictionary the dictionary to count the synsets of
+	 * @param threads the number of threads to count with
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	public InfoContentCounter(Dictionary dictionary, int threads) throws JWNLException
+	{
+		this.dictionary = dictionary;
+		this.threads = Math.max(1, threads);
+
+		for (int p = 0 ; p < POS_TAGS.length ; ++p)
+		{
+			hierarchies[p] = new Hierarchy(dictionary, POS_TAGS[p]);
+			counts[p] = new double[hierarchies[p].offsets.length];
+		}
+	}
+
+	/**
+	 * Sets the value added to the count of every synset before the counts are
+	 * propagated up the hierarchy. Use 1 for add-1 smoothing or 0 (the default)
+	 * for no smoothing.
+	 * @param smoothing the value to add to every synset count
+	 */
+	public void setSmoothing(double smoothing)
+	{
+		this.smoothing = smoothing;
+	}
+
+	/**
+	 * Counts all the tokens in the corpus read from the supplied reader.
+	 * This can be called multiple times to count more than one corpus.
+	 * @param corpus a reader over a tokenized corpus
+	 * @throws Exception if an error occurs reading the corpus or accessing WordNet
+	 */
+	public void count(Reader corpus) throws Exception
+	{
+		BlockingQueue<List<String>> queue = new ArrayBlockingQueue<List<String>>(threads*4);
+
+		//start up the counting threads
+		Worker[] workers = new Worker[threads];
+		for (int i = 0 ; i < threads ; ++i)
+		{
+			workers[i] = new Worker(queue);
+			workers[i].start();
+		}
+
+		BufferedReader in = new BufferedReader(corpus);
+
+		try
+		{
+			//split the corpus into batches of lines and hand them to the workers
+			List<String> batch = new ArrayList<String>(BATCH_SIZE);
+			String line = in.readLine();
+			while (line != null)
+			{
+				batch.add(line);
+
+				if (batch.size() == BATCH_SIZE)
+				{
+					queue.put(batch);
+					batch = new ArrayList<String>(BATCH_SIZE);
+				}
+
+				line = in.readLine();
+			}
+
+			if (batch.size() > 0) queue.put(batch);
+		}
+		finally
+		{
+			//tell each worker there is nothing more to count
+			for (int i = 0 ; i < threads ; ++i) queue.put(END);
+		}
+
+		//wait for the workers to finish and merge their counts into ours
+		for (Worker worker : workers)
+		{
+			worker.join();
+
+			if (worker.error != null) throw worker.error;
+
+			for (int p = 0 ; p < POS_TAGS.length ; ++p)
+			{
+				double[] from = worker.counts[p];
+				double[] to = counts[p];
+				for (int i = 0 ; i < to.length ; ++i) to[i] += from[i];
+			}
+		}
+	}
+
+	/**
+	 * Writes the information content file, in the format read by {@link ICMeasure},
+	 * for all the counts collected so far.
+	 * @param out where to write the file
+	 * @throws IOException if an error occurs writing the file
+	 */
+	public void write(Writer out) throws IOException
+	{
+		//the first line tells the IC measures which WordNet the counts are for
+		out.write("wnver::"+dictionary.getVersion().getNumber()+"\n");
+
+		for (int p = 0 ; p < POS_TAGS.length ; ++p)
+		{
+			Hierarchy h = hierarchies[p];
+			double[] freq = h.propagate(counts[p], smoothing);
+			String key = POS_TAGS[p].getKey();
+
+			for (int i = 0 ; i < freq.length ; ++i)
+			{
+				//synsets without a count don't need storing as
+				//missing synsets are assumed to have a count of 0
+				if (freq[i] == 0) continue;
+
+				out.write(h.offsets[i]+key+" "+freq[i]);
+				if (h.parents[i].length == 0) out.write(" ROOT");
+				out.write("\n");
+			}
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Finds the senses of the given token, as indexes into the hierarchy of
+	 * each POS tag, using the morphological processor to find the lemma.
+	 */
+	private int[][] getSenses(String token) throws JWNLException
+	{
+		int[][] result = senses.get(token);
+		if (result != null) return result;
+
+		result = new int[POS_TAGS.length][];
+
+		Dictionary dict = dictionary;
+
+		//the dictionary and its caches are not safe to use from more than
+		//one thread at a time, but as we only look up each distinct token
+		//once this lock is rarely contended once counting is underway
+		synchronized (dict)
+		{
+			for (int p = 0 ; p < POS_TAGS.length ; ++p)
+			{
+				IndexWord iw = dict.lookupIndexWord(POS_TAGS[p], token);
+
+				if (iw == null)
+				{
+					result[p] = new int[0];
+				}
+				else
+				{
+					long[] offsets = iw.getSynsetOffsets();
+					result[p] = new int[offsets.length];
+					for (int i = 0 ; i < offsets.length ; ++i)
+					{
+						result[p][i] = hierarchies[p].find(offsets[i]);
+					}
+				}
+			}
+		}
+
+		senses.put(token, result);
+
+		return result;
+	}
+
+	/**
+	 * A thread which counts batches of lines from the work queue
+	 * into its own arrays of counts.
+	 */
+	private class Worker extends Thread
+	{
+		private BlockingQueue<List<String>> queue;
+
+		private double[][] counts = new double[POS_TAGS.length][];
+
+		private Exception error = null;
+
+		public Worker(BlockingQueue<List<String>> queue)
+		{
+			this.queue = queue;
+
+			for (int p = 0 ; p < POS_TAGS.length ; ++p)
+			{
+				counts[p] = new double[hierarchies[p].offsets.length];
+			}
+		}
+
+		@Override public void run()
+		{
+			try
+			{
+				List<String> batch = queue.take();
+				while (batch != END)
+				{
+					//if something has already gone wrong then just keep
+					//emptying the queue so the reader doesn't block
+					if (error == null)
+					{
+						for (String line : batch)
+						{
+							for (String token : line.trim().split("\\s+"))
+							{
+								if (token.length() > 0) count(token);
+							}
+						}
+					}
+
+					batch = queue.take();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				//we've been told to stop so just return
+			}
+		}
+
+		private void count(String token)
+		{
+			try
+			{
+				int[][] s = getSenses(token);
+
+				for (int p = 0 ; p < s.length ; ++p)
+				{
+					//share the count equally between the senses of the word
+					double share = 1d / s[p].length;
+					for (int i = 0 ; i < s[p].length ; ++i)
+					{
+						if (s[p][i] >= 0) counts[p][s[p][i]] += share;
+					}
+				}
+			}
+			catch (Exception e)
+			{
+				error = e;
+			}
+		}
+	}
+
+	/**
+	 * The hypernym structure of a single POS tag stored as arrays
+	 * indexed by the position of each synset in the data file.
+	 */
+	private static class Hierarchy
+	{
+		/**
+		 * The offsets of the synsets, sorted so that a synset can be found by binary search.
+		 */
+		private long[] offsets;
+
+		/**
+		 * The indexes of the hypernyms of each synset.
+		 */
+		private int[][] parents;
+
+		public Hierarchy(Dictionary dictionary, POS pos) throws JWNLException
+		{
+			//if the dictionary holds its graph in memory then its ids
+			//already number the synsets in offset order
+			WordNetGraph graph = dictionary.getGraph();
+			if (graph != null)
+			{
+				SynsetIdMap ids = graph.getSynsetIdMap();
+				int first = ids.getFirstId(pos);
+				offsets = new long[ids.getSize(pos)];
+				parents = new int[offsets.length][];
+				for (int i = 0 ; i < offsets.length ; ++i)
+				{
+					offsets[i] = ids.getOffset(first+i);
+					parents[i] = graph.getTargetIds(first+i, PointerType.HYPERNYM);
+					for (int j = 0 ; j < parents[i].length ; ++j)
+					{
+						int p = parents[i][j]-first;
+						parents[i][j] = (p < 0 || p >= offsets.length ? -1 : p);
+					}
+				}
+				return;
+			}
+
+			List<Long> synsets = new ArrayList<Long>();
+			List<long[]> hypernyms = new ArrayList<long[]>();
+
+			Iterator it = dictionary.getSynsetIterator(pos);
+			while (it.hasNext())
+			{
+				Synset synset = (Synset)it.next();
+
+				Pointer[] pointers = synset.getPointers(PointerType.HYPERNYM);
+				long[] p = new long[pointers.length];
+				for (int i = 0 ; i < pointers.length ; ++i) p[i] = pointers[i].getTargetOffset();
+
+				synsets.add(synset.getOffset());
+				hypernyms.add(p);
+			}
+
+			//not every dictionary iterates its synsets in offset order
+			//(a map backed one doesn't) so sort them before searching
+			offsets = new long[synsets.size()];
+			for (int i = 0 ; i < offsets.length ; ++i) offsets[i] = synsets.get(i);
+			Arrays.sort(offsets);
+
+			parents = new int[offsets.length][];
+			for (int i = 0 ; i < offsets.length ; ++i)
+			{
+				long[] p = hypernyms.get(i);
+				int node = find(synsets.get(i));
+				parents[node] = new int[p.length];
+				for (int j = 0 ; j < p.length ; ++j) parents[node][j] = find(p[j]);
+			}
+		}
+
+		/**
+		 * Finds the index of a synset from its offset.
+		 * @return the index of the synset or -1 if it isn't in this hierarchy
+		 */
+		public int find(long offset)
+		{
+			int i = Arrays.binarySearch(offsets, offset);
+			return (i < 0 ? -1 : i);
+		}
+
+		/**
+		 * Adds the count of every synset to each synset in its hypernym closure.
+		 * @param counts the counts of each synset before propagation
+		 * @param smoothing the value to add to every count before propagation
+		 * @return the propagated counts
+		 */
+		public double[] propagate(double[] counts, double smoothing)
+		{
+			double[] freq = new double[counts.length];
+
+			//used to make sure we only add to each ancestor once even
+			//when there are multiple paths up to it
+			int[] visited = new int[counts.length];
+			Arrays.fill(visited, -1);
+			int[] stack = new int[counts.length];
+
+			for (int i = 0 ; i < counts.length ; ++i)
+			{
+				double c = counts[i] + smoothing;
+				if (c == 0) continue;
+
+				int top = 0;
+				stack[0] = i;
+				visited[i] = i;
+
+				while (top >= 0)
+				{
+					int node = stack[top--];
+					freq[node] += c;
+
+					for (int parent : parents[node])
+					{
+						if (parent >= 0 && visited[parent] != i)
+						{
+							visited[parent] = i;
+							stack[++top] = parent;
+						}
+					}
+				}
+			}
+
+			return freq;
+		}
+	}
+
+	/**
+	 * Builds an information content file from one or more tokenized corpora.
+	 * @param args the JWNL properties file, the output file and then the
+	 *        corpus files. The options -threads N and -smooth N can be given
+	 *        before the other arguments.
+	 * @throws Exception if an error occurs building the file
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		double smoothing = 0;
+
+		//read any options from the front of the argument list
+		int arg = 0;
+		while (arg < args.length && args[arg].startsWith("-"))
+		{
+			if (args[arg].equals("-threads") && arg+1 < args.length)
+			{
+				threads = Integer.parseInt(args[++arg]);
+			}
+			else if (args[arg].equals("-smooth") && arg+1 < args.length)
+			{
+				smoothing = Double.parseDouble(args[++arg]);
+			}
+			else
+			{
+				arg = args.length;
+			}
+
+			++arg;
+		}
+
+		if (args.length - arg < 3)
+		{
+			System.err.println("Usage: InfoContentCounter [-threads N] [-smooth N] <JWNL properties file> <output file> <corpus file>...");
+			System.exit(1);
+		}
+
+		JWNL.initialize(new FileInputStream(args[arg]));
+
+		InfoContentCounter counter = new InfoContentCounter(threads);
+		counter.setSmoothing(smoothing);
+
+		for (int i = arg+2 ; i < args.length ; ++i)
+		{
+			Reader in = new InputStreamReader(new FileInputStream(args[i]), "UTF-8");
+			try
+			{
+				counter.count(in);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[arg+1]), "UTF-8"));
+		try
+		{
+			counter.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,559 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.SynsetIdMap;
+import net.didion.jwnl.dictionary.graph.WordNetGraph;
+
+/**
+ * A lowest common ancestor index over the hypernym forest of a single POS tag.
+ * The forest is flattened into an Euler tour and a sparse table is built over
+ * the depths of the tour so that the lowest common ancestor of two synsets can
+ * be found with a single range-minimum query. Synsets which have more than one
+ * hypernym (or which have such a synset as an ancestor) are flagged and
+ * queries involving them return {@link #UNKNOWN} so that the caller can fall
+ * back to an exact search over all the hypernym paths.
+ * @author Mark A. Greenwood
+ */
+public class LCAIndex implements Serializable
+{
+	private static final long serialVersionUID = -3591622786327464815L;
+
+	/**
+	 * Returned by {@link #getLCA(long, long)} when the two synsets
+	 * don't share an ancestor within the hierarchy.
+	 */
+	public static final long NONE = -1;
+
+	/**
+	 * Returned by {@link #getLCA(long, long)} when the index can't answer the
+	 * query, either because one of the synsets is not in the index or because
+	 * it has more than one path to the root of the hierarchy.
+	 */
+	public static final long UNKNOWN = -2;
+
+	/**
+	 * The key of the POS tag this index was built for.
+	 */
+	private String pos;
+
+	/**
+	 * The offsets of the synsets in the index, sorted so that the node
+	 * number of a synset can be found by binary search. Node 0 is a virtual
+	 * root which joins the separate hierarchies and has no offset.
+	 */
+	private long[] offsets;
+
+	/**
+	 * The Euler tour of the forest, storing node numbers.
+	 */
+	private int[] euler;
+
+	/**
+	 * The depth of each node in the Euler tour.
+	 */
+	private int[] depths;
+
+	/**
+	 * The position in the Euler tour at which each node first appears.
+	 */
+	private int[] first;
+
+	/**
+	 * Flags those nodes which can't be answered exactly from the tree
+	 * because they, or one of their ancestors, have multiple hypernyms.
+	 */
+	private BitSet multiple;
+
+	/**
+	 * The sparse table used to answer range-minimum queries over the
+	 * Euler tour depths. This is cheap to rebuild so isn't serialized.
+	 */
+	private transient int[][] sparse;
+
+	/**
+	 * Builds the index for the given POS tag by reading every synset of that
+	 * POS tag from the current WordNet dictionary.
+	 * @param pos the POS tag of the hierarchy to index
+	 * @return the lowest common ancestor index for the given POS tag
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	public static LCAIndex build(POS pos) throws JWNLException
+	{
+		return build(Dictionary.getInstance(), pos);
+	}
+
+	/**
+	 * Builds the index for the given POS tag by reading every synset of that
+	 * POS tag from the given WordNet dictionary.
+	 * @param dictionary the dictionary to read the hierarchy from
+	 * @param pos the POS tag of the hierarchy to index
+	 * @return the lowest common ancestor index for the given POS tag
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	public static LCAIndex build(Dictionary dictionary, POS pos) throws JWNLException
+	{
+		//if the dictionary holds its graph in memory then read the
+		//hypernyms straight from its arrays rather than creating synsets
+		WordNetGraph graph = dictionary.getGraph();
+		if (graph != null) return build(pos, graph);
+
+		//collect the offset of every synset along with the offsets
+		//of each of its hypernyms (including instance hypernyms)
+		List<Long> synsets = new ArrayList<Long>();
+		List<long[]> hypernyms = new ArrayList<long[]>();
+
+		Iterator it = dictionary.getSynsetIterator(pos);
+		while (it.hasNext())
+		{
+			Synset synset = (Synset)it.next();
+
+			Pointer[] pointers = synset.getPointers(PointerType.HYPERNYM);
+			long[] parents = new long[pointers.length];
+			for (int i = 0 ; i < pointers.length ; ++i)
+			{
+				parents[i] = pointers[i].getTargetOffset();
+			}
+
+			synsets.add(synset.getOffset());
+			hypernyms.add(parents);
+		}
+
+		//number the synsets, leaving node 0 for the virtual root
+		long[] offsets = new long[synsets.size()+1];
+		for (int i = 0 ; i < synsets.size() ; ++i)
+		{
+			offsets[i+1] = synsets.get(i);
+		}
+
+		//the data files are sorted by offset so this should already
+		//be in order but we sort to be safe before binary searching
+		int[] order = sortedOrder(offsets);
+
+		int[][] parents = new int[offsets.length][];
+		parents[0] = new int[0];
+		long[] sorted = new long[offsets.length];
+		for (int n = 1 ; n < offsets.length ; ++n)
+		{
+			sorted[n] = offsets[order[n]];
+		}
+
+		for (int n = 1 ; n < offsets.length ; ++n)
+		{
+			long[] p = hypernyms.get(order[n]-1);
+			parents[n] = new int[p.length];
+			for (int i = 0 ; i < p.length ; ++i)
+			{
+				parents[n][i] = find(sorted, p[i]);
+			}
+		}
+
+		return new LCAIndex(pos, sorted, parents);
+	}
+
+	/**
+	 * Builds the index for the given POS tag from an in-memory graph. The ids
+	 * of the synsets of a POS tag already follow the order of their offsets
+	 * so they can be used as node numbers without any sorting.
+	 * @param pos the POS tag of the hierarchy to index
+	 * @param graph the graph of the current WordNet dictionary
+	 * @return the lowest common ancestor index for the given POS tag
+	 */
+	private static LCAIndex build(POS pos, WordNetGraph graph)
+	{
+		SynsetIdMap ids = graph.getSynsetIdMap();
+		int first = ids.getFirstId(pos);
+		int size = ids.getSize(pos);
+
+		//number the synsets, leaving node 0 for the virtual root
+		long[] offsets = new long[size+1];
+		int[][] parents = new int[size+1][];
+		parents[0] = new int[0];
+
+		for (int n = 1 ; n <= size ; ++n)
+		{
+			offsets[n] = ids.getOffset(first+n-1);
+
+			//hypernyms of a different POS tag aren't part of this hierarchy
+			int[] p = graph.getTargetIds(first+n-1, PointerType.HYPERNYM);
+			for (int i = 0 ; i < p.length ; ++i)
+			{
+				p[i] = (p[i] < first || p[i] >= first+size ? -1 : p[i]-first+1);
+			}
+			parents[n] = p;
+		}
+
+		return new LCAIndex(pos, offsets, parents);
+	}
+
+	/**
+	 * Returns the node numbering implied by sorting the offsets, leaving
+	 * the virtual root as node 0.
+	 */
+	private static int[] sortedOrder(long[] offsets)
+	{
+		long[] sorted = Arrays.copyOfRange(offsets, 1, offsets.length);
+		Arrays.sort(sorted);
+
+		int[] order = new int[offsets.length];
+		for (int i = 1 ; i < offsets.length ; ++i)
+		{
+			order[Arrays.binarySearch(sorted, offsets[i])+1] = i;
+		}
+
+		return order;
+	}
+
+	/**
+	 * Creates the index from the hypernym links between the numbered nodes.
+	 * @param pos the POS tag of the hierarchy
+	 * @param offsets the sorted synset offsets, with node 0 the virtual root
+	 * @param parents the node numbers of the hypernyms of each node
+	 */
+	private LCAIndex(POS pos, long[] offsets, int[][] parents)
+	{
+		this.pos = pos.getKey();
+		this.offsets = offsets;
+
+		int n = offsets.length;
+		multiple = new BitSet(n);
+
+		//build the tree using the first hypernym of each synset, hanging
+		//synsets without a hypernym off the virtual root
+		int[] childCount = new int[n];
+		int[] parent = new int[n];
+		for (int i = 1 ; i < n ; ++i)
+		{
+			parent[i] = (parents[i].length == 0 || parents[i][0] < 0 ? 0 : parents[i][0]);
+
+			//a synset with more than one hypernym, or whose hypernym
+			//we couldn't find, can't be answered from the tree
+			if (parents[i].length > 1 || (parents[i].length == 1 && parents[i][0] < 0)) multiple.set(i);
+			++childCount[parent[i]];
+		}
+
+		int[][] children = new int[n][];
+		for (int i = 0 ; i < n ; ++i) children[i] = new int[childCount[i]];
+		Arrays.fill(childCount, 0);
+		for (int i = 1 ; i < n ; ++i) children[parent[i]][childCount[parent[i]]++] = i;
+
+		//walk the tree iteratively to build the Euler tour
+		euler = new int[2*n-1];
+		depths = new int[euler.length];
+		first = new int[n];
+		Arrays.fill(first, -1);
+
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int[] depth = new int[n];
+		int top = 0, length = 0;
+		stack[0] = 0;
+
+		first[0] = length;
+		euler[length] = 0;
+		depths[length++] = 0;
+
+		while (top >= 0)
+		{
+			int node = stack[top];
+
+			if (next[node] < children[node].length)
+			{
+				//move down to the next child of this node
+				int child = children[node][next[node]++];
+
+				//propagate the multiple inheritance flag down the tree
+				if (multiple.get(node)) multiple.set(child);
+
+				depth[child] = depth[node]+1;
+				stack[++top] = child;
+
+				first[child] = length;
+				euler[length] = child;
+				depths[length++] = depth[child];
+			}
+			else
+			{
+				//all the children have been visited so move back up
+				--top;
+
+				if (top >= 0)
+				{
+					euler[length] = stack[top];
+					depths[length++] = depth[stack[top]];
+				}
+			}
+		}
+
+		//anything not reached from the root must be part of a cycle
+		//so make sure we never trust the tree for those nodes
+		for (int i = 1 ; i < n ; ++i)
+		{
+			if (first[i] == -1) multiple.set(i);
+		}
+
+		if (length < euler.length)
+		{
+			euler = Arrays.copyOf(euler, length);
+			depths = Arrays.copyOf(depths, length);
+		}
+
+		buildSparseTable();
+	}
+
+	/**
+	 * Builds the sparse table over the Euler tour so that the position of
+	 * the minimum depth in any range of the tour can be found in constant time.
+	 */
+	private void buildSparseTable()
+	{
+		int levels = 1;
+		while ((1 << levels) <= euler.length) ++levels;
+
+		sparse = new int[levels][];
+		sparse[0] = new int[euler.length];
+		for (int i = 0 ; i < euler.length ; ++i) sparse[0][i] = i;
+
+		for (int k = 1 ; k < levels ; ++k)
+		{
+			int span = 1 << k;
+			int[] prev = sparse[k-1];
+			int[] level = new int[euler.length-span+1];
+
+			for (int i = 0 ; i < level.length ; ++i)
+			{
+				int a = prev[i];
+				int b = prev[i+(span >> 1)];
+				level[i] = (depths[a] <= depths[b] ? a : b);
+			}
+
+			sparse[k] = level;
+		}
+	}
+
+	/**
+	 * Finds the node number of the synset with the given offset.
+	 * @return the node number or -1 if the offset isn't in the index
+	 */
+	private static int find(long[] offsets, long offset)
+	{
+		int i = Arrays.binarySearch(offsets, 1, offsets.length, offset);
+		return (i < 0 ? -1 : i);
+	}
+
+	/**
+	 * The POS tag this index was built for.
+	 * @return the POS tag covered by this index
+	 */
+	public POS getPOS()
+	{
+		return POS.getPOSForKey(pos);
+	}
+
+	/**
+	 * Returns the number of synsets in this index.
+	 * @return the number of synsets covered by this index
+	 */
+	public int size()
+	{
+		return offsets.length-1;
+	}
+
+	/**
+	 * Does the synset at the given offset have more than one path to the
+	 * root of the hierarchy, so that the index can't be used to answer queries
+	 * about it.
+	 * @param offset the offset of the synset
+	 * @return true if the synset has multiple paths to the root, or isn't in
+	 *         this index, false otherwise
+	 */
+	public boolean hasMultipleInheritance(long offset)
+	{
+		int node = find(offsets, offset);
+		return node < 0 || multiple.get(node);
+	}
+
+	/**
+	 * Finds the lowest common ancestor of two synsets.
+	 * @param o1 the offset of the first synset
+	 * @param o2 the offset of the second synset
+	 * @return the offset of the lowest common ancestor, {@link #NONE} if the
+	 *         synsets are in separate hierarchies or {@link #UNKNOWN} if the
+	 *         answer has to be found by searching all the hypernym paths
+	 */
+	public long getLCA(long o1, long o2)
+	{
+		int n1 = find(offsets, o1);
+		int n2 = find(offsets, o2);
+
+		//if either synset is unknown or has multiple paths to the root
+		//then we can't trust the tree to give us the right answer
+		if (n1 < 0 || n2 < 0 || multiple.get(n1) || multiple.get(n2)) return UNKNOWN;
+
+		int l = first[n1];
+		int r = first[n2];
+
+		if (l > r)
+		{
+			int t = l;
+			l = r;
+			r = t;
+		}
+
+		//find the shallowest node on the Euler tour between the two
+		//synsets using two overlapping ranges from the sparse table
+		int k = 31 - Integer.numberOfLeadingZeros(r-l+1);
+		int a = sparse[k][l];
+		int b = sparse[k][r-(1 << k)+1];
+
+		int lca = euler[depths[a] <= depths[b] ? a : b];
+
+		//if the LCA is the virtual root then the synsets don't share an ancestor
+		return (lca == 0 ? NONE : offsets[lca]);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		//the sparse table isn't stored so rebuild it now
+		buildSparseTable();
+	}
+
+	/**
+	 * Writes a set of indexes to the given stream, along with the version of
+	 * WordNet they were built from.
+	 * @param out the stream to write the indexes to
+	 * @param version the version of WordNet the indexes were built from
+	 * @param indexes the indexes to write
+	 * @throws IOException if an error occurs writing to the stream
+	 */
+	public static void write(OutputStream out, double version, List<LCAIndex> indexes) throws IOException
+	{
+		ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out));
+
+		//record the WordNet version in the same way as the IC files
+		oos.writeUTF("wnver::"+version);
+
+		oos.writeInt(indexes.size());
+		for (LCAIndex index : indexes)
+		{
+			oos.writeObject(index);
+		}
+
+		oos.flush();
+	}
+
+	/**
+	 * Reads a set of indexes previously stored using {@link #write(OutputStream, double, List)}.
+	 * @param url the location of the stored indexes
+	 * @param version the version of WordNet the indexes will be used with
+	 * @return the indexes read from the URL
+	 * @throws IOException if an error occurs reading the indexes or if they
+	 *         were built from a different version of WordNet
+	 */
+	public static List<LCAIndex> read(URL url, double version) throws IOException
+	{
+		InputStream in = null;
+
+		try
+		{
+			in = url.openStream();
+			ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
+
+			//check that the indexes were built from the version of WordNet we are using
+			String line = ois.readUTF();
+			if (!line.startsWith("wnver::")) throw new IOException("Malformed LCA index file");
+			if (!line.endsWith("::"+version)) throw new IOException("LCA index file version doesn't match WordNet version");
+
+			int size = ois.readInt();
+			List<LCAIndex> indexes = new ArrayList<LCAIndex>(size);
+			for (int i = 0 ; i < size ; ++i)
+			{
+				indexes.add((LCAIndex)ois.readObject());
+			}
+
+			return indexes;
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IOException("Malformed LCA index file: " + e.getMessage());
+		}
+		finally
+		{
+			if (in != null) in.close();
+		}
+	}
+
+	/**
+	 * Builds the noun and verb indexes and stores them so that they can be
+	 * reloaded at startup using the lcaindex parameter of the IC measures.
+	 * @param args the JWNL properties file and the file to write the indexes to
+	 * @throws Exception if an error occurs building or writing the indexes
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length != 2)
+		{
+			System.err.println("Usage: LCAIndex <JWNL properties file> <output file>");
+			System.exit(1);
+		}
+
+		JWNL.initialize(new FileInputStream(args[0]));
+
+		List<LCAIndex> indexes = new ArrayList<LCAIndex>();
+		indexes.add(build(POS.NOUN));
+		indexes.add(build(POS.VERB));
+
+		OutputStream out = new FileOutputStream(args[1]);
+		try
+		{
+			write(out, Dictionary.getInstance().getVersion().getNumber(), indexes);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
@@ -30,7 +30,7 @@ import net.didion.jwnl.data.Synset;
  * Learning, Madison, WI.</blockquote>
  * @author Mark A. Greenwood
  */
-public class Lin extends ICMeasure
+public class Lin extends ICMeasure implements ICBased
 {
 	/**
 	 * Instances of this similarity measure should be generated using the
@@ -43,36 +43,12 @@ public class Lin extends ICMeasure
 	
 	@Override public double getSimilarity(Synset s1, Synset s2) throws JWNLException
 	{
-		//if the POS tags are not the same then return 0 as this measure
-		//only works with 2 nouns or 2 verbs.
-		if (!s1.getPOS().equals(s2.getPOS())) return 0;
-		
-		//see if the similarity is already cached and...
-		Double cached = getFromCache(s1, s2);
-		
-		//if it is then simply return it
-		if (cached != null) return cached.doubleValue();
-		
-		//Get the Information Content (IC) values for the two supplied synsets
-		double ic1 = getIC(s1);
-		double ic2 = getIC(s2);
-		
-		//if either IC value is zero then cache and return a sim of 0
-		if (ic1 == 0 || ic2 == 0) return addToCache(s1,s2,0);
-		
-		//Get the Lowest Common Subsumer (LCS) of the two synsets
-		Synset lcs = getLCSbyIC(s1,s2);
-		
-		//if there isn't an LCS then cache and return a sim of 0
-		if (lcs == null) return addToCache(s1,s2,0);
-		
-		//get the IC valueof the LCS
-		double icLCS = getIC(lcs);
-		
+		return getSimilarities(s1, s2, this)[0];
+	}
+	
+	public double getSimilarity(double ic1, double ic2, double icLCS, double rootFreq)
+	{
 		//caluclaue the similarity score
-		double sim = (2*icLCS)/(ic1+ic2);
-		
-		//cache and return the calculated similarity
-		return addToCache(s1,s2,sim);
+		return (2*icLCS)/(ic1+ic2);
 	}
 }
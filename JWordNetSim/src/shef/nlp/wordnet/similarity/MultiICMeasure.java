@@ -0,0 +1,120 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.Synset;
+
+/**
+ * Computes a number of IC based similarity measures at once. The IC values
+ * of the two synsets and of their LCS are only calculated once for each pair
+ * of synsets and are shared between the measures, as are the information
+ * content file and the cache. The measures are specified, as a comma
+ * separated list of class names, using the <code>measures</code> parameter.
+ * The standard {@link #getSimilarity(Synset, Synset)} method returns the score
+ * of the first measure in the list.
+ * @author Mark A. Greenwood
+ */
+public class MultiICMeasure extends ICMeasure
+{
+	/**
+	 * The measures whose scores are computed, in the order in which the
+	 * scores are returned.
+	 */
+	private ICBased[] measures;
+	
+	/**
+	 * Instances of this similarity measure should be generated using the
+	 * factory methods of {@link SimilarityMeasure}.
+	 */
+	protected MultiICMeasure()
+	{
+		//A protected constructor to force the use of the newInstance method
+	}
+	
+	protected void config(Map<String,String> params) throws Exception
+	{
+		super.config(params);
+		
+		//get the class names of the measures to compute
+		String names = params.remove("measures");
+		
+		//if the measures haven't been specified then throw an exception
+		if (names == null) throw new Exception("Must specify the IC measures to compute");
+		
+		String[] data = names.trim().split("\\s*,\\s*");
+		measures = new ICBased[data.length];
+		
+		for (int i = 0 ; i < data.length ; ++i)
+		{
+			//Get hold of the class we need to load
+			Class<?> c = Class.forName(data[i]);
+			
+			//we can only share the work between measures which compute
+			//their score from the IC values
+			if (!ICBased.class.isAssignableFrom(c)) throw new Exception(data[i]+" doesn't compute its similarity from IC values");
+			
+			//create a new instance of the measure, it doesn't need configuring
+			//as we only use it to turn the IC values into a score. The measures
+			//hide their constructors to force the use of the factory methods
+			Constructor<?> constructor = c.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			measures[i] = (ICBased)constructor.newInstance();
+		}
+	}
+	
+	/**
+	 * Returns the class names of the measures, in the same order as the
+	 * scores returned by {@link #getSimilarities(Synset, Synset)}.
+	 * @return the class names of the measures being computed
+	 */
+	public String[] getMeasureNames()
+	{
+		String[] names = new String[measures.length];
+		
+		for (int i = 0 ; i < measures.length ; ++i)
+		{
+			names[i] = measures[i].getClass().getName();
+		}
+		
+		return names;
+	}
+	
+	/**
+	 * Computes the similarity between two synsets using each of the measures.
+	 * @param s1 one of the synsets between which we want to know the similarity.
+	 * @param s2 the other synset between which we want to know the similarity.
+	 * @return the similarity between the two synsets according to each measure,
+	 *         in the same order as the measures were specified
+	 * @throws JWNLException if an error occurs accessing WordNet.
+	 */
+	public double[] getSimilarities(Synset s1, Synset s2) throws JWNLException
+	{
+		return getSimilarities(s1, s2, measures);
+	}
+	
+	@Override public double getSimilarity(Synset s1, Synset s2) throws JWNLException
+	{
+		return getSimilarities(s1, s2)[0];
+	}
+}
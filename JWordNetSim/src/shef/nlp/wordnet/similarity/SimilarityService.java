@@ -0,0 +1,193 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Serves similarity requests from a {@link SimilaritySnapshot} which can be
+ * replaced at any time without interrupting the requests, so that new WordNet
+ * data or information content files can be put into service without shutting
+ * JWNL down and losing every cache. A new snapshot is built and warmed in the
+ * background while the current one keeps serving requests, and is then
+ * swapped in atomically. Requests which acquired the old snapshot finish
+ * against it, and it is closed once they have all released it. Each request
+ * should acquire the snapshot once and release it when it is done:
+ * <pre>
+ * SimilaritySnapshot snapshot = service.acquire();
+ * try
+ * {
+ *     SimilarityInfo info = snapshot.getMeasure("jcn").getSimilarity(w1, w2);
+ *     ...
+ * }
+ * finally
+ * {
+ *     snapshot.release();
+ * }
+ * </pre>
+ * @author Mark A. Greenwood
+ */
+public class SimilarityService
+{
+	/**
+	 * The snapshot new requests are served from.
+	 */
+	private volatile SimilaritySnapshot current;
+	
+	/**
+	 * Set once the service has been closed.
+	 */
+	private volatile boolean closed = false;
+	
+	/**
+	 * Builds new snapshots one at a time, in the order they were asked for,
+	 * on a background thread.
+	 */
+	private final ExecutorService builder = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "SimilarityService reload");
+			
+			//a reload in progress shouldn't keep the JVM alive
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	/**
+	 * Creates a new service which serves requests from the given snapshot.
+	 * @param snapshot the snapshot to serve requests from.
+	 */
+	public SimilarityService(SimilaritySnapshot snapshot)
+	{
+		current = snapshot;
+	}
+	
+	/**
+	 * Get the current snapshot, pinned so that it stays open until
+	 * {@link SimilaritySnapshot#release()} is called even if it is replaced in
+	 * the meantime.
+	 * @return the current snapshot.
+	 */
+	public SimilaritySnapshot acquire()
+	{
+		while (true)
+		{
+			if (closed) throw new IllegalStateException("The similarity service has been closed");
+			
+			SimilaritySnapshot snapshot = current;
+			
+			//a snapshot retired since we read it is about to be closed so
+			//go round again to get the one that replaced it
+			if (snapshot.acquire()) return snapshot;
+		}
+	}
+	
+	/**
+	 * Atomically replaces the current snapshot. The old snapshot is closed
+	 * once every request that acquired it has released it, or at once if
+	 * none has.
+	 * @param snapshot the snapshot to serve new requests from.
+	 * @return the snapshot that was replaced.
+	 * @throws IllegalStateException if the service has been closed.
+	 */
+	public SimilaritySnapshot swap(SimilaritySnapshot snapshot)
+	{
+		SimilaritySnapshot previous;
+		synchronized (this)
+		{
+			if (closed) throw new IllegalStateException("The similarity service has been closed");
+			
+			previous = current;
+			current = snapshot;
+		}
+		
+		if (previous != snapshot) previous.retire();
+		
+		return previous;
+	}
+	
+	/**
+	 * Builds a new snapshot in the background (see
+	 * {@link SimilaritySnapshot#build(URL, Map)}), warms it with the given
+	 * pairs of words and then swaps it in. If the snapshot can't be built the current
+	 * snapshot is left in service and the error is reported by the returned
+	 * future.
+	 * @param jwnlConfig the URL of the JWNL properties file describing the new dictionary.
+	 * @param measureConfigs the URL of the configuration file of each
+	 *        similarity measure, by name.
+	 * @param warmUp the pairs of words used to warm the new snapshot up, see
+	 *        {@link SimilaritySnapshot#warm(List)}.
+	 * @return a future which gives the new snapshot once it has been swapped in.
+	 */
+	public Future<SimilaritySnapshot> reload(final URL jwnlConfig, final Map<String,URL> measureConfigs, final List<String[]> warmUp)
+	{
+		return builder.submit(new Callable<SimilaritySnapshot>()
+		{
+			public SimilaritySnapshot call() throws Exception
+			{
+				SimilaritySnapshot snapshot = SimilaritySnapshot.build(jwnlConfig, measureConfigs);
+				
+				//pairs which don't fit the new WordNet are skipped rather
+				//than stopping the reload
+				snapshot.warm(warmUp == null ? Collections.<String[]>emptyList() : warmUp);
+				
+				try
+				{
+					swap(snapshot);
+				}
+				catch (IllegalStateException e)
+				{
+					//the service was closed while we were building
+					snapshot.retire();
+					throw e;
+				}
+				
+				return snapshot;
+			}
+		});
+	}
+	
+	/**
+	 * Stops the service. The current snapshot is closed once the requests
+	 * using it have released it, and no more reloads are started.
+	 */
+	public void close()
+	{
+		synchronized (this)
+		{
+			if (closed) return;
+			
+			closed = true;
+		}
+		
+		builder.shutdown();
+		current.retire();
+	}
+}
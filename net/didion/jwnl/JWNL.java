@@ -51,10 +51,12 @@ public final class JWNL {
 	private static final int VERSION_SET = 3;
 	private static final int INITIALIZED = 4;
 
-	private static Version _version;
+	private static volatile Version _version;
 	private static ResourceBundleSet _bundle;
 	private static OS _currentOS = UNDEFINED;
 	private static int _initStage = UNINITIALIZED;
+	/** The version of the dictionary being created on each thread by {@link #createDictionary}. */
+	private static final ThreadLocal _creatingVersion = new ThreadLocal();
 
 	static {
 		createResourceBundle();
@@ -97,6 +99,85 @@ public final class JWNL {
 		checkInitialized(UNINITIALIZED);
 
 		_initStage = START;
+		org.w3c.dom.Element root = parse(propertiesStream);
+
+		// set the locale
+		_bundle.setLocale(getLocale(
+                getAttribute(root, LANGUAGE_ATTRIBUTE),
+                getAttribute(root, COUNTRY_ATTRIBUTE)));
+
+		// add additional resources
+		NodeList resourceNodes = root.getElementsByTagName(RESOURCE_TAG);
+		for (int i = 0; i < resourceNodes.getLength(); i++) {
+			String resource = getAttribute(resourceNodes.item(i), CLASS_ATTRIBUTE);
+			if (resource != null) {
+				_bundle.addResource(resource);
+			}
+		}
+
+		// initialize bundle-dependant resources
+		PointerType.initialize();
+		Adjective.initialize();
+		VerbFrame.initialize();
+
+		// parse version information
+		Version version = parseVersion(root);
+
+		_initStage = DICTIONARY_PATH_SET;
+
+		_version = version;
+
+		_initStage = VERSION_SET;
+
+		// parse dictionary
+		parseDictionary(root).install();
+
+		_initStage = INITIALIZED;
+	}
+
+	/**
+	 * Create the dictionary described by another properties file, without replacing the
+	 * default dictionary installed by {@link #initialize}. Only the version and dictionary
+	 * elements of the file are used; the locale and resources are those of the default.
+	 * The new dictionary can be of a different WordNet version from the default, and is
+	 * used either by passing it explicitly or by binding it to a thread with
+	 * {@link Dictionary#bind(Dictionary)}. The caller should close it when it is finished with.
+	 */
+	public static Dictionary createDictionary(InputStream propertiesStream) throws JWNLException {
+		checkInitialized(INITIALIZED);
+		org.w3c.dom.Element root = parse(propertiesStream);
+		Version version = parseVersion(root);
+		Version previous = (Version) _creatingVersion.get();
+		_creatingVersion.set(version);
+		try {
+			return Dictionary.create(parseDictionary(root), version);
+		} finally {
+			_creatingVersion.set(previous);
+		}
+	}
+
+	/**
+	 * Replace the default dictionary with the one described by another properties file, for
+	 * example one pointing at updated WordNet data, without shutting JWNL down. The new
+	 * dictionary is created (and preloaded, if its properties say so) on the calling thread
+	 * while the old one keeps serving requests, and is then swapped in atomically with
+	 * {@link Dictionary#replace(Dictionary)}. The old dictionary is not closed, so requests,
+	 * similarity measures, index words and synsets still using it carry on working; the caller
+	 * may close it once nothing refers to it. As with {@link #createDictionary}, the locale and
+	 * resources are unchanged.
+	 * @return the dictionary that was replaced
+	 */
+	public static Dictionary replaceDictionary(InputStream propertiesStream) throws JWNLException {
+		Dictionary dictionary = createDictionary(propertiesStream);
+		synchronized (JWNL.class) {
+			Dictionary previous = Dictionary.replace(dictionary);
+			_version = dictionary.getVersion();
+			return previous;
+		}
+	}
+
+	/** Parse a properties file and return its root element. */
+	private static org.w3c.dom.Element parse(InputStream propertiesStream) throws JWNLException {
 		try {
 			// find the properties file
 			if (propertiesStream == null || propertiesStream.available() <= 0) {
@@ -123,52 +204,29 @@ public final class JWNL {
 		} catch (IOException ex) {
 		}
 
-		org.w3c.dom.Element root = doc.getDocumentElement();
-
-		// set the locale
-		_bundle.setLocale(getLocale(
-                getAttribute(root, LANGUAGE_ATTRIBUTE),
-                getAttribute(root, COUNTRY_ATTRIBUTE)));
-
-		// add additional resources
-		NodeList resourceNodes = root.getElementsByTagName(RESOURCE_TAG);
-		for (int i = 0; i < resourceNodes.getLength(); i++) {
-			String resource = getAttribute(resourceNodes.item(i), CLASS_ATTRIBUTE);
-			if (resource != null) {
-				_bundle.addResource(resource);
-			}
-		}
-
-		// initialize bundle-dependant resources
-		PointerType.initialize();
-		Adjective.initialize();
-		VerbFrame.initialize();
+		return doc.getDocumentElement();
+	}
 
-		// parse version information
+	private static Version parseVersion(org.w3c.dom.Element root) throws JWNLException {
 		NodeList versionNodes = root.getElementsByTagName(VERSION_TAG);
 		if (versionNodes.getLength() == 0) {
 			throw new JWNLException("JWNL_EXCEPTION_003");
 		}
 		Node version = versionNodes.item(0);
 
-		_initStage = DICTIONARY_PATH_SET;
-
 		String number = getAttribute(version, NUMBER_ATTRIBUTE);
-		_version = new Version(
+		return new Version(
                 getAttribute(version, PUBLISHER_ATTRIBUTE),
                 (number == null) ? 0.0 : Double.parseDouble(number),
                 getLocale(getAttribute(version, LANGUAGE_ATTRIBUTE), getAttribute(version, COUNTRY_ATTRIBUTE)));
+	}
 
-		_initStage = VERSION_SET;
-
-		// parse dictionary
+	private static Element parseDictionary(org.w3c.dom.Element root) throws JWNLException {
 		NodeList dictionaryNodeList = root.getElementsByTagName(DICTIONARY_TAG);
 		if (dictionaryNodeList.getLength() == 0) {
 			throw new JWNLException("JWNL_EXCEPTION_005");
 		}
-		createElementFromNode(dictionaryNodeList.item(0)).install();
-
-		_initStage = INITIALIZED;
+		return createElementFromNode(dictionaryNodeList.item(0));
 	}
 
 	private static void createResourceBundle() {
@@ -239,8 +297,23 @@ public final class JWNL {
 		return Double.parseDouble(versionStr.substring(0, 3));
 	}
 
-	/** Get the current WordNet version */
+	/**
+	 * Get the WordNet version of the current dictionary: the one being created on this
+	 * thread by {@link #createDictionary}, otherwise the one returned by
+	 * {@link Dictionary#getInstance()}, otherwise the default.
+	 */
 	public static Version getVersion() {
+		checkInitialized(VERSION_SET);
+		Version version = (Version) _creatingVersion.get();
+		if (version != null) {
+			return version;
+		}
+		Dictionary dictionary = Dictionary.getInstance();
+		return (dictionary == null) ? _version : dictionary.getVersion();
+	}
+
+	/** Get the WordNet version of the default dictionary */
+	public static Version getDefaultVersion() {
 		checkInitialized(VERSION_SET);
 		return _version;
 	}
@@ -28,6 +28,15 @@ public interface FileDictionaryElementFactory extends Createable {
      * @return synset
      */
 	public Synset createSynset(POS pos, String line);
+
+    /**
+     * Returns the gloss from a line in a data file, for synsets whose glosses
+     * are loaded on demand.
+     * @param pos - the part of speech
+     * @param line - unparsed line
+     * @return gloss, or null if the line has none
+     */
+	public String parseGloss(POS pos, String line);
     
 	/**
      * Creates an IndexWord from a line in an index file. 
@@ -26,6 +26,8 @@ public class IndexWord implements DictionaryElement {
 	private transient Synset[] _synsets;
 	/** True when all synsets have been loaded */
 	private transient boolean _synsetsLoaded = false;
+	/** The dictionary this word was read from, if it has been set. */
+	private transient Dictionary _dictionary = null;
 
 	public IndexWord(String lemma, POS pos, long[] synsetOffsets) {
 		_lemma = lemma;
@@ -38,6 +40,19 @@ public class IndexWord implements DictionaryElement {
 		return DictionaryElementType.INDEX_WORD;
 	}
 
+	/**
+	 * Return the dictionary this word was read from, which is used to load its senses. If it
+	 * hasn't been set, this is {@link Dictionary#getInstance()}.
+	 */
+	public Dictionary getDictionary() {
+		return (_dictionary != null) ? _dictionary : Dictionary.getInstance();
+	}
+
+	/** Set the dictionary this word was read from. Dictionaries call this as they create words. */
+	public void setDictionary(Dictionary dictionary) {
+		_dictionary = dictionary;
+	}
+
 	// Object methods	//
 
     /**
@@ -111,7 +126,7 @@ public class IndexWord implements DictionaryElement {
 
 	private void loadSynset(int i) throws JWNLException {
 		if (_synsets[i] == null) {
-            _synsets[i] = Dictionary.getInstance().getSynsetAt(_pos, _synsetOffsets[i]);
+            _synsets[i] = getDictionary().getSynsetAt(_pos, _synsetOffsets[i]);
         }
 	}
 
@@ -61,6 +61,21 @@ public final class POS implements Serializable {
 		return null;
 	}
 
+	/**
+	 * Return the <code>POS</code> whose key is the single character <var>key</var>,
+	 * or null if the key does not match any POS.
+	 */
+	public static POS getPOSForKey(char key) {
+		for (Iterator itr = ALL_POS.iterator(); itr.hasNext();) {
+			POS pos = (POS)itr.next();
+			String posKey = pos.getKey();
+			if (posKey.length() == 1 && posKey.charAt(0) == key) {
+				return pos;
+			}
+		}
+		return null;
+	}
+
 	private Resolvable _label;
 	private Resolvable _key;
 
@@ -93,14 +93,24 @@ public class Pointer implements Serializable {
 	/** Get the actual target of this pointer. */
 	public PointerTarget getTarget() throws JWNLException {
 		if (_target == null) {
-			Dictionary dic = Dictionary.getInstance();
-			Synset syn = dic.getSynsetAt(_targetIndex._pos, _targetIndex._offset);
+			// the target is in the same dictionary as the source
+			Synset source = (_source instanceof Word) ? ((Word) _source).getSynset() : (Synset) _source;
+			Synset syn = source.getDictionary().getSynsetAt(_targetIndex._pos, _targetIndex._offset);
 			_target = (_targetIndex._index == 0) ?
 			    (PointerTarget) syn : (PointerTarget) syn.getWord(_targetIndex._index - 1);
 		}
 		return _target;
 	}
 
+	/**
+	 * Set the target of this pointer, so that {@link #getTarget()} doesn't have to look it
+	 * up in the dictionary. This is used by dictionaries which resolve all their pointers
+	 * once they are loaded (see {@link Dictionary#resolvePointers()}).
+	 */
+	public void setTarget(PointerTarget target) {
+		_target = target;
+	}
+
 	/**
 	 * Get the synset that is a) the target of this pointer, or b) the	 * synset that contains the target of this pointer.
 	 */
@@ -82,8 +82,16 @@ public final class PointerType implements Serializable {
         REGION_MEMBER, USAGE_MEMBER, INSTANCE_HYPERNYM, INSTANCES_HYPONYM
     }));
 
+    static {
+        for (int i = 0; i < ALL_TYPES.size(); i++) {
+            ((PointerType) ALL_TYPES.get(i))._index = i;
+        }
+    }
+
     private static final Map POS_TO_MASK_MAP = new HashMap();
     private static final Map KEY_TO_POINTER_TYPE_MAP = new HashMap();
+    /** The pointer types whose keys are one or two ASCII characters, indexed by {@link #getSymbolIndex}. */
+    private static final PointerType[] SYMBOL_TABLE = new PointerType[128 * 128];
 
     private static boolean _initialized = false;
 
@@ -97,6 +105,10 @@ public final class PointerType implements Serializable {
             for (Iterator itr = ALL_TYPES.iterator(); itr.hasNext();) {
                 PointerType pt = (PointerType) itr.next();
                 KEY_TO_POINTER_TYPE_MAP.put(pt.getKey(), pt);
+                int index = getSymbolIndex(pt.getKey(), 0, pt.getKey().length());
+                if (index >= 0) {
+                    SYMBOL_TABLE[index] = pt;
+                }
             }
 
             _initialized = true;
@@ -135,6 +147,33 @@ public final class PointerType implements Serializable {
 		return (PointerType) KEY_TO_POINTER_TYPE_MAP.get(key);
 	}
 
+	/**
+	 * Return the <code>PointerType</code> whose key matches the characters of <var>line</var>
+	 * from <var>start</var> up to (but not including) <var>end</var>. Keys of one or two
+	 * characters are found with a table lookup rather than creating a String.
+	 */
+	public static PointerType getPointerTypeForKey(CharSequence line, int start, int end) {
+		int index = getSymbolIndex(line, start, end);
+		if (index >= 0) {
+			return SYMBOL_TABLE[index];
+		}
+		return getPointerTypeForKey(line.subSequence(start, end).toString());
+	}
+
+	/** Return the index of a key in <code>SYMBOL_TABLE</code>, or -1 if it can't be stored there. */
+	private static int getSymbolIndex(CharSequence key, int start, int end) {
+		int length = end - start;
+		if (length < 1 || length > 2) {
+			return -1;
+		}
+		char first = key.charAt(start);
+		char second = (length == 2) ? key.charAt(start + 1) : 0;
+		if (first >= 128 || second >= 128) {
+			return -1;
+		}
+		return first * 128 + second;
+	}
+
     public static List getAllPointerTypes() {
         return ALL_TYPES;
     }
@@ -165,6 +204,8 @@ public final class PointerType implements Serializable {
 	private int _flags;
 	/** The PointerType that is the revers of this PointerType */
 	private PointerType _symmetricType;
+	/** The position of this type in {@link #getAllPointerTypes()}. */
+	private transient int _index;
 
 	private PointerType(String label, String key, int flags) {
 		_label = new Resolvable(label);
@@ -190,6 +231,14 @@ public final class PointerType implements Serializable {
 		return _label.toString();
 	}
 
+	/**
+	 * Return the position of this type in {@link #getAllPointerTypes()}, so that arrays
+	 * can be indexed by pointer type.
+	 */
+	public int getIndex() {
+		return _index;
+	}
+
 	/** Whether or not this PointerType can be associated with <code>pos</code> */
 	public boolean appliesTo(POS pos) {
 		return (_flags & getPOSMask(pos)) != 0;
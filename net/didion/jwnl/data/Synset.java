@@ -5,6 +5,9 @@
 package net.didion.jwnl.data;
 
 import net.didion.jwnl.JWNL;
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.JWNLRuntimeException;
+import net.didion.jwnl.dictionary.Dictionary;
 
 import java.io.IOException;
 import java.util.BitSet;
@@ -30,8 +33,13 @@ public class Synset extends PointerTarget implements DictionaryElement {
 	private long _offset;
 	/** The words in this synset. */
 	private Word[] _words;
-	/** The text (definition, usage examples) associated with the synset. */
-	private String _gloss;
+	/**
+	 * The text (definition, usage examples) associated with the synset. A lazy gloss
+	 * is loaded by whichever thread first finds it null, so it is volatile.
+	 */
+	private volatile String _gloss;
+	/** True if the gloss is loaded when it is first asked for (see {@link #getGloss()}). */
+	private boolean _lazyGloss = false;
 	private BitSet _verbFrameFlags;
 	/** for use only with WordNet 1.6 and earlier */
 	private boolean _isAdjectiveCluster;
@@ -46,6 +54,9 @@ public class Synset extends PointerTarget implements DictionaryElement {
 	 */
 	private String lexFileName;
 
+	/** The dictionary this synset was read from, if it has been set. */
+	private transient Dictionary _dictionary = null;
+
 	public Synset(POS pos, long offset, Word[] words, Pointer[] pointers, String gloss, BitSet verbFrames) {
 		this(pos, offset, words, pointers, gloss, verbFrames, false);
 	}
@@ -62,10 +73,34 @@ public class Synset extends PointerTarget implements DictionaryElement {
 		_isAdjectiveCluster = isAdjectiveCluster;
 	}
 
+	/**
+	 * Create a synset whose gloss is not loaded until it is first asked for, when it
+	 * is read using {@link Dictionary#getGloss(POS, long)}. This keeps synsets which
+	 * are only used for their words and pointers small.
+	 */
+	public Synset(POS pos, long offset, Word[] words, Pointer[] pointers, BitSet verbFrames,
+	              boolean isAdjectiveCluster) {
+		this(pos, offset, words, pointers, null, verbFrames, isAdjectiveCluster);
+		_lazyGloss = true;
+	}
+
 	public DictionaryElementType getType() {
 		return DictionaryElementType.SYNSET;
 	}
 
+	/**
+	 * Return the dictionary this synset was read from, which is used to load its gloss and the
+	 * targets of its pointers. If it hasn't been set, this is {@link Dictionary#getInstance()}.
+	 */
+	public Dictionary getDictionary() {
+		return (_dictionary != null) ? _dictionary : Dictionary.getInstance();
+	}
+
+	/** Set the dictionary this synset was read from. Dictionaries call this as they create synsets. */
+	public void setDictionary(Dictionary dictionary) {
+		_dictionary = dictionary;
+	}
+
 	// Object methods
 
 	/** Two Synsets are equal if their POS's and offsets are equal */
@@ -107,7 +142,17 @@ public class Synset extends PointerTarget implements DictionaryElement {
 	}
 
 	public String getGloss() {
-		return _gloss;
+		String gloss = _gloss;
+		if (gloss == null && _lazyGloss) {
+			// threads racing here all read the same gloss, so there is no need to lock
+			try {
+				gloss = getDictionary().getGloss(_pos, _offset);
+			} catch (JWNLException ex) {
+				throw new JWNLRuntimeException("DICTIONARY_EXCEPTION_035", new Object[] {_pos, new Long(_offset)}, ex);
+			}
+			_gloss = gloss;
+		}
+		return gloss;
 	}
 
 	public Word[] getWords() {
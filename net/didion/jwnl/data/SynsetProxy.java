@@ -1,6 +1,7 @@
 package net.didion.jwnl.data;
 
 import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.dictionary.Dictionary;
 
 /**
  * Proxy for a <code>Synset</code>. This class wraps a <code>Synset</code> that may be null at
@@ -94,6 +95,14 @@ public class SynsetProxy extends Synset {
 		getSource().setLexFileId(lexFileId);
 	}
 
+	public Dictionary getDictionary() {
+		return getSource().getDictionary();
+	}
+
+	public void setDictionary(Dictionary dictionary) {
+		getSource().setDictionary(dictionary);
+	}
+
 	protected Synset getSource() {
 		return _source;
 	}
@@ -8,7 +8,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.didion.jwnl.JWNL;
-import net.didion.jwnl.dictionary.Dictionary;
 
 /**
  * A <code>Word</code> represents the lexical information related to a specific sense of an <code>IndexWord</code>.
@@ -164,7 +163,7 @@ public class Word extends PointerTarget {
 	 */
 	public String getSenseKey() {
 		if (!keysLoaded) {
-			senseKey = Dictionary.getInstance().getSenseKey(getSynset().getOffset(), getLemma());
+			senseKey = getSynset().getDictionary().getSenseKey(getSynset().getOffset(), getLemma());
 			keysLoaded = true;
 		}
 		return senseKey;
@@ -188,7 +187,7 @@ public class Word extends PointerTarget {
 	 */
 	public int getUsageCount() {
 		if (!usageLoaded) {
-			usageTag = Dictionary.getInstance().getUsageCount(getSynset().getOffset(), getLemma());
+			usageTag = getSynset().getDictionary().getUsageCount(getSynset().getOffset(), getLemma());
 			usageLoaded = true;
 		}
 		return usageTag;
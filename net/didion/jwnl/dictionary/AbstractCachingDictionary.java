@@ -114,13 +114,15 @@ public abstract class AbstractCachingDictionary extends Dictionary {
 		return _caches;
 	}
 
-	private void cache(DictionaryElementType fileType, POSKey key, Object obj) {
+	// the caches may be shared by several threads, e.g. those consuming the iterators
+	// returned by getSynsetIterators, so access to them is synchronized on the dictionary
+	private synchronized void cache(DictionaryElementType fileType, POSKey key, Object obj) {
 		if (isCachingEnabled()) {
 			getCaches().cacheObject(fileType, key, obj);
 		}
 	}
 
-	private Object getCached(DictionaryElementType fileType, POSKey key) {
+	private synchronized Object getCached(DictionaryElementType fileType, POSKey key) {
 		if (isCachingEnabled()) {
 			return getCaches().getCachedObject(fileType, key);
 		}
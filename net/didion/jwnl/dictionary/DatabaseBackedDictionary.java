@@ -8,6 +8,7 @@ import net.didion.jwnl.data.IndexWord;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.data.Synset;
 import net.didion.jwnl.dictionary.database.DatabaseManager;
+import net.didion.jwnl.dictionary.database.DatabaseManagerImpl;
 import net.didion.jwnl.dictionary.database.Query;
 import net.didion.jwnl.util.factory.Param;
 
@@ -68,6 +69,9 @@ public class DatabaseBackedDictionary extends AbstractCachingDictionary {
                 try {
                     query = _dbManager.getIndexWordSynsetsQuery(pos, lemma);
                     word = _elementFactory.createIndexWord(pos, lemma, query.execute());
+                    if (word != null) {
+                        word.setDictionary(this);
+                    }
                     if (word != null && isCachingEnabled()) {
                         cacheIndexWord(new POSKey(pos, lemma), word);
                     }
@@ -92,7 +96,10 @@ public class DatabaseBackedDictionary extends AbstractCachingDictionary {
     }
 
     public IndexWord getRandomIndexWord(POS pos) throws JWNLException {
-        Query query = _dbManager.getRandomIndexWordQuery(pos);
+        // only the standard manager can pick the word with this dictionary's generator
+        Query query = (_dbManager instanceof DatabaseManagerImpl)
+            ? ((DatabaseManagerImpl) _dbManager).getRandomIndexWordQuery(pos, getRandom())
+            : _dbManager.getRandomIndexWordQuery(pos);
         String lemma = null;
 
         try {
@@ -125,6 +132,9 @@ public class DatabaseBackedDictionary extends AbstractCachingDictionary {
                 verbFrameQuery = _dbManager.getVerbFrameQuery(pos, offset);
                 synset = _elementFactory.createSynset(pos, offset, query.execute(), wordQuery.execute(),
                         pointerQuery.execute(), verbFrameQuery.execute());
+                if (synset != null) {
+                    synset.setDictionary(this);
+                }
                 if (synset != null && isCachingEnabled()) {
                     cacheSynset(new POSKey(pos, offset), synset);
                 }
@@ -4,16 +4,27 @@
  */
 package net.didion.jwnl.dictionary;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
 
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.JWNL.Version;
 import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.Exc;
 import net.didion.jwnl.data.IndexWord;
 import net.didion.jwnl.data.IndexWordSet;
 import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerTarget;
 import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.dictionary.graph.WordNetGraph;
+import net.didion.jwnl.dictionary.morph.DefaultMorphologicalProcessor;
 import net.didion.jwnl.util.MessageLog;
 import net.didion.jwnl.util.MessageLogLevel;
+import net.didion.jwnl.util.factory.Element;
 import net.didion.jwnl.util.factory.Installable;
 
 /**
@@ -22,16 +33,106 @@ import net.didion.jwnl.util.factory.Installable;
  */
 public abstract class Dictionary implements Installable {
 	private static final MessageLog _log = new MessageLog(Dictionary.class);
-	/** The singleton instance of the dictionary to be used throughout the system. */
-	private static Dictionary _dictionary = null;
+	/** The default instance of the dictionary to be used throughout the system. */
+	private static volatile Dictionary _dictionary = null;
+	/** The dictionary bound to each thread, which is used instead of the default. */
+	private static final ThreadLocal _bound = new ThreadLocal();
+	/** Set on a thread while it creates a dictionary with {@link #create}, so that installing it binds it instead. */
+	private static final ThreadLocal _creating = new ThreadLocal();
 
+	/**
+	 * Return the dictionary bound to the current thread (see {@link #bind(Dictionary)}), or
+	 * the default dictionary if none is bound.
+	 */
 	public static Dictionary getInstance() {
+		Dictionary dictionary = (Dictionary) _bound.get();
+		return (dictionary != null) ? dictionary : _dictionary;
+	}
+
+	/** Return the default dictionary, the one installed by {@link JWNL#initialize}. */
+	public static Dictionary getDefaultInstance() {
 		return _dictionary;
 	}
 
+	/**
+	 * Atomically make <var>dictionary</var> the default dictionary, without interrupting the
+	 * requests using the old one. The new dictionary should be created, and warmed if need be,
+	 * before it is swapped in; see {@link JWNL#replaceDictionary}. The old default is left open,
+	 * since the similarity measures, index words and synsets made from it before the swap keep
+	 * using it. A request which should see a single dictionary from start to finish binds
+	 * {@link #getInstance()} to its thread (see {@link #bind(Dictionary)}) when it starts. The
+	 * caller may close the returned dictionary once nothing refers to it any more.
+	 * @return the dictionary that was replaced
+	 */
+	public static Dictionary replace(Dictionary dictionary) {
+		Dictionary previous;
+		synchronized (Dictionary.class) {
+			previous = _dictionary;
+			if (previous != null) {
+				// the old default takes its version from JWNL, which may be about to change
+				previous._version = previous.getVersion();
+			}
+			_dictionary = dictionary;
+		}
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_014", new Object[] {previous, dictionary});
+		return previous;
+	}
+
+	/**
+	 * Make <var>dictionary</var> the one returned by {@link #getInstance()} on the current thread,
+	 * so that code which doesn't take a dictionary (the morphological operations, for example)
+	 * uses it. Passing <code>null</code> restores the default. Bindings should be undone when
+	 * the work is finished, particularly on pooled threads:
+	 * <pre>
+	 * Dictionary previous = Dictionary.bind(dictionary);
+	 * try {
+	 *     ...
+	 * } finally {
+	 *     Dictionary.bind(previous);
+	 * }
+	 * </pre>
+	 * @return the dictionary previously bound to the thread, or <code>null</code>
+	 */
+	public static Dictionary bind(Dictionary dictionary) {
+		Dictionary previous = (Dictionary) _bound.get();
+		_bound.set(dictionary);
+		return previous;
+	}
+
+	/**
+	 * Install the dictionary described by <var>element</var> without replacing the default
+	 * dictionary, and return it. This is how several dictionaries, even of different WordNet
+	 * versions, can be used in one JVM; see {@link JWNL#createDictionary}.
+	 * @param version the version of WordNet the dictionary holds
+	 */
+	public static Dictionary create(Element element, Version version) throws JWNLException {
+		Dictionary previous = bind(null);
+		_creating.set(Boolean.TRUE);
+		try {
+			element.install();
+			Dictionary dictionary = (Dictionary) _bound.get();
+			if (dictionary == null) {
+				throw new JWNLException("DICTIONARY_EXCEPTION_037", element.getClassName());
+			}
+			dictionary._version = version;
+			return dictionary;
+		} finally {
+			_creating.set(null);
+			bind(previous);
+		}
+	}
+
+	/**
+	 * Make <var>dictionary</var> the default dictionary or, while a dictionary is being created
+	 * by {@link #create}, bind it to the creating thread.
+	 */
 	protected static void setDictionary(Dictionary dictionary) {
 		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_002", dictionary);
-		_dictionary = dictionary;
+		if (_creating.get() != null) {
+			_bound.set(dictionary);
+		} else {
+			_dictionary = dictionary;
+		}
 	}
 
 	public static void uninstall() {
@@ -53,6 +154,18 @@ public abstract class Dictionary implements Installable {
 	}
 
 	private MorphologicalProcessor _morph = null;
+	/** The WordNet version of a dictionary made by {@link #create} or replaced as the default, or null for the default's. */
+	private volatile Version _version = null;
+	private volatile SynsetIdMap _synsetIds = null;
+	/**
+	 * Held while the synset ids are assigned. The caches are synchronized on the dictionary,
+	 * so building the map under that lock would stop every other thread's lookups.
+	 */
+	private final Object _synsetIdLock = new Object();
+	/** The prefix indexes built so far, keyed by POS (or by this dictionary for all parts-of-speech). */
+	private Map _prefixIndexes = new HashMap();
+	/** Random number generator used by getRandomIndexWord() */
+	private Random _random = new Random();
 
 	/**
 	 * Create a Dictionary that does not do morphological processing.
@@ -74,6 +187,16 @@ public abstract class Dictionary implements Installable {
 	 */
 	public abstract Iterator getIndexWordIterator(POS pos) throws JWNLException;
 
+	/**
+	 * Return up to <var>parts</var> Iterators which between them cover all the IndexWords
+	 * of part-of-speech <var>pos</var>, so that they can be consumed by separate threads.
+	 * Each iterator should only be used by one thread at a time. By default this returns
+	 * the single iterator from {@link #getIndexWordIterator(POS)}.
+	 */
+	public Iterator[] getIndexWordIterators(POS pos, int parts) throws JWNLException {
+		return new Iterator[] {getIndexWordIterator(pos)};
+	}
+
 	/**
 	 * Return an Iterator over all the IndexWords of part-of-speech <var>pos</var>
 	 * whose lemmas contain <var>substring</var> as a substring.
@@ -94,8 +217,29 @@ public abstract class Dictionary implements Installable {
 	 */
 	public abstract IndexWord getIndexWord(POS pos, String lemma) throws JWNLException;
 
+	/**
+	 * Return an IndexWord of part-of-speech <var>pos</var> chosen at random, each index word
+	 * being equally likely. The choice is made with this dictionary's random number generator,
+	 * so a sequence of random words can be repeated by calling {@link #setRandomSeed(long)}.
+	 * @param pos The part-of-speech.
+	 * @return A random <code>IndexWord</code>, or <code>null</code> if there are none.
+	 */
     public abstract IndexWord getRandomIndexWord(POS pos) throws JWNLException;
 
+	/**
+	 * Seed the random number generator used by {@link #getRandomIndexWord(POS)}. After
+	 * seeding, the same sequence of calls returns the same sequence of words (as long as
+	 * no other thread is also choosing random words).
+	 */
+	public void setRandomSeed(long seed) {
+		_random.setSeed(seed);
+	}
+
+	/** Return the random number generator subclasses should use to choose random index words. */
+	protected Random getRandom() {
+		return _random;
+	}
+
 	/**
 	 * Return an Iterator over all the Synsets of part-of-speech <var>pos</var>
 	 * in the database.
@@ -104,6 +248,16 @@ public abstract class Dictionary implements Installable {
 	 */
 	public abstract Iterator getSynsetIterator(POS pos) throws JWNLException;
 
+	/**
+	 * Return up to <var>parts</var> Iterators which between them cover all the Synsets
+	 * of part-of-speech <var>pos</var>, so that they can be consumed by separate threads.
+	 * Each iterator should only be used by one thread at a time. By default this returns
+	 * the single iterator from {@link #getSynsetIterator(POS)}.
+	 */
+	public Iterator[] getSynsetIterators(POS pos, int parts) throws JWNLException {
+		return new Iterator[] {getSynsetIterator(pos)};
+	}
+
 	/**
 	 * Return the <code>Synset</code> at offset <code>offset</code> from the database.
 	 * @param pos The part-of-speech file to look in
@@ -112,6 +266,17 @@ public abstract class Dictionary implements Installable {
 	 */
 	public abstract Synset getSynsetAt(POS pos, long offset) throws JWNLException;
 
+	/**
+	 * Return the gloss of the synset at offset <var>offset</var>. This is used to load
+	 * the glosses of synsets that were created without them. By default it returns the
+	 * gloss of the synset returned by {@link #getSynsetAt(POS, long)}, so dictionaries
+	 * which create synsets without glosses must override it.
+	 */
+	public String getGloss(POS pos, long offset) throws JWNLException {
+		Synset synset = getSynsetAt(pos, offset);
+		return (synset == null) ? null : synset.getGloss();
+	}
+
 	/**
 	 * Return an Iterator over all the Exceptions in the database.
 	 * @param	pos	the part-of-speech
@@ -119,6 +284,16 @@ public abstract class Dictionary implements Installable {
 	 */
 	public abstract Iterator getExceptionIterator(POS pos) throws JWNLException;
 
+	/**
+	 * Return up to <var>parts</var> Iterators which between them cover all the Exceptions
+	 * of part-of-speech <var>pos</var>, so that they can be consumed by separate threads.
+	 * Each iterator should only be used by one thread at a time. By default this returns
+	 * the single iterator from {@link #getExceptionIterator(POS)}.
+	 */
+	public Iterator[] getExceptionIterators(POS pos, int parts) throws JWNLException {
+		return new Iterator[] {getExceptionIterator(pos)};
+	}
+
 	/**
 	 * Lookup <code>derivation</code> in the exceptions file of part-of-speech <code>
 	 * pos</code> and return an Exc object containing the results.
@@ -135,6 +310,11 @@ public abstract class Dictionary implements Installable {
 		return _morph;
 	}
 
+	/** Return the version of WordNet this dictionary holds. */
+	public Version getVersion() {
+		return (_version != null) ? _version : JWNL.getDefaultVersion();
+	}
+
 	/**
 	 * Main word lookup procedure. First try a normal lookup. If that doesn't work,
 	 * try looking up the stemmed form of the lemma.
@@ -146,8 +326,16 @@ public abstract class Dictionary implements Installable {
 	public IndexWord lookupIndexWord(POS pos, String lemma) throws JWNLException {
 		lemma = prepareQueryString(lemma);
 		IndexWord word = getIndexWord(pos, lemma);
-		if (word == null && getMorphologicalProcessor() != null) {
-			word = getMorphologicalProcessor().lookupBaseForm(pos, lemma);
+		if (word == null && getMorphologicalProcessor() instanceof DefaultMorphologicalProcessor) {
+			word = ((DefaultMorphologicalProcessor)getMorphologicalProcessor()).lookupBaseForm(this, pos, lemma);
+		} else if (word == null && getMorphologicalProcessor() != null) {
+			// other processors look words up in whichever dictionary is bound
+			Dictionary previous = bind(this);
+			try {
+				word = getMorphologicalProcessor().lookupBaseForm(pos, lemma);
+			} finally {
+				bind(previous);
+			}
 		}
 		return word;
 	}
@@ -168,6 +356,105 @@ public abstract class Dictionary implements Installable {
 		return set;
 	}
 	
+	/**
+	 * Return the (at most) <var>limit</var> lemmas of part-of-speech <var>pos</var> which start
+	 * with <var>prefix</var>, most frequent first. If <var>pos</var> is null, the lemmas of every
+	 * part-of-speech are completed. The prefix is converted to lower case but is not trimmed.
+	 * The first call for each part-of-speech builds its index (see {@link #getPrefixIndex(POS)});
+	 * later calls only use memory.
+	 */
+	public String[] complete(String prefix, POS pos, int limit) throws JWNLException {
+		return getPrefixIndex(pos).complete(prefix.toLowerCase(), limit);
+	}
+
+	/**
+	 * Return the index used to complete the lemmas of part-of-speech <var>pos</var>, or
+	 * of every part-of-speech if <var>pos</var> is null. The index is built from the index
+	 * words the first time it is requested.
+	 */
+	public PrefixIndex getPrefixIndex(POS pos) throws JWNLException {
+		Object key = (pos == null) ? (Object) this : pos;
+		synchronized (_prefixIndexes) {
+			PrefixIndex index = (PrefixIndex) _prefixIndexes.get(key);
+			if (index == null) {
+				index = PrefixIndex.build(this, (pos == null) ? POS.getAllPOS() : Collections.singletonList(pos));
+				_prefixIndexes.put(key, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Return the map which assigns a dense integer id to every synset in the
+	 * dictionary. Dictionaries which hold all their synsets in memory build the map
+	 * when they are installed; any other dictionary builds it the first time it is
+	 * requested, which reads every synset.
+	 */
+	public SynsetIdMap getSynsetIdMap() throws JWNLException {
+		SynsetIdMap map = _synsetIds;
+		if (map == null) {
+			synchronized (_synsetIdLock) {
+				if (_synsetIds == null) {
+					_synsetIds = SynsetIdMap.build(this);
+				}
+				map = _synsetIds;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Return the id of <var>synset</var>, or <code>SynsetIdMap.NO_ID</code>
+	 * if it does not have one.
+	 */
+	public int getSynsetId(Synset synset) throws JWNLException {
+		return getSynsetIdMap().getId(synset);
+	}
+
+	/**
+	 * Return the synset with id <var>id</var>.
+	 */
+	public Synset getSynsetById(int id) throws JWNLException {
+		SynsetIdMap map = getSynsetIdMap();
+		return getSynsetAt(map.getPOS(id), map.getOffset(id));
+	}
+
+	/**
+	 * Resolve the target of every pointer of every synset in the dictionary, so that following
+	 * a pointer never has to look its target up again. Targets are found using this
+	 * dictionary's {@link #getSynsetAt(POS, long)}, so this is only worthwhile for
+	 * dictionaries which hold all their synsets in memory, and should be done before the
+	 * dictionary is shared between threads.
+	 */
+	public void resolvePointers() throws JWNLException {
+		long start = System.currentTimeMillis();
+		int count = 0;
+		for (Iterator posItr = POS.getAllPOS().iterator(); posItr.hasNext();) {
+			for (Iterator itr = getSynsetIterator((POS) posItr.next()); itr.hasNext();) {
+				Pointer[] pointers = ((Synset) itr.next()).getPointers();
+				for (int i = 0; i < pointers.length; i++) {
+					Synset target = getSynsetAt(pointers[i].getTargetPOS(), pointers[i].getTargetOffset());
+					if (target != null) {
+						int index = pointers[i].getTargetIndex();
+						pointers[i].setTarget((index == 0) ? (PointerTarget) target : target.getWord(index - 1));
+						count++;
+					}
+				}
+			}
+		}
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_010",
+		    new Object[] {new Integer(count), new Long(System.currentTimeMillis() - start)});
+	}
+
+	/**
+	 * Return the graph which holds the whole of this dictionary in primitive arrays, or
+	 * null if this dictionary doesn't keep one. Code which walks large parts of the
+	 * graph can read its arrays directly instead of creating synsets.
+	 */
+	public WordNetGraph getGraph() {
+		return null;
+	}
+
 	/**
 	 * Gets the usage count for this offset/lemma combination. 
 	 * @param offset
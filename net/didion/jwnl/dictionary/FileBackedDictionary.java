@@ -5,12 +5,13 @@
 package net.didion.jwnl.dictionary;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
-import net.didion.jwnl.JWNL;
 import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.DictionaryElementType;
 import net.didion.jwnl.data.Exc;
@@ -19,9 +20,11 @@ import net.didion.jwnl.data.IndexWord;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.data.Synset;
 import net.didion.jwnl.data.Word;
+import net.didion.jwnl.dictionary.file.DictionaryFile;
 import net.didion.jwnl.dictionary.file.DictionaryFileType;
+import net.didion.jwnl.dictionary.file.DictionaryLineReader;
 import net.didion.jwnl.dictionary.file_manager.FileManager;
-import net.didion.jwnl.util.Grep;
+import net.didion.jwnl.dictionary.file_manager.FileManagerImpl;
 import net.didion.jwnl.util.MessageLog;
 import net.didion.jwnl.util.MessageLogLevel;
 import net.didion.jwnl.util.TokenizerParser;
@@ -52,12 +55,30 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 	public static final String SYNSET_WORD_CACHE_SIZE = "synset_word_cache_size";
 	/** Size of the exception cache. Overrides the default cache size */
 	public static final String EXCEPTION_WORD_CACHE_SIZE = "exception_word_cache_size";
-
 	/**
-	 * A sense map, key is offsetlemma, word is populated with lemma, usage, and sense key.
+	 * The value should be "true" or "false". If "true", every synset is parsed and cached, and the
+	 * synset ids are assigned (see {@link #getSynsetIdMap()}), before the dictionary is installed
+	 * (see {@link #preload(int)}). The default is "false".
 	 */
-	private Map senseMap;
-	
+	public static final String PRELOAD = "preload";
+	/** The number of threads used to preload the dictionary. The default is the number of processors. */
+	public static final String PRELOAD_THREADS = "preload_threads";
+	/**
+	 * The value should be "true" or "false". If "true", the targets of all pointers are resolved
+	 * before the dictionary is installed (see {@link Dictionary#resolvePointers()}). This should be
+	 * used with {@link #PRELOAD}. The default is "false".
+	 */
+	public static final String RESOLVE_POINTERS = "resolve_pointers";
+	/**
+	 * The value should be "true" or "false". If "true", the exception files are read into
+	 * memory when the dictionary is installed (see {@link #loadExceptions()}), so looking up
+	 * an exception never reads a file. The default is "true".
+	 */
+	public static final String LOAD_EXCEPTIONS = "load_exceptions";
+
+	/** The number of lines a file iterator reads ahead each time it opens a streamed file. */
+	private static final int LOOKAHEAD_LINES = 512;
+
 	/**
 	 * Construct a Dictionary that retrieves file data from <code>fileManager</code>.
 	 * A client can use this to create a Dictionary backed by a RemoteFileManager.
@@ -98,7 +119,6 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 		super(morph, enableCaching);
 		_db = manager;
 		_factory = factory;
-		senseMap = new HashMap();
 	}
 
 	/**
@@ -114,9 +134,8 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 		    (FileDictionaryElementFactory) ((Param)params.get(DICTIONARY_ELEMENT_FACTORY)).create();
 		boolean enableCaching =
 		    !params.containsKey(ENABLE_CACHING) || !((Param) params.get(ENABLE_CACHING)).getValue().equalsIgnoreCase("false");
-		install(manager, morph, factory, enableCaching);
-
-		FileBackedDictionary dictionary = (FileBackedDictionary)getInstance();
+		// the dictionary is only installed once it has been loaded, so no request sees it half loaded
+		FileBackedDictionary dictionary = new FileBackedDictionary(manager, morph, factory, enableCaching);
 		if (params.containsKey(CACHE_SIZE)) {
 			dictionary.setCacheCapacity(Integer.parseInt(((Param) params.get(CACHE_SIZE)).getValue()));
 		} else {
@@ -133,6 +152,253 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 				                            Integer.parseInt(((Param) params.get(EXCEPTION_WORD_CACHE_SIZE)).getValue()));
 			}
 		}
+
+		if (!params.containsKey(LOAD_EXCEPTIONS) || !((Param) params.get(LOAD_EXCEPTIONS)).getValue().equalsIgnoreCase("false")) {
+			dictionary.loadExceptions();
+		}
+		if (params.containsKey(PRELOAD) && ((Param) params.get(PRELOAD)).getValue().equalsIgnoreCase("true")) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			if (params.containsKey(PRELOAD_THREADS)) {
+				threads = Integer.parseInt(((Param) params.get(PRELOAD_THREADS)).getValue());
+			}
+			dictionary.preload(threads);
+			// every synset is cached now, so assigning the ids doesn't read the files again
+			dictionary.getSynsetIdMap();
+		}
+		if (params.containsKey(RESOLVE_POINTERS) && ((Param) params.get(RESOLVE_POINTERS)).getValue().equalsIgnoreCase("true")) {
+			dictionary.resolvePointers();
+		}
+		setDictionary(dictionary);
+	}
+
+	/**
+	 * The exceptions of each POS, keyed by their lemmas (with spaces, not underscores), if
+	 * they have been loaded.
+	 */
+	private volatile Map _exceptionTables = null;
+
+	/**
+	 * Read every exception file into a table of exceptions per part-of-speech. From then on
+	 * {@link #getException(POS, String)} is answered from the tables, whether or not the
+	 * derivation is an exception, and the exception cache is not used.
+	 */
+	public void loadExceptions() throws JWNLException {
+		long start = System.currentTimeMillis();
+		Map tables = new HashMap();
+		int size = 0;
+		for (Iterator posItr = POS.getAllPOS().iterator(); posItr.hasNext();) {
+			POS pos = (POS) posItr.next();
+			Map table = new HashMap();
+			for (Iterator itr = new ExceptionFileLookaheadIterator(pos, 0, Long.MAX_VALUE, false); itr.hasNext();) {
+				Exc exc = (Exc) itr.next();
+				// keep the first line for a lemma, which a search of the file would find
+				if (!table.containsKey(exc.getLemma())) {
+					table.put(exc.getLemma(), exc);
+				}
+			}
+			tables.put(pos, table);
+			size += table.size();
+		}
+		_exceptionTables = tables;
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_013",
+		    new Object[] {new Integer(size), new Long(System.currentTimeMillis() - start)});
+	}
+
+	/** The number of bytes of the data files to preload. */
+	private volatile long _preloadLength = 0;
+	/** The number of bytes of the data files that have been preloaded. */
+	private volatile long _preloaded = 0;
+	/** The time, in milliseconds, the last preload took. */
+	private volatile long _preloadTime = 0;
+
+	/**
+	 * Parse every synset in the data files and add them to the synset cache, which is grown
+	 * to hold them all. Each data file is split into <var>threads</var> byte ranges on line
+	 * boundaries, and the ranges are parsed in parallel, each by a single thread.
+	 * Progress is logged as each range is finished and can be checked using {@link #getPreloadProgress()}.
+	 * This does nothing if caching is not enabled.
+	 */
+	public void preload(int threads) throws JWNLException {
+		if (!isCachingEnabled()) {
+			_log.log(MessageLogLevel.WARN, "DICTIONARY_EXCEPTION_022");
+			return;
+		}
+		threads = Math.max(1, threads);
+		long start = System.currentTimeMillis();
+
+		// split the data files into ranges which start and end on line boundaries
+		List ranges = new ArrayList();
+		long length = 0;
+		for (Iterator itr = POS.getAllPOS().iterator(); itr.hasNext();) {
+			POS pos = (POS) itr.next();
+			try {
+				length += _db.getFileLength(pos, DictionaryFileType.DATA);
+				long[] bounds = getLineAlignedRanges(pos, DictionaryFileType.DATA, threads);
+				for (int i = 1; i < bounds.length; i++) {
+					ranges.add(new PreloadRange(pos, bounds[i - 1], bounds[i]));
+				}
+			} catch (IOException ex) {
+				throw new JWNLException("DICTIONARY_EXCEPTION_030", pos, ex);
+			}
+		}
+		_preloadLength = length;
+		_preloaded = 0;
+
+		// make sure none of the synsets are pushed out of the cache while we are loading them
+		int capacity = getCacheCapacity(DictionaryElementType.SYNSET);
+		setCacheCapacity(DictionaryElementType.SYNSET, Integer.MAX_VALUE);
+
+		PreloadWorker[] workers = new PreloadWorker[Math.min(threads, ranges.size())];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new PreloadWorker(ranges);
+			workers[i].start();
+		}
+		JWNLException exception = null;
+		for (int i = 0; i < workers.length; i++) {
+			try {
+				workers[i].join();
+			} catch (InterruptedException ex) {
+				exception = new JWNLException("DICTIONARY_EXCEPTION_030", workers[i].getName(), ex);
+			}
+			if (workers[i]._exception != null) {
+				exception = workers[i]._exception;
+			}
+		}
+
+		int size = getCacheSizes(DictionaryElementType.SYNSET);
+		setCacheCapacity(DictionaryElementType.SYNSET, Math.max(capacity, size));
+		if (exception != null) {
+			throw exception;
+		}
+		_preloadTime = System.currentTimeMillis() - start;
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_006",
+		    new Object[] {new Integer(size), new Long(_preloadTime), new Integer(workers.length)});
+	}
+
+	/**
+	 * Split a dictionary file into at most <var>parts</var> byte ranges of roughly equal
+	 * size, each of which starts and ends on a line boundary. The ranges are returned as
+	 * an array of boundaries, the <code>i</code>th range running from <code>bounds[i]</code>
+	 * up to (but not including) <code>bounds[i+1]</code>.
+	 */
+	private long[] getLineAlignedRanges(POS pos, DictionaryFileType fileType, int parts) throws IOException {
+		long fileLength = _db.getFileLength(pos, fileType);
+		List bounds = new ArrayList();
+		long from = 0;
+		bounds.add(new Long(from));
+		for (int i = 1; i <= parts && from < fileLength; i++) {
+			long to = fileLength * i / parts;
+			if (i < parts && to > from) {
+				// move the end of the range to the start of the next line
+				to = Math.min(fileLength, _db.getNextLinePointer(pos, fileType, to - 1));
+			}
+			if (to > from) {
+				bounds.add(new Long(to));
+				from = to;
+			}
+		}
+		long[] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ((Long) bounds.get(i)).longValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Return the boundaries of <var>parts</var> line aligned ranges of a dictionary
+	 * file, or null if the file is empty or cannot be split.
+	 */
+	private long[] getRangeBounds(POS pos, DictionaryFileType fileType, int parts) throws JWNLException {
+		try {
+			long[] bounds = getLineAlignedRanges(pos, fileType, Math.max(1, parts));
+			return (bounds.length < 2) ? null : bounds;
+		} catch (IOException ex) {
+			throw new JWNLException("DICTIONARY_EXCEPTION_008", new Object[]{pos, fileType}, ex);
+		}
+	}
+
+	/**
+	 * Return the fraction (between 0 and 1) of the data files that have been
+	 * preloaded by the current, or last, call to {@link #preload(int)}.
+	 */
+	public double getPreloadProgress() {
+		long length = _preloadLength;
+		return (length == 0) ? 0 : (double) _preloaded / length;
+	}
+
+	/** Return the time, in milliseconds, taken by the last completed call to {@link #preload(int)}. */
+	public long getPreloadTime() {
+		return _preloadTime;
+	}
+
+	/** A range of a data file, starting and ending on line boundaries. */
+	private static final class PreloadRange {
+		private POS _pos;
+		private long _start;
+		private long _end;
+
+		public PreloadRange(POS pos, long start, long end) {
+			_pos = pos;
+			_start = start;
+			_end = end;
+		}
+	}
+
+	/** Parses ranges of the data files, taken from a shared list, until there are none left. */
+	private final class PreloadWorker extends Thread {
+		private List _ranges;
+		private JWNLException _exception = null;
+
+		public PreloadWorker(List ranges) {
+			_ranges = ranges;
+		}
+
+		public void run() {
+			while (true) {
+				PreloadRange range;
+				synchronized (_ranges) {
+					if (_ranges.isEmpty()) return;
+					range = (PreloadRange) _ranges.remove(_ranges.size() - 1);
+				}
+				try {
+					preload(range);
+				} catch (JWNLException ex) {
+					_exception = ex;
+					return;
+				}
+			}
+		}
+
+		private void preload(PreloadRange range) throws JWNLException {
+			List keys = new ArrayList();
+			List synsets = new ArrayList();
+			long offset = range._start;
+			try {
+				while (offset < range._end) {
+					String line = _db.readLineAt(range._pos, DictionaryFileType.DATA, offset);
+					if (line == null) break;
+					long next = _db.getNextLinePointer(range._pos, DictionaryFileType.DATA, offset);
+					if (line.length() > 0 && !line.startsWith(DictionaryFile.COMMENT_HEADER)) {
+						keys.add(new POSKey(range._pos, offset));
+						Synset synset = _factory.createSynset(range._pos, line);
+						synset.setDictionary(FileBackedDictionary.this);
+						synsets.add(synset);
+					}
+					if (next <= offset) break;
+					offset = next;
+				}
+			} catch (IOException ex) {
+				throw new JWNLException("DICTIONARY_EXCEPTION_030", range._pos, ex);
+			}
+			// the caches aren't thread safe, so add each range's synsets in one go
+			synchronized (FileBackedDictionary.this) {
+				for (int i = 0; i < keys.size(); i++) {
+					cacheSynset((POSKey) keys.get(i), (Synset) synsets.get(i));
+				}
+				_preloaded += range._end - range._start;
+			}
+			_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_005", new Object[] {new Long(_preloaded), new Long(_preloadLength)});
+		}
 	}
 
 	public void close() {
@@ -156,6 +422,18 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 		return new IndexFileLookaheadIterator(pos);
 	}
 
+	public Iterator[] getIndexWordIterators(POS pos, int parts) throws JWNLException {
+		long[] bounds = getRangeBounds(pos, DictionaryFileType.INDEX, parts);
+		if (bounds == null) {
+			return super.getIndexWordIterators(pos, parts);
+		}
+		Iterator[] itrs = new Iterator[bounds.length - 1];
+		for (int i = 0; i < itrs.length; i++) {
+			itrs[i] = new IndexFileLookaheadIterator(pos, bounds[i], bounds[i + 1]);
+		}
+		return itrs;
+	}
+
 	public Iterator getIndexWordIterator(final POS pos, final String substring) throws JWNLException {
 		return new SubstringIndexFileLookaheadIterator(pos, prepareQueryString(substring));
 	}
@@ -188,7 +466,11 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 
     public IndexWord getRandomIndexWord(POS pos) throws JWNLException {
         try {
-            long offset = getFileManager().getRandomLinePointer(pos, DictionaryFileType.INDEX);
+            int count = getFileManager().getLineCount(pos, DictionaryFileType.INDEX);
+            if (count == 0) {
+                return null;
+            }
+            long offset = getFileManager().getLinePointer(pos, DictionaryFileType.INDEX, getRandom().nextInt(count));
             return parseAndCacheIndexWordLine(
                     pos, offset, getFileManager().readLineAt(pos, DictionaryFileType.INDEX, offset));
         } catch (IOException ex) {
@@ -198,6 +480,9 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 
 	private IndexWord parseAndCacheIndexWordLine(POS pos, long offset, String line) {
 		IndexWord word = _factory.createIndexWord(pos, line);
+		if (word != null) {
+			word.setDictionary(this);
+		}
 		if (isCachingEnabled() && word != null)
 			cacheIndexWord(new POSKey(pos, offset), word);
 		return word;
@@ -208,21 +493,34 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 	//
 
 	public Iterator getSynsetIterator(POS pos) {
-		return new FileLookaheadIterator(pos, DictionaryFileType.DATA) {
-			protected Object parseLine(POS pos, long offset, String line) {
-				try {
-                    return getSynset(pos, offset, line);
-                } catch (JWNLException ex) {
-                    throw new RuntimeException(ex);
-                }
-			}
-		};
+		return new SynsetFileLookaheadIterator(pos, 0, Long.MAX_VALUE);
+	}
+
+	public Iterator[] getSynsetIterators(POS pos, int parts) throws JWNLException {
+		long[] bounds = getRangeBounds(pos, DictionaryFileType.DATA, parts);
+		if (bounds == null) {
+			return super.getSynsetIterators(pos, parts);
+		}
+		Iterator[] itrs = new Iterator[bounds.length - 1];
+		for (int i = 0; i < itrs.length; i++) {
+			itrs[i] = new SynsetFileLookaheadIterator(pos, bounds[i], bounds[i + 1]);
+		}
+		return itrs;
 	}
 
 	public Synset getSynsetAt(POS pos, long offset) throws JWNLException {
 		return getSynset(pos, offset, null);
 	}
 
+	public String getGloss(POS pos, long offset) throws JWNLException {
+		try {
+			String line = getFileManager().readLineAt(pos, DictionaryFileType.DATA, offset);
+			return (line == null) ? null : _factory.parseGloss(pos, line);
+		} catch (IOException e) {
+			throw new JWNLException("DICTIONARY_EXCEPTION_005", new Long(offset), e);
+		}
+	}
+
 	private Synset getSynset(POS pos, long offset, String line) throws JWNLException {
 		POSKey key = new POSKey(pos, offset);
 		Synset synset = getCachedSynset(key);
@@ -233,6 +531,7 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
                 }
                 synset = _factory.createSynset(pos, line);
                 synset.getWords();
+                synset.setDictionary(this);
                 
                 if (synset != null) {
                     cacheSynset(key, synset);
@@ -249,23 +548,30 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 	//
 
 	public Iterator getExceptionIterator(POS pos) {
-		return new FileLookaheadIterator(pos, DictionaryFileType.EXCEPTION) {
-			protected Object parseLine(POS pos, long offset, String line) {
-				Exc exc = null;
-				if (isCachingEnabled()) {
-					exc = getCachedException(new POSKey(pos, offset));
-				}
-				if (exc == null) {
-					exc = parseAndCacheExceptionLine(pos, offset, line);
-				}
-				return exc;
-			}
-		};
+		return new ExceptionFileLookaheadIterator(pos, 0, Long.MAX_VALUE);
+	}
+
+	public Iterator[] getExceptionIterators(POS pos, int parts) throws JWNLException {
+		long[] bounds = getRangeBounds(pos, DictionaryFileType.EXCEPTION, parts);
+		if (bounds == null) {
+			return super.getExceptionIterators(pos, parts);
+		}
+		Iterator[] itrs = new Iterator[bounds.length - 1];
+		for (int i = 0; i < itrs.length; i++) {
+			itrs[i] = new ExceptionFileLookaheadIterator(pos, bounds[i], bounds[i + 1]);
+		}
+		return itrs;
 	}
 
 	public Exc getException(POS pos, String derivation) throws JWNLException {
 		derivation = prepareQueryString(derivation);
 
+		Map tables = _exceptionTables;
+		if (tables != null) {
+			Map table = (Map) tables.get(pos);
+			return (table == null) ? null : (Exc) table.get(derivation.replace('_', ' '));
+		}
+
 		Exc exc = null;
 		POSKey key = null;
 		if (derivation != null) {
@@ -306,16 +612,47 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 		private long _currentOffset = -1;
 		private long _nextOffset = 0;
 
+		/** The offset at which iteration stops. */
+		private long _endOffset = Long.MAX_VALUE;
+
 		private boolean _more = true;
 
+		/**
+		 * True if the lines are streamed through a {@link DictionaryLineReader}, rather than each
+		 * line being read from the file manager. The reader is only open while a batch of lines is
+		 * read ahead, so an iterator which is abandoned part way doesn't hold a file open.
+		 */
+		private boolean _stream = false;
+		/** The lines read ahead. */
+		private String[] _lines = null;
+		/** The offset of the line following each line read ahead. */
+		private long[] _lineEnds = null;
+		private int _lineCount = 0;
+		/** The index of the next line read ahead to return. */
+		private int _lineIndex = 0;
+
 		protected POS _pos;
 		protected DictionaryFileType _fileType;
 
 		public FileLookaheadIterator(POS pos, DictionaryFileType fileType) {
+			this(pos, fileType, 0, Long.MAX_VALUE);
+		}
+
+		/**
+		 * Create an iterator over the lines which start at or after <var>start</var> and
+		 * before <var>end</var>. <var>start</var> must be the start of a line.
+		 */
+		public FileLookaheadIterator(POS pos, DictionaryFileType fileType, long start, long end) {
 			_pos = pos;
 			_fileType = fileType;
+			_endOffset = end;
 			try {
-                _nextOffset = _db.getFirstLinePointer(pos, fileType);
+                _nextOffset = Math.max(start, _db.getFirstLinePointer(pos, fileType));
+                if (isSequential() && _db instanceof FileManagerImpl) {
+                    _stream = true;
+                    _lines = new String[LOOKAHEAD_LINES];
+                    _lineEnds = new long[LOOKAHEAD_LINES];
+                }
                 nextLine();
             } catch (IOException ex) {
 				_log.log(MessageLogLevel.WARN, "DICTIONARY_EXCEPTION_007", new Object[]{_pos, _fileType});
@@ -324,6 +661,15 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 
 		protected abstract Object parseLine(POS pos, long offset, String line);
 
+		/**
+		 * Return true if every line is returned in order, in which case a local file is
+		 * streamed through a {@link DictionaryLineReader} rather than reading each line
+		 * at its offset. Iterators that skip lines should override this to return false.
+		 */
+		protected boolean isSequential() {
+			return true;
+		}
+
 		public final Object next() {
 			if (hasNext()) {
 				Object returnVal = parseLine(_pos, _currentOffset, _currentLine);
@@ -348,14 +694,73 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 		/** Read the next line in the iterated file.*/
 		protected final void nextLine() {
             try {
-                _currentLine = _db.readLineAt(_pos, _fileType, _nextOffset);
-                if (_currentLine != null) {
-                    nextOffset();
+                if (_nextOffset < 0 || _nextOffset >= _endOffset) {
+                    end();
                     return;
                 }
+                if (_stream) {
+                    if (_lineIndex == _lineCount) {
+                        readAhead();
+                    }
+                    if (_lineIndex < _lineCount) {
+                        _currentLine = _lines[_lineIndex];
+                        _lines[_lineIndex] = null;
+                        _currentOffset = _nextOffset;
+                        _nextOffset = _lineEnds[_lineIndex++];
+                        return;
+                    }
+                } else {
+                    _currentLine = _db.readLineAt(_pos, _fileType, _nextOffset);
+                    if (_currentLine != null) {
+                        nextOffset();
+                        return;
+                    }
+                }
             } catch (Exception ex) {
             }
-            _more = false;
+            end();
+		}
+
+		/**
+		 * Open the file at the next line, read up to {@link #LOOKAHEAD_LINES} lines which start
+		 * before the end offset, and close it again.
+		 */
+		private void readAhead() throws IOException {
+			_lineCount = 0;
+			_lineIndex = 0;
+			DictionaryLineReader reader = ((FileManagerImpl)_db).getLineReader(_pos, _fileType, _nextOffset);
+			if (reader == null) {
+				return;
+			}
+			try {
+				long offset = _nextOffset;
+				String line;
+				while (_lineCount < _lines.length && offset < _endOffset && (line = reader.readLine()) != null) {
+					_lines[_lineCount] = line;
+					offset = reader.getOffset();
+					_lineEnds[_lineCount++] = offset;
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		/** Stop the iteration, dropping any lines read ahead. */
+		private void end() {
+			_more = false;
+			for (int i = _lineIndex; i < _lineCount; i++) {
+				_lines[i] = null;
+			}
+			_lineCount = 0;
+			_lineIndex = 0;
+		}
+
+		/** Continue the iteration from the line at <var>offset</var>. A negative offset ends it. */
+		protected final void seek(long offset) {
+			end();
+			_more = true;
+			_nextOffset = offset;
+			nextLine();
 		}
 
 		protected final void nextOffset() throws JWNLException {
@@ -377,6 +782,10 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 			super(pos, DictionaryFileType.INDEX);
 		}
 
+		public IndexFileLookaheadIterator(POS pos, long start, long end) {
+			super(pos, DictionaryFileType.INDEX, start, end);
+		}
+
 		protected Object parseLine(POS pos, long offset, String line) {
 			IndexWord word = null;
 			if (isCachingEnabled())
@@ -387,33 +796,113 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 		}
 	}
 
+	private class SynsetFileLookaheadIterator extends FileLookaheadIterator {
+		public SynsetFileLookaheadIterator(POS pos, long start, long end) {
+			super(pos, DictionaryFileType.DATA, start, end);
+		}
+
+		protected Object parseLine(POS pos, long offset, String line) {
+			try {
+				return getSynset(pos, offset, line);
+			} catch (JWNLException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+
+	private class ExceptionFileLookaheadIterator extends FileLookaheadIterator {
+		private boolean _cache = true;
+
+		public ExceptionFileLookaheadIterator(POS pos, long start, long end) {
+			super(pos, DictionaryFileType.EXCEPTION, start, end);
+		}
+
+		/** Create an iterator which only uses the exception cache if <var>cache</var> is true. */
+		public ExceptionFileLookaheadIterator(POS pos, long start, long end, boolean cache) {
+			this(pos, start, end);
+			_cache = cache;
+		}
+
+		protected Object parseLine(POS pos, long offset, String line) {
+			if (!_cache) {
+				return _factory.createExc(pos, line);
+			}
+			Exc exc = null;
+			if (isCachingEnabled()) {
+				exc = getCachedException(new POSKey(pos, offset));
+			}
+			if (exc == null) {
+				exc = parseAndCacheExceptionLine(pos, offset, line);
+			}
+			return exc;
+		}
+	}
+
+	/**
+	 * Iterates over the index words whose lemmas contain a substring. If the file manager has
+	 * a substring index, all the matching lines are found when the iterator is created;
+	 * otherwise the file manager finds each matching line in turn.
+	 */
 	private class SubstringIndexFileLookaheadIterator extends IndexFileLookaheadIterator {
 		private String _substring = null;
+		/** The offsets of the matching lines, or null if they are found one at a time. */
+		private long[] _matches = null;
+		/** The index of the next match. */
+		private int _match = 0;
 
 		public SubstringIndexFileLookaheadIterator(POS pos, String substring) throws JWNLException {
 			super(pos);
-			_substring = substring;
-			nextOffset();
+			// the lemmas in the index files have underscores in place of spaces
+			_substring = substring.replace(' ', '_');
+			if (_db instanceof FileManagerImpl) {
+				_matches = ((FileManagerImpl)_db).getMatchingLinePointers(_pos, DictionaryFileType.INDEX, _substring);
+			}
+			// the first line was read before the substring was set, so start again from the first match
+			if (_matches != null) {
+				seek(nextMatch());
+				return;
+			}
+			try {
+				long first = getFileManager().getFirstLinePointer(_pos, DictionaryFileType.INDEX);
+				seek((first < 0) ? -1 : getMatchingOffset(first));
+			} catch (IOException ex) {
+				throw new JWNLException("DICTIONARY_EXCEPTION_008", new Object[]{_pos, _fileType}, ex);
+			}
+		}
+
+		protected boolean isSequential() {
+			return false;
 		}
 
 		protected long getNextOffset(long currentOffset) throws JWNLException {
+			if (_substring == null) {
+				return -1;
+			}
+			if (_matches != null) {
+				return nextMatch();
+			}
 			try {
-				return getFileManager().getMatchingLinePointer(_pos, DictionaryFileType.INDEX, currentOffset, _substring);
+				return getMatchingOffset(getFileManager().getNextLinePointer(_pos, DictionaryFileType.INDEX, currentOffset));
 			} catch (IOException ex) {
 				throw new JWNLException("DICTIONARY_EXCEPTION_008", new Object[]{_pos, _fileType}, ex);
 			}
 		}
+
+		private long nextMatch() {
+			return (_match < _matches.length) ? _matches[_match++] : -1;
+		}
+
+		private long getMatchingOffset(long offset) throws IOException {
+			return getFileManager().getMatchingLinePointer(_pos, DictionaryFileType.INDEX, offset, _substring);
+		}
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
 	public int getUsageCount(long offset, String lemma) {
-		int count = 0;
 		Word w = getIndexLineWord(offset, lemma);
-		
-		count = w.getUsageCount();
-		return count;
+		return (w == null) ? 0 : w.getUsageCount();
 	}
 
 	/**
@@ -421,42 +910,31 @@ public class FileBackedDictionary extends AbstractCachingDictionary {
 	 */
 	public String getSenseKey(long offset, String lemma) {
 		Word w = getIndexLineWord(offset, lemma);
-		String key = w.getSenseKey();
-		return key;
+		return (w == null) ? null : w.getSenseKey();
 	}
 	
 	/**
      * Creates a word from an index line in the index.sense (or sense.idx < wordnet 2.1).
      * @param offset - the synset offset
      * @param lemma - the matching sense lemma
-     * @return an undefined word
+     * @return an undefined word, or null if there is no such sense
 	 */
 	private Word getIndexLineWord(long offset, String lemma) {
 		Word word = null;
 		try {
 			lemma = lemma.toLowerCase();
-			String indexLine = Grep.grep("" + offset, lemma);
-			TokenizerParser tokenizer = new TokenizerParser(indexLine, " ");
-			String senseKey = tokenizer.nextToken();
-			tokenizer.nextLong();
-			tokenizer.nextInt();
-			String senseCount = tokenizer.nextToken();
-            String[] sc = null;
-            if (JWNL.getVersion().getNumber() < 2.1 && JWNL.getOS().equals(JWNL.WINDOWS)) {
-                sc = senseCount.split("\\r\\n");
-            } else { 
-                sc = senseCount.split("\\n");
-            }
-            if (sc != null) {
-                int count = Integer.parseInt(sc[0]);
-    		    senseCount.trim();
-              
-                word = new Word(lemma, senseKey, count);
-    			senseMap.put(offset + lemma, word);
-            }
-        } catch(IOException ioe) {
-            ioe.printStackTrace();
-        }
+			String indexLine = getFileManager().getSenseIndexLine(offset, lemma);
+			if (indexLine != null) {
+				TokenizerParser tokenizer = new TokenizerParser(indexLine, " ");
+				String senseKey = tokenizer.nextToken();
+				tokenizer.nextLong();
+				tokenizer.nextInt();
+				int count = tokenizer.nextInt();
+				word = new Word(lemma, senseKey, count);
+			}
+		} catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
 		return word;
 	}
 	
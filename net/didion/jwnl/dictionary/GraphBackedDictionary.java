@@ -0,0 +1,238 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.DictionaryElementType;
+import net.didion.jwnl.data.Exc;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.dictionary.graph.WordNetGraph;
+import net.didion.jwnl.dictionary.image.DictionaryImage;
+import net.didion.jwnl.util.factory.Param;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A <code>Dictionary</code> which holds the whole of WordNet in memory as a {@link WordNetGraph}.
+ * The graph is copied from another dictionary when this one is installed, after which no files
+ * are read. Synsets are light views of the graph created when they are looked up, so there is
+ * nothing to cache.
+ * <p>
+ * When installed from a properties file the graph is read from a dictionary image (see
+ * {@link ImageBackedDictionary}); {@link #install(Dictionary)} copies any installed dictionary.
+ */
+public class GraphBackedDictionary extends Dictionary {
+	/**
+	 * <code>MorphologicalProcessor</code> class install parameter. The value should be the
+	 * class of <code>MorphologicalProcessor</code> to use.
+	 */
+	public static final String MORPH = "morphological_processor";
+	/** The path of the dictionary image file the graph is read from. */
+	public static final String PATH = "dictionary_path";
+
+	private WordNetGraph _graph = null;
+
+	public GraphBackedDictionary() {
+	}
+
+	/**
+	 * Copy <var>source</var> into a graph and install a <code>GraphBackedDictionary</code> in
+	 * its place, using the same morphological processor. The source dictionary is not closed.
+	 */
+	public static void install(Dictionary source) throws JWNLException {
+		setDictionary(new GraphBackedDictionary(WordNetGraph.build(source), source.getMorphologicalProcessor()));
+	}
+
+	/** Read the graph from the dictionary image at <var>path</var> and install it. */
+	public static void install(String path, MorphologicalProcessor morph) throws JWNLException {
+		DictionaryImage image;
+		try {
+			image = new DictionaryImage(new File(path));
+		} catch (IOException ex) {
+			throw new JWNLException("DICTIONARY_EXCEPTION_031", path, ex);
+		}
+		try {
+			WordNetGraph graph = WordNetGraph.build(new ImageBackedDictionary(image, null, false));
+			setDictionary(new GraphBackedDictionary(graph, morph));
+		} finally {
+			image.close();
+		}
+	}
+
+	/**
+	 * Install a <code>GraphBackedDictionary</code> from a map of parameters. The parameters are chosen
+	 * from the static variables above.
+	 */
+	public void install(Map params) throws JWNLException {
+		Param param = (Param) params.get(MORPH);
+		MorphologicalProcessor morph = (param == null) ? null : (MorphologicalProcessor) param.create();
+		install(((Param) params.get(PATH)).getValue(), morph);
+	}
+
+	private GraphBackedDictionary(WordNetGraph graph, MorphologicalProcessor morph) {
+		super(morph);
+		_graph = graph;
+		_graph.setDictionary(this);
+	}
+
+	public WordNetGraph getGraph() {
+		return _graph;
+	}
+
+	public SynsetIdMap getSynsetIdMap() {
+		return _graph.getSynsetIdMap();
+	}
+
+	public Synset getSynsetById(int id) {
+		return _graph.getSynset(id);
+	}
+
+	public IndexWord getIndexWord(POS pos, String lemma) {
+		int index = _graph.findIndexWord(pos, prepareQueryString(lemma));
+		return (index < 0) ? null : createIndexWord(pos, index);
+	}
+
+	public IndexWord getRandomIndexWord(POS pos) {
+		int count = _graph.getIndexWordCount(pos);
+		return (count == 0) ? null : createIndexWord(pos, getRandom().nextInt(count));
+	}
+
+	public Iterator getIndexWordIterator(POS pos) {
+		return getIndexWordIterators(pos, 1)[0];
+	}
+
+	public Iterator[] getIndexWordIterators(POS pos, int parts) {
+		return createIterators(pos, DictionaryElementType.INDEX_WORD, _graph.getIndexWordCount(pos), parts);
+	}
+
+	public Iterator getIndexWordIterator(POS pos, String substring) {
+		final String s = prepareQueryString(substring);
+		return new GraphIterator(pos, DictionaryElementType.INDEX_WORD, 0, _graph.getIndexWordCount(pos)) {
+			protected boolean accept(int index) {
+				return _graph.createIndexWord(_pos, index).getLemma().indexOf(s) != -1;
+			}
+		};
+	}
+
+	public Synset getSynsetAt(POS pos, long offset) {
+		int id = _graph.getSynsetIdMap().getId(pos, offset);
+		return (id == SynsetIdMap.NO_ID) ? null : _graph.getSynset(id);
+	}
+
+	public String getGloss(POS pos, long offset) {
+		int id = _graph.getSynsetIdMap().getId(pos, offset);
+		return (id == SynsetIdMap.NO_ID) ? null : _graph.getGloss(id);
+	}
+
+	public Iterator getSynsetIterator(POS pos) {
+		return getSynsetIterators(pos, 1)[0];
+	}
+
+	public Iterator[] getSynsetIterators(POS pos, int parts) {
+		return createIterators(pos, DictionaryElementType.SYNSET, _graph.getSynsetIdMap().getSize(pos), parts);
+	}
+
+	public Exc getException(POS pos, String derivation) {
+		int index = _graph.findException(pos, prepareQueryString(derivation));
+		return (index < 0) ? null : _graph.createExc(pos, index);
+	}
+
+	public Iterator getExceptionIterator(POS pos) {
+		return getExceptionIterators(pos, 1)[0];
+	}
+
+	public Iterator[] getExceptionIterators(POS pos, int parts) {
+		return createIterators(pos, DictionaryElementType.EXCEPTION, _graph.getExceptionCount(pos), parts);
+	}
+
+	public int getUsageCount(long offset, String lemma) {
+		return _graph.getUsageCount(offset, lemma);
+	}
+
+	public String getSenseKey(long offset, String lemma) {
+		return _graph.getSenseKey(offset, lemma);
+	}
+
+	public void close() {
+	}
+
+	/** Create the index word at <var>index</var>, which loads its senses from this dictionary. */
+	private IndexWord createIndexWord(POS pos, int index) {
+		IndexWord word = _graph.createIndexWord(pos, index);
+		word.setDictionary(this);
+		return word;
+	}
+
+	/** Split the <var>count</var> elements of a part-of-speech into at most <var>parts</var> iterators. */
+	private Iterator[] createIterators(POS pos, DictionaryElementType type, int count, int parts) {
+		parts = Math.max(1, Math.min(parts, count));
+		Iterator[] itrs = new Iterator[parts];
+		for (int i = 0; i < parts; i++) {
+			itrs[i] = new GraphIterator(pos, type, (int) ((long) count * i / parts), (int) ((long) count * (i + 1) / parts));
+		}
+		return itrs;
+	}
+
+	/**
+	 * Iterates over a range of the synsets, index words or exceptions of a part-of-speech,
+	 * creating each element as it is returned.
+	 */
+	private class GraphIterator implements Iterator {
+		protected POS _pos;
+		private DictionaryElementType _type;
+		private int _next;
+		private int _end;
+
+		public GraphIterator(POS pos, DictionaryElementType type, int start, int end) {
+			_pos = pos;
+			_type = type;
+			_next = start;
+			_end = end;
+			skip();
+		}
+
+		/** Return true if the element at <var>index</var> should be returned by the iterator. */
+		protected boolean accept(int index) {
+			return true;
+		}
+
+		private void skip() {
+			while (_next < _end && !accept(_next)) {
+				_next++;
+			}
+		}
+
+		public boolean hasNext() {
+			return _next < _end;
+		}
+
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int index = _next++;
+			Object obj;
+			if (_type == DictionaryElementType.SYNSET) {
+				obj = _graph.getSynset(_graph.getSynsetIdMap().getFirstId(_pos) + index);
+			} else if (_type == DictionaryElementType.INDEX_WORD) {
+				obj = createIndexWord(_pos, index);
+			} else {
+				obj = _graph.createExc(_pos, index);
+			}
+			skip();
+			return obj;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
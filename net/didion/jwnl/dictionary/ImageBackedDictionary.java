@@ -0,0 +1,325 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.DictionaryElementType;
+import net.didion.jwnl.data.Exc;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.dictionary.image.DictionaryImage;
+import net.didion.jwnl.util.MessageLog;
+import net.didion.jwnl.util.MessageLogLevel;
+import net.didion.jwnl.util.factory.Param;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A <code>Dictionary</code> backed by a memory mapped {@link DictionaryImage}. Opening the
+ * image only reads its header; elements are decoded from the mapped bytes when they are
+ * looked up, and (if caching is enabled) cached like those of a <code>FileBackedDictionary</code>.
+ * An image can be created from any other dictionary using
+ * {@link net.didion.jwnl.dictionary.image.DictionaryImageWriter}.
+ */
+public class ImageBackedDictionary extends AbstractCachingDictionary {
+	private static final MessageLog _log = new MessageLog(ImageBackedDictionary.class);
+	/**
+	 * <code>MorphologicalProcessor</code> class install parameter. The value should be the
+	 * class of <code>MorphologicalProcessor</code> to use.
+	 */
+	public static final String MORPH = "morphological_processor";
+	/** The path of the dictionary image file. */
+	public static final String PATH = "dictionary_path";
+	/** The value should be "true" or "false". The default is "true". */
+	public static final String ENABLE_CACHING = "enable_caching";
+	/** The default cache size. */
+	public static final String CACHE_SIZE = "cache_size";
+	/**
+	 * The value should be "true" or "false". If "true", synsets are created without their
+	 * glosses, which are read from the image when they are first used. The default is "false".
+	 */
+	public static final String LAZY_GLOSSES = "lazy_glosses";
+
+	private DictionaryImage _image = null;
+	private boolean _lazyGlosses = false;
+
+	public ImageBackedDictionary() {
+	}
+
+	public static void install(String path, MorphologicalProcessor morph) throws JWNLException {
+		install(path, morph, true);
+	}
+
+	public static void install(String path, MorphologicalProcessor morph, boolean enableCaching) throws JWNLException {
+		DictionaryImage image;
+		try {
+			image = new DictionaryImage(new File(path));
+		} catch (IOException ex) {
+			throw new JWNLException("DICTIONARY_EXCEPTION_031", path, ex);
+		}
+		setDictionary(new ImageBackedDictionary(image, morph, enableCaching));
+	}
+
+	/**
+	 * Install an <code>ImageBackedDictionary</code> from a map of parameters. The parameters are chosen
+	 * from the static variables above.
+	 */
+	public void install(Map params) throws JWNLException {
+		Param param = (Param) params.get(MORPH);
+		MorphologicalProcessor morph = (param == null) ? null : (MorphologicalProcessor) param.create();
+		boolean enableCaching =
+		    !params.containsKey(ENABLE_CACHING) || !((Param) params.get(ENABLE_CACHING)).getValue().equalsIgnoreCase("false");
+		install(((Param) params.get(PATH)).getValue(), morph, enableCaching);
+		ImageBackedDictionary dictionary = (ImageBackedDictionary) getInstance();
+		if (params.containsKey(CACHE_SIZE)) {
+			dictionary.setCacheCapacity(Integer.parseInt(((Param) params.get(CACHE_SIZE)).getValue()));
+		}
+		if (params.containsKey(LAZY_GLOSSES)) {
+			dictionary.setLazyGlosses(((Param) params.get(LAZY_GLOSSES)).getValue().equalsIgnoreCase("true"));
+		}
+	}
+
+	ImageBackedDictionary(DictionaryImage image, MorphologicalProcessor morph, boolean enableCaching) {
+		super(morph, enableCaching);
+		_image = image;
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_008", new Object[] {image.getFile(), new Integer(image.length())});
+	}
+
+	/**
+	 * If <var>lazyGlosses</var> is true, synsets are created without their glosses, which
+	 * are only read from the image when they are first used.
+	 */
+	public void setLazyGlosses(boolean lazyGlosses) {
+		_lazyGlosses = lazyGlosses;
+	}
+
+	public boolean isLazyGlosses() {
+		return _lazyGlosses;
+	}
+
+	/** Return the image that backs this dictionary. */
+	public DictionaryImage getImage() {
+		return _image;
+	}
+
+	public IndexWord getIndexWord(POS pos, String lemma) throws JWNLException {
+		lemma = prepareQueryString(lemma);
+		IndexWord word = null;
+		if (lemma.length() > 0) {
+			if (isCachingEnabled()) {
+				word = getCachedIndexWord(new POSKey(pos, lemma));
+			}
+			if (word == null) {
+				int index = _image.findIndexWord(pos, lemma);
+				if (index >= 0) {
+					word = getIndexWordAt(pos, index, lemma);
+				}
+			}
+		}
+		return word;
+	}
+
+	public IndexWord getRandomIndexWord(POS pos) throws JWNLException {
+		int count = _image.getIndexWordCount(pos);
+		return (count == 0) ? null : getIndexWordAt(pos, getRandom().nextInt(count));
+	}
+
+	public Iterator getIndexWordIterator(POS pos) {
+		return getIndexWordIterators(pos, 1)[0];
+	}
+
+	public Iterator[] getIndexWordIterators(POS pos, int parts) {
+		return createIterators(pos, DictionaryElementType.INDEX_WORD, _image.getIndexWordCount(pos), parts);
+	}
+
+	public Iterator getIndexWordIterator(POS pos, String substring) {
+		final String s = prepareQueryString(substring);
+		return new ImageIterator(pos, DictionaryElementType.INDEX_WORD, 0, _image.getIndexWordCount(pos)) {
+			protected boolean accept(int index) {
+				return _image.getIndexWordLemma(_pos, index).indexOf(s) != -1;
+			}
+		};
+	}
+
+	public Synset getSynsetAt(POS pos, long offset) {
+		Synset synset = null;
+		if (isCachingEnabled()) {
+			synset = getCachedSynset(new POSKey(pos, offset));
+		}
+		if (synset == null) {
+			int index = _image.findSynset(pos, offset);
+			if (index >= 0) {
+				synset = getSynsetAt(pos, index, offset);
+			}
+		}
+		return synset;
+	}
+
+	public String getGloss(POS pos, long offset) {
+		return _image.getGloss(pos, offset);
+	}
+
+	public Iterator getSynsetIterator(POS pos) {
+		return getSynsetIterators(pos, 1)[0];
+	}
+
+	public Iterator[] getSynsetIterators(POS pos, int parts) {
+		return createIterators(pos, DictionaryElementType.SYNSET, _image.getSynsetCount(pos), parts);
+	}
+
+	public Exc getException(POS pos, String derivation) {
+		derivation = prepareQueryString(derivation);
+		Exc exc = null;
+		if (isCachingEnabled()) {
+			exc = getCachedException(new POSKey(pos, derivation));
+		}
+		if (exc == null) {
+			int index = _image.findException(pos, derivation);
+			if (index >= 0) {
+				exc = getExceptionAt(pos, index, derivation);
+			}
+		}
+		return exc;
+	}
+
+	public Iterator getExceptionIterator(POS pos) {
+		return getExceptionIterators(pos, 1)[0];
+	}
+
+	public Iterator[] getExceptionIterators(POS pos, int parts) {
+		return createIterators(pos, DictionaryElementType.EXCEPTION, _image.getExceptionCount(pos), parts);
+	}
+
+	public int getUsageCount(long offset, String lemma) {
+		return _image.getUsageCount(offset, lemma);
+	}
+
+	public String getSenseKey(long offset, String lemma) {
+		return _image.getSenseKey(offset, lemma);
+	}
+
+	public void close() {
+		_image.close();
+	}
+
+	private IndexWord getIndexWordAt(POS pos, int index) {
+		return getIndexWordAt(pos, index, _image.getIndexWordLemma(pos, index));
+	}
+
+	/**
+	 * Return the <var>index</var>th index word, whose lemma is <var>lemma</var>. Index words
+	 * are cached under their lemmas, so that {@link #getIndexWord(POS, String)} finds them
+	 * without searching the image.
+	 */
+	private IndexWord getIndexWordAt(POS pos, int index, String lemma) {
+		POSKey key = new POSKey(pos, lemma);
+		IndexWord word = isCachingEnabled() ? getCachedIndexWord(key) : null;
+		if (word == null) {
+			word = _image.createIndexWord(pos, index);
+			word.setDictionary(this);
+			if (isCachingEnabled()) {
+				cacheIndexWord(key, word);
+			}
+		}
+		return word;
+	}
+
+	private Synset getSynsetAt(POS pos, int index, long offset) {
+		POSKey key = new POSKey(pos, offset);
+		Synset synset = isCachingEnabled() ? getCachedSynset(key) : null;
+		if (synset == null) {
+			synset = _image.createSynset(pos, index, _lazyGlosses);
+			synset.setDictionary(this);
+			if (isCachingEnabled()) {
+				cacheSynset(key, synset);
+			}
+		}
+		return synset;
+	}
+
+	private Exc getExceptionAt(POS pos, int index) {
+		return getExceptionAt(pos, index, _image.getExceptionLemma(pos, index));
+	}
+
+	/** Return the <var>index</var>th exception, whose derivation is <var>derivation</var>, cached under the derivation. */
+	private Exc getExceptionAt(POS pos, int index, String derivation) {
+		POSKey key = new POSKey(pos, derivation);
+		Exc exc = isCachingEnabled() ? getCachedException(key) : null;
+		if (exc == null) {
+			exc = _image.createExc(pos, index);
+			if (isCachingEnabled()) {
+				cacheException(key, exc);
+			}
+		}
+		return exc;
+	}
+
+	/** Split the <var>count</var> elements of a table into at most <var>parts</var> iterators. */
+	private Iterator[] createIterators(POS pos, DictionaryElementType type, int count, int parts) {
+		parts = Math.max(1, Math.min(parts, count));
+		Iterator[] itrs = new Iterator[parts];
+		for (int i = 0; i < parts; i++) {
+			itrs[i] = new ImageIterator(pos, type, (int) ((long) count * i / parts), (int) ((long) count * (i + 1) / parts));
+		}
+		return itrs;
+	}
+
+	/** Iterates over a range of one of the image's tables, decoding each element as it is returned. */
+	private class ImageIterator implements Iterator {
+		protected POS _pos;
+		private DictionaryElementType _type;
+		private int _next;
+		private int _end;
+
+		public ImageIterator(POS pos, DictionaryElementType type, int start, int end) {
+			_pos = pos;
+			_type = type;
+			_next = start;
+			_end = end;
+			skip();
+		}
+
+		/** Return true if the element at <var>index</var> should be returned by the iterator. */
+		protected boolean accept(int index) {
+			return true;
+		}
+
+		private void skip() {
+			while (_next < _end && !accept(_next)) {
+				_next++;
+			}
+		}
+
+		public boolean hasNext() {
+			return _next < _end;
+		}
+
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int index = _next++;
+			Object obj;
+			if (_type == DictionaryElementType.SYNSET) {
+				obj = getSynsetAt(_pos, index, _image.getSynsetOffset(_pos, index));
+			} else if (_type == DictionaryElementType.INDEX_WORD) {
+				obj = getIndexWordAt(_pos, index);
+			} else {
+				obj = getExceptionAt(_pos, index);
+			}
+			skip();
+			return obj;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -18,6 +18,7 @@ import net.didion.jwnl.dictionary.file.ObjectDictionaryFile;
 import net.didion.jwnl.util.factory.Param;
 import net.didion.jwnl.util.MessageLog;
 import net.didion.jwnl.util.MessageLogLevel;
+import net.didion.jwnl.util.TrigramIndex;
 
 import java.util.*;
 
@@ -39,10 +40,23 @@ public class MapBackedDictionary extends Dictionary {
 	public static final String FILE_TYPE = "file_type";
 	/** The path of the dictionary files */
 	public static final String PATH = "dictionary_path";
-    /** Random number generator used by getRandomIndexWord() */
-    private static final Random _rand = new Random(new Date().getTime());
+	/**
+	 * The value should be "true" or "false". If "true", the targets of all pointers are resolved
+	 * once the dictionary is loaded (see {@link Dictionary#resolvePointers()}). The default is "false".
+	 */
+	public static final String RESOLVE_POINTERS = "resolve_pointers";
+	/**
+	 * The value should be "true" or "false". If "true", a trigram index of the lemmas of each
+	 * part-of-speech is built once the dictionary is loaded, and used to answer substring
+	 * queries instead of checking every index word. The default is "false".
+	 */
+	public static final String SUBSTRING_INDEX = "substring_index";
 
 	private Map _tableMap = new HashMap();
+	/** The index words of each part-of-speech as an array, for choosing random words, if they have been copied. */
+	private Map _indexWordArrays = new HashMap();
+	/** The trigram indexes of the lemmas of each part-of-speech, if they have been built. */
+	private Map _substringIndexes = new HashMap();
 
 	public MapBackedDictionary() {
 	}
@@ -52,10 +66,56 @@ public class MapBackedDictionary extends Dictionary {
 	}
 
 	public static void install(String searchDir, Class dictionaryFileType, MorphologicalProcessor morph) throws JWNLException {
+		install(searchDir, dictionaryFileType, morph, false);
+	}
+
+	/**
+	 * Load the dictionary files in <var>searchDir</var> and install them. If <var>resolvePointers</var>
+	 * is true, the targets of all pointers are resolved before the dictionary is installed.
+	 */
+	public static void install(String searchDir, Class dictionaryFileType, MorphologicalProcessor morph,
+	                           boolean resolvePointers) throws JWNLException {
+		install(searchDir, dictionaryFileType, morph, resolvePointers, false);
+	}
+
+	/**
+	 * Load the dictionary files in <var>searchDir</var> and install them. If <var>resolvePointers</var>
+	 * is true, the targets of all pointers are resolved, and if <var>indexSubstrings</var> is true, the
+	 * substring indexes are built (see {@link #buildSubstringIndexes()}), before the dictionary is installed.
+	 * The synset ids (see {@link #getSynsetIdMap()}) are always assigned before it is installed.
+	 */
+	public static void install(String searchDir, Class dictionaryFileType, MorphologicalProcessor morph,
+	                           boolean resolvePointers, boolean indexSubstrings) throws JWNLException {
 		checkFileType(dictionaryFileType);
 		DictionaryCatalogSet files = new DictionaryCatalogSet(searchDir, dictionaryFileType);
-		setDictionary(new MapBackedDictionary(files, morph));
+		MapBackedDictionary dictionary = new MapBackedDictionary(files, morph);
 		files.close();
+		if (resolvePointers) {
+			dictionary.resolvePointers();
+		}
+		if (indexSubstrings) {
+			dictionary.buildSubstringIndexes();
+		}
+		dictionary.getSynsetIdMap();
+		setDictionary(dictionary);
+	}
+
+	/**
+	 * Build a trigram index of the lemmas of each part-of-speech, which is then used by
+	 * {@link #getIndexWordIterator(POS, String)}. The indexes are not synchronized, so this
+	 * should be done before the dictionary is shared between threads.
+	 */
+	public void buildSubstringIndexes() {
+		for (Iterator itr = POS.getAllPOS().iterator(); itr.hasNext();) {
+			POS pos = (POS) itr.next();
+			Set lemmas = getTable(pos, DictionaryFileType.INDEX).keySet();
+			String[] keys = (String[]) lemmas.toArray(new String[lemmas.size()]);
+			Arrays.sort(keys);
+			TrigramIndex index = new TrigramIndex(keys);
+			_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_011",
+			    new Object[] {pos, new Integer(index.size()), new Long(index.getMemoryUsage())});
+			_substringIndexes.put(pos, index);
+		}
 	}
 
 	/**
@@ -78,7 +138,11 @@ public class MapBackedDictionary extends Dictionary {
 		param = (Param) params.get(PATH);
 		String path = param.getValue();
 
-		install(path, dictionaryFileType, morph);
+		boolean resolvePointers =
+		    params.containsKey(RESOLVE_POINTERS) && ((Param) params.get(RESOLVE_POINTERS)).getValue().equalsIgnoreCase("true");
+		boolean indexSubstrings =
+		    params.containsKey(SUBSTRING_INDEX) && ((Param) params.get(SUBSTRING_INDEX)).getValue().equalsIgnoreCase("true");
+		install(path, dictionaryFileType, morph, resolvePointers, indexSubstrings);
 	}
 
 	private static void checkFileType(Class c) {
@@ -109,7 +173,9 @@ public class MapBackedDictionary extends Dictionary {
 			for (Iterator posItr = POS.getAllPOS().iterator(); posItr.hasNext();) {
 				POS pos = (POS)posItr.next();
 				_log.log(MessageLogLevel.INFO, "Loading " + pos + " " + fileType);
-				putTable(pos, fileType, loadDictFile(catalog.get(pos)));
+				Map table = loadDictFile(catalog.get(pos));
+				setDictionaryOf(table.values());
+				putTable(pos, fileType, table);
 				if (_log.isLevelEnabled(MessageLogLevel.TRACE)) {
 					_log.log(MessageLogLevel.TRACE, "Current Memory: " + Runtime.getRuntime().freeMemory());
 				}
@@ -124,6 +190,16 @@ public class MapBackedDictionary extends Dictionary {
 	public Iterator getIndexWordIterator(POS pos, String substring) {
 		substring = prepareQueryString(substring);
 
+		TrigramIndex index = (TrigramIndex) _substringIndexes.get(pos);
+		if (index != null) {
+			int[] matches = index.find(substring);
+			String[] lemmas = new String[matches.length];
+			for (int i = 0; i < matches.length; i++) {
+				lemmas[i] = index.getKey(matches[i]);
+			}
+			return Collections.unmodifiableList(Arrays.asList(lemmas)).iterator();
+		}
+
 		final Iterator itr = getIndexWordIterator(pos);
 		String temp = null;
 		while (itr.hasNext()) {
@@ -141,17 +217,26 @@ public class MapBackedDictionary extends Dictionary {
 		return getIterator(getTable(pos, DictionaryFileType.INDEX));
 	}
 
-    // this is a very inefficient implementation, but a better
-    // one would require a custom Map implementation that allowed
-    // access to the underlying Entry array.
-    public IndexWord getRandomIndexWord(POS pos) throws JWNLException {
-        int index = _rand.nextInt(getTable(pos, DictionaryFileType.INDEX).size());
-        Iterator itr = getIndexWordIterator(pos);
-        for (int i = 0; i < index && itr.hasNext(); i++) {
-            itr.next();
-        }
-        return (itr.hasNext()) ? (IndexWord) itr.next() : null;
-    }
+	public IndexWord getRandomIndexWord(POS pos) throws JWNLException {
+		IndexWord[] words = getIndexWordArray(pos);
+		return (words.length == 0) ? null : words[getRandom().nextInt(words.length)];
+	}
+
+	/**
+	 * Return the index words of <var>pos</var> as an array, copying them from the table the
+	 * first time, so a random word can be picked without walking the table.
+	 */
+	private IndexWord[] getIndexWordArray(POS pos) {
+		synchronized (_indexWordArrays) {
+			IndexWord[] words = (IndexWord[]) _indexWordArrays.get(pos);
+			if (words == null) {
+				Collection values = getTable(pos, DictionaryFileType.INDEX).values();
+				words = (IndexWord[]) values.toArray(new IndexWord[values.size()]);
+				_indexWordArrays.put(pos, words);
+			}
+			return words;
+		}
+	}
 
 	public Iterator getSynsetIterator(POS pos) {
 		return getIterator(getTable(pos, DictionaryFileType.DATA));
@@ -185,6 +270,18 @@ public class MapBackedDictionary extends Dictionary {
 		}
 	}
 
+	/** Make this the dictionary of the loaded synsets and index words in <var>elements</var>. */
+	private void setDictionaryOf(Collection elements) {
+		for (Iterator itr = elements.iterator(); itr.hasNext();) {
+			Object element = itr.next();
+			if (element instanceof Synset) {
+				((Synset) element).setDictionary(this);
+			} else if (element instanceof IndexWord) {
+				((IndexWord) element).setDictionary(this);
+			}
+		}
+	}
+
 	/**
 	 * Use <var>table</var> for lookups to the file represented by <var>pos</var> and
 	 * <var>fileType</var>.
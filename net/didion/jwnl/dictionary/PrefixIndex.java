@@ -0,0 +1,225 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.util.MessageLog;
+import net.didion.jwnl.util.MessageLogLevel;
+
+/**
+ * An in-memory index of the lemmas of one or more parts-of-speech which finds the best
+ * ranked lemmas starting with a prefix. The lemmas are kept sorted, so the lemmas with a
+ * given prefix form a contiguous range found by binary search, and a tournament tree over
+ * their ranks finds the best lemma in any range in logarithmic time. The best <var>limit</var>
+ * lemmas of a range are taken by repeatedly splitting it around its best lemma, so a query
+ * costs O(limit log n) however many lemmas share the prefix.
+ * <p>
+ * A lemma's rank is its tagged frequency (the total usage count of its senses), with ties
+ * broken by its number of senses and then alphabetically. The index is immutable once built
+ * and may be shared between threads.
+ */
+public class PrefixIndex {
+	private static final MessageLog _log = new MessageLog(PrefixIndex.class);
+	private static final String[] NO_LEMMAS = new String[0];
+
+	/** The lemmas, sorted. */
+	private String[] _lemmas;
+	/** The rank of each lemma. */
+	private long[] _ranks;
+	/** The position of the best ranked lemma below each node; the leaves start at <code>_lemmas.length</code>. */
+	private int[] _tree;
+
+	/**
+	 * Build an index of the lemmas of the parts-of-speech in <var>pos</var>, reading the index
+	 * words of <var>dictionary</var>. A lemma of more than one part-of-speech is ranked by
+	 * the sum of its frequencies and senses in each.
+	 */
+	public static PrefixIndex build(Dictionary dictionary, List pos) throws JWNLException {
+		Map ranks = new HashMap();
+		for (Iterator posItr = pos.iterator(); posItr.hasNext();) {
+			for (Iterator itr = dictionary.getIndexWordIterator((POS) posItr.next()); itr.hasNext();) {
+				IndexWord word = (IndexWord) itr.next();
+				long[] offsets = word.getSynsetOffsets();
+				String key = word.getLemma().replace(' ', '_');
+				long frequency = 0;
+				for (int i = 0; i < offsets.length; i++) {
+					frequency += dictionary.getUsageCount(offsets[i], key);
+				}
+				long[] rank = (long[]) ranks.get(word.getLemma());
+				if (rank == null) {
+					rank = new long[2];
+					ranks.put(word.getLemma(), rank);
+				}
+				rank[0] += frequency;
+				rank[1] += offsets.length;
+			}
+		}
+
+		String[] lemmas = (String[]) ranks.keySet().toArray(new String[ranks.size()]);
+		Arrays.sort(lemmas);
+		long[] ranked = new long[lemmas.length];
+		for (int i = 0; i < lemmas.length; i++) {
+			long[] rank = (long[]) ranks.get(lemmas[i]);
+			ranked[i] = (Math.min(rank[0], Integer.MAX_VALUE) << 16) | Math.min(rank[1], 0xffff);
+		}
+		PrefixIndex index = new PrefixIndex(lemmas, ranked);
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_012", new Object[] {pos, new Integer(lemmas.length)});
+		return index;
+	}
+
+	/**
+	 * Create an index of <var>lemmas</var>, which must be sorted, where the rank of
+	 * <code>lemmas[i]</code> is <code>ranks[i]</code>. Higher ranks are better.
+	 */
+	public PrefixIndex(String[] lemmas, long[] ranks) {
+		_lemmas = lemmas;
+		_ranks = ranks;
+		int n = lemmas.length;
+		_tree = new int[2 * n];
+		for (int i = 0; i < n; i++) {
+			_tree[n + i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			_tree[i] = better(_tree[2 * i], _tree[2 * i + 1]);
+		}
+	}
+
+	/** Return the number of lemmas in the index. */
+	public int size() {
+		return _lemmas.length;
+	}
+
+	/**
+	 * Return the (at most) <var>limit</var> best ranked lemmas starting with <var>prefix</var>,
+	 * best first.
+	 */
+	public String[] complete(String prefix, int limit) {
+		int start = lowerBound(prefix);
+		int end = start;
+		// the lemmas with the prefix are those from start up to the first lemma without it
+		for (int high = _lemmas.length; end < high;) {
+			int mid = (end + high) >>> 1;
+			if (_lemmas[mid].startsWith(prefix)) {
+				end = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		limit = Math.min(limit, end - start);
+		if (limit <= 0) {
+			return NO_LEMMAS;
+		}
+
+		// a heap of ranges, ordered by their best lemma; each range taken is split around its best lemma
+		int[] heapBest = new int[2 * limit + 1];
+		int[] heapStart = new int[heapBest.length];
+		int[] heapEnd = new int[heapBest.length];
+		int size = 0;
+		String[] results = new String[limit];
+		size = push(heapBest, heapStart, heapEnd, size, start, end);
+		for (int count = 0; count < limit; count++) {
+			int best = heapBest[0];
+			int rangeStart = heapStart[0];
+			int rangeEnd = heapEnd[0];
+			size = pop(heapBest, heapStart, heapEnd, size);
+			results[count] = _lemmas[best];
+			size = push(heapBest, heapStart, heapEnd, size, rangeStart, best);
+			size = push(heapBest, heapStart, heapEnd, size, best + 1, rangeEnd);
+		}
+		return results;
+	}
+
+	/** Return the position of the first lemma not less than <var>key</var>. */
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = _lemmas.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (_lemmas[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/** Return whichever of the lemmas at <var>a</var> and <var>b</var> is ranked higher. */
+	private int better(int a, int b) {
+		if (_ranks[a] != _ranks[b]) {
+			return (_ranks[a] > _ranks[b]) ? a : b;
+		}
+		return Math.min(a, b);
+	}
+
+	/** Return the position of the best ranked lemma from <var>start</var> up to <var>end</var>. */
+	private int best(int start, int end) {
+		int n = _lemmas.length;
+		int best = start;
+		for (int l = start + n, r = end + n; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) != 0) {
+				best = better(best, _tree[l++]);
+			}
+			if ((r & 1) != 0) {
+				best = better(best, _tree[--r]);
+			}
+		}
+		return best;
+	}
+
+	/** Add the range from <var>start</var> up to <var>end</var> to the heap, if it isn't empty. */
+	private int push(int[] best, int[] start, int[] end, int size, int rangeStart, int rangeEnd) {
+		if (rangeStart >= rangeEnd) {
+			return size;
+		}
+		int b = best(rangeStart, rangeEnd);
+		int i = size++;
+		while (i > 0 && better(b, best[(i - 1) / 2]) == b && b != best[(i - 1) / 2]) {
+			int parent = (i - 1) / 2;
+			best[i] = best[parent];
+			start[i] = start[parent];
+			end[i] = end[parent];
+			i = parent;
+		}
+		best[i] = b;
+		start[i] = rangeStart;
+		end[i] = rangeEnd;
+		return size;
+	}
+
+	/** Remove the range with the best lemma from the top of the heap. */
+	private int pop(int[] best, int[] start, int[] end, int size) {
+		size--;
+		int b = best[size];
+		int s = start[size];
+		int e = end[size];
+		int i = 0;
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && better(best[child + 1], best[child]) == best[child + 1]) {
+				child++;
+			}
+			if (better(best[child], b) != best[child]) {
+				break;
+			}
+			best[i] = best[child];
+			start[i] = start[child];
+			end[i] = end[child];
+			i = child;
+		}
+		best[i] = b;
+		start[i] = s;
+		end[i] = e;
+		return size;
+	}
+}
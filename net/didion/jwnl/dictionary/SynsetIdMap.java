@@ -0,0 +1,164 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.JWNLRuntimeException;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.util.MessageLog;
+import net.didion.jwnl.util.MessageLogLevel;
+
+/**
+ * Assigns every synset in a dictionary a dense integer id. The ids of each
+ * part-of-speech form a contiguous range (in the order of <code>POS.getAllPOS()</code>),
+ * and within a range the ids follow the order of the synset offsets. Both
+ * id-to-synset and synset-to-id mappings take constant time, which allows
+ * callers to replace maps and sets of synsets with primitive arrays indexed by id.
+ */
+public class SynsetIdMap {
+	private static final MessageLog _log = new MessageLog(SynsetIdMap.class);
+
+	/** The value returned for synsets which do not have an id. */
+	public static final int NO_ID = -1;
+
+	/** The part-of-speech of each range of ids. */
+	private POS[] _pos;
+	/** The first id of each range, followed by the total number of ids. */
+	private int[] _firstIds;
+	/** The sorted synset offsets of each part-of-speech. */
+	private long[][] _offsets;
+	/** Open addressing hash tables mapping an offset to its index (plus one) in _offsets. */
+	private int[][] _tables;
+
+	/**
+	 * Assign ids to all the synsets in <var>dictionary</var>.
+	 */
+	public static SynsetIdMap build(Dictionary dictionary) throws JWNLException {
+		List allPOS = POS.getAllPOS();
+		long[][] offsets = new long[allPOS.size()][];
+		for (int i = 0; i < offsets.length; i++) {
+			long[] current = new long[1024];
+			int size = 0;
+			for (Iterator itr = dictionary.getSynsetIterator((POS)allPOS.get(i)); itr.hasNext();) {
+				if (size == current.length) {
+					long[] grown = new long[size * 2];
+					System.arraycopy(current, 0, grown, 0, size);
+					current = grown;
+				}
+				current[size++] = ((Synset)itr.next()).getOffset();
+			}
+			offsets[i] = new long[size];
+			System.arraycopy(current, 0, offsets[i], 0, size);
+			Arrays.sort(offsets[i]);
+		}
+		SynsetIdMap map = new SynsetIdMap((POS[])allPOS.toArray(new POS[allPOS.size()]), offsets);
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_003", new Integer(map.size()));
+		return map;
+	}
+
+	/**
+	 * Create a map from the sorted synset offsets of each part-of-speech.
+	 * @param pos the parts-of-speech, in the order their ids should be assigned
+	 * @param offsets the sorted offsets of the synsets of each part-of-speech
+	 */
+	public SynsetIdMap(POS[] pos, long[][] offsets) {
+		_pos = pos;
+		_offsets = offsets;
+		_firstIds = new int[pos.length + 1];
+		_tables = new int[pos.length][];
+		for (int i = 0; i < pos.length; i++) {
+			_firstIds[i + 1] = _firstIds[i] + offsets[i].length;
+			int capacity = 16;
+			while (capacity < offsets[i].length * 2) {
+				capacity <<= 1;
+			}
+			int[] table = new int[capacity];
+			for (int j = 0; j < offsets[i].length; j++) {
+				int slot = hash(offsets[i][j]) & (capacity - 1);
+				while (table[slot] != 0) {
+					slot = (slot + 1) & (capacity - 1);
+				}
+				table[slot] = j + 1;
+			}
+			_tables[i] = table;
+		}
+	}
+
+	private static int hash(long offset) {
+		int h = (int)(offset ^ (offset >>> 32)) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int indexOf(POS pos) {
+		for (int i = 0; i < _pos.length; i++) {
+			if (_pos[i].equals(pos)) return i;
+		}
+		return -1;
+	}
+
+	/** Return the total number of ids. */
+	public int size() {
+		return _firstIds[_pos.length];
+	}
+
+	/** Return the first id of the range assigned to <var>pos</var>. */
+	public int getFirstId(POS pos) {
+		int i = indexOf(pos);
+		return (i < 0) ? NO_ID : _firstIds[i];
+	}
+
+	/** Return the number of ids assigned to <var>pos</var>. */
+	public int getSize(POS pos) {
+		int i = indexOf(pos);
+		return (i < 0) ? 0 : _offsets[i].length;
+	}
+
+	/**
+	 * Return the id of the synset at <var>offset</var>, or <code>NO_ID</code>
+	 * if there is no such synset.
+	 */
+	public int getId(POS pos, long offset) {
+		int i = indexOf(pos);
+		if (i < 0) return NO_ID;
+		int[] table = _tables[i];
+		int slot = hash(offset) & (table.length - 1);
+		while (table[slot] != 0) {
+			int index = table[slot] - 1;
+			if (_offsets[i][index] == offset) return _firstIds[i] + index;
+			slot = (slot + 1) & (table.length - 1);
+		}
+		return NO_ID;
+	}
+
+	/** Return the id of <var>synset</var>, or <code>NO_ID</code> if it does not have one. */
+	public int getId(Synset synset) {
+		return getId(synset.getPOS(), synset.getOffset());
+	}
+
+	private int rangeOf(int id) {
+		if (id >= 0) {
+			for (int i = 0; i < _pos.length; i++) {
+				if (id < _firstIds[i + 1]) return i;
+			}
+		}
+		throw new JWNLRuntimeException("DICTIONARY_EXCEPTION_029", new Integer(id));
+	}
+
+	/** Return the part-of-speech of the synset with id <var>id</var>. */
+	public POS getPOS(int id) {
+		return _pos[rangeOf(id)];
+	}
+
+	/** Return the offset of the synset with id <var>id</var>. */
+	public long getOffset(int id) {
+		int i = rangeOf(id);
+		return _offsets[i][id - _firstIds[i]];
+	}
+}
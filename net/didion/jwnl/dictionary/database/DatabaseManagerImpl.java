@@ -97,6 +97,11 @@ public class DatabaseManagerImpl implements DatabaseManager, Createable {
     }
 
     public Query getRandomIndexWordQuery(POS pos) throws JWNLException {
+        return getRandomIndexWordQuery(pos, _rand);
+    }
+
+    /** Return a query for the lemma of an index word picked uniformly at random using <var>random</var>. */
+    public Query getRandomIndexWordQuery(POS pos, Random random) throws JWNLException {
         MinMax minMax = (MinMax) _minMaxIds.get(pos);
         if (minMax == null) {
             Query query = createPOSQuery(pos, COUNT_INDEX_WORDS_SQL);
@@ -113,7 +118,7 @@ public class DatabaseManagerImpl implements DatabaseManager, Createable {
                 }
             }
         }
-        int id = minMax.getMin() + _rand.nextInt(minMax.getMax() - minMax.getMin());
+        int id = minMax.getMin() + random.nextInt(minMax.getMax() - minMax.getMin() + 1);
         return createPOSIdQuery(pos, id, LEMMA_FOR_INDEX_WORD_ID_SQL);
     }
 
@@ -0,0 +1,94 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads the lines of a dictionary file in order through its own stream and buffer, keeping
+ * track of the offset of each line itself, so a sequential scan never seeks and never shares
+ * a file pointer with lookups. Lines are split and decoded the same way as by
+ * {@link RandomAccessDictionaryFile#readLine()}, so the offsets match those of the
+ * random-access files. A reader should only be used by one thread at a time.
+ */
+public class DictionaryLineReader {
+	public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+	private FileInputStream _in;
+	private byte[] _buffer;
+	/** The position of the next unread byte in the buffer. */
+	private int _position = 0;
+	/** The number of valid bytes in the buffer. */
+	private int _length = 0;
+	/** The file offset of the next unread byte. */
+	private long _offset;
+	private char[] _chars = new char[256];
+
+	/** Open <var>file</var> and position the reader at <var>offset</var>, which should be the start of a line. */
+	public DictionaryLineReader(File file, long offset) throws IOException {
+		this(file, offset, DEFAULT_BUFFER_SIZE);
+	}
+
+	public DictionaryLineReader(File file, long offset, int bufferSize) throws IOException {
+		_in = new FileInputStream(file);
+		_in.getChannel().position(offset);
+		_offset = offset;
+		_buffer = new byte[bufferSize];
+	}
+
+	/** Return the file offset of the next line to be read. */
+	public long getOffset() {
+		return _offset;
+	}
+
+	/** Read the next line, or return null at the end of the file. */
+	public String readLine() throws IOException {
+		int count = 0;
+		int c;
+		while ((c = read()) != -1 && c != '\n' && c != '\r') {
+			if (count == _chars.length) {
+				char[] grown = new char[_chars.length * 2];
+				System.arraycopy(_chars, 0, grown, 0, count);
+				_chars = grown;
+			}
+			_chars[count++] = (char) c;
+		}
+		if (c == '\r' && peek() == '\n') {
+			read();
+		}
+		return (c == -1 && count == 0) ? null : new String(_chars, 0, count);
+	}
+
+	public void close() {
+		try {
+			_in.close();
+		} catch (IOException ex) {
+		}
+	}
+
+	private int read() throws IOException {
+		if (_position == _length && !fill()) {
+			return -1;
+		}
+		_offset++;
+		return _buffer[_position++] & 0xff;
+	}
+
+	private int peek() throws IOException {
+		if (_position == _length && !fill()) {
+			return -1;
+		}
+		return _buffer[_position] & 0xff;
+	}
+
+	/** @return false if the end of the file has been reached */
+	private boolean fill() throws IOException {
+		_position = 0;
+		_length = Math.max(0, _in.read(_buffer));
+		return _length > 0;
+	}
+}
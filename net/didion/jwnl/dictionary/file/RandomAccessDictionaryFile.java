@@ -23,6 +23,14 @@ public interface RandomAccessDictionaryFile extends DictionaryFile {
     /** Get the length, in bytes, of the file */
 	public long length() throws IOException;
 
+	/**
+	 * Create a new view of the file. A view shares the open file with the file it was
+	 * created from but has its own file pointer and offset cache, so different views
+	 * can be read concurrently without locking. A view should only be used by one
+	 * thread at a time. Closing a view does not close the underlying file.
+	 */
+	public RandomAccessDictionaryFile newView() throws IOException;
+
 	// Offset caching functions
 
     /** Move the file pointer so that its next line offset is <var>nextOffset</var> */
@@ -44,13 +44,26 @@ public interface FileManager extends Remote, Createable {
 	long getMatchingLinePointer(POS pos, DictionaryFileType fileType, long offset, String substring) throws IOException, RemoteException;
 
     /**
-     * Return a randomly-chosen line pointer (offset of the beginning of a line).
+     * Return a randomly-chosen line pointer (offset of the beginning of a line). Every line
+     * is equally likely to be chosen.
      * @param pos
      * @param index
      * @return
      */
     long getRandomLinePointer(POS pos, DictionaryFileType index) throws IOException;
 
+    /**
+     * Return the number of lines in the specified file, not counting the license header.
+     */
+    int getLineCount(POS pos, DictionaryFileType fileType) throws IOException;
+
+    /**
+     * Return the line pointer of the <var>line</var>th line of the specified file, counting
+     * from 0 and not counting the license header. Together with {@link #getLineCount} this
+     * lets the caller pick a line at random with its own random number generator.
+     */
+    long getLinePointer(POS pos, DictionaryFileType fileType, int line) throws IOException;
+
     /**
      * Return the first valid line pointer in the specified file.
      * @param pos
@@ -60,7 +73,18 @@ public interface FileManager extends Remote, Createable {
      */
     long getFirstLinePointer(POS pos, DictionaryFileType fileType) throws IOException;
 
-    
+	/**
+	 * Return the length, in bytes, of the file.
+	 */
+	long getFileLength(POS pos, DictionaryFileType fileType) throws IOException, RemoteException;
+
+	/**
+	 * Read the line of the sense index file for the sense of <var>lemma</var> in the
+	 * synset at file offset <var>offset</var>.
+	 * @return The line, or <code>null</code> if no such line exists.
+	 */
+	String getSenseIndexLine(long offset, String lemma) throws IOException, RemoteException;
+
 	/**
 	 * Shut down the file manager.
 	 */
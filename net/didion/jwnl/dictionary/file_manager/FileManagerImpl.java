@@ -7,6 +7,8 @@ package net.didion.jwnl.dictionary.file_manager;
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -17,8 +19,10 @@ import net.didion.jwnl.data.POS;
 import net.didion.jwnl.dictionary.file.DictionaryCatalogSet;
 import net.didion.jwnl.dictionary.file.DictionaryFile;
 import net.didion.jwnl.dictionary.file.DictionaryFileType;
+import net.didion.jwnl.dictionary.file.DictionaryLineReader;
 import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
-import net.didion.jwnl.util.Grep;
+import net.didion.jwnl.util.MessageLog;
+import net.didion.jwnl.util.MessageLogLevel;
 import net.didion.jwnl.util.factory.Param;
 
 /**
@@ -26,9 +30,12 @@ import net.didion.jwnl.util.factory.Param;
  * <code>FileManagerImpl</code> caches the file position before and after <code>readLineAt</code>
  * in order to eliminate the redundant IO activity that a naive implementation of these methods
  * would necessitate.
+ * Each thread reads through its own view of each file (see <code>RandomAccessDictionaryFile.newView()</code>),
+ * so concurrent lookups do not lock the files and the cached positions are per-thread.
  */
 public class FileManagerImpl implements FileManager {
-    
+	private static final MessageLog _log = new MessageLog(FileManagerImpl.class);
+
 
 	/**
      * File type install parameter. The value should be the
@@ -40,6 +47,19 @@ public class FileManagerImpl implements FileManager {
 	 * of the directory containing the dictionary files.
 	 */
 	public static final String PATH = "dictionary_path";
+	/**
+	 * Lemma index install parameter. The value should be "true" or "false". If "true", an
+	 * in-memory index of the lemmas in each index file is built when the file manager is
+	 * created, replacing the binary search of the file. The default is "false".
+	 */
+	public static final String LEMMA_INDEX = "lemma_index";
+	/**
+	 * Substring index install parameter. The value should be "true" or "false". If "true", an
+	 * in-memory trigram index of the lemmas in each index file is built when the file manager is
+	 * created, and used to find the lines matching a substring instead of scanning the file.
+	 * The default is "false".
+	 */
+	public static final String SUBSTRING_INDEX = "substring_index";
     /**
      * Random number generator used by getRandomLineOffset().
      */
@@ -49,11 +69,36 @@ public class FileManagerImpl implements FileManager {
      * The catalog set. 
      */
 	private DictionaryCatalogSet _files;
+
+    /**
+     * The views of the dictionary files used by each thread, keyed by file.
+     */
+	private volatile ThreadLocal _views = createViews();
 	
+    /**
+     * The in-memory lemma indexes of the index files, keyed by POS.
+     */
+	private Map _lemmaIndexes = new HashMap();
+
+    /**
+     * The in-memory substring indexes of the index files, keyed by POS.
+     */
+	private Map _substringIndexes = new HashMap();
+
+    /**
+     * The line indexes of the files, keyed by file, built the first time a line is chosen by number.
+     */
+	private Map _lineIndexes = new HashMap();
+
     /**
      * The sense key file. 
      */
 	private File senseFile;
+
+    /**
+     * The index of the sense key file, built the first time a sense is looked up.
+     */
+	private volatile SenseIndex _senseIndex;
 	
     /**
      * Uninitialized FileManagerImpl. 
@@ -74,8 +119,99 @@ public class FileManagerImpl implements FileManager {
             sense = System.getProperty("file.separator") + "sense.idx";
 		}
         senseFile = new File(searchDir + sense);
-        
-		Grep.setFile(senseFile);
+	}
+
+	/**
+	 * Construct a file manager backed by a set of files contained in the default WN
+	 * search directory, optionally building an in-memory index of the lemmas in each index file.
+	 */
+	public FileManagerImpl(String searchDir, Class dictionaryFileType, boolean indexLemmas) throws IOException {
+		this(searchDir, dictionaryFileType, indexLemmas, false);
+	}
+
+	/**
+	 * Construct a file manager backed by a set of files contained in the default WN
+	 * search directory, optionally building in-memory indexes of the lemmas and of the
+	 * substrings of the lemmas in each index file.
+	 */
+	public FileManagerImpl(String searchDir, Class dictionaryFileType, boolean indexLemmas, boolean indexSubstrings)
+	    throws IOException {
+		this(searchDir, dictionaryFileType);
+		if (indexLemmas || indexSubstrings) {
+			buildLemmaIndexes(indexLemmas, indexSubstrings);
+		}
+	}
+
+	/**
+	 * Builds the requested indexes of each index file, with one thread per part of speech.
+	 * @throws IOException
+	 */
+	private void buildLemmaIndexes(boolean indexLemmas, boolean indexSubstrings) throws IOException {
+		List allPOS = POS.getAllPOS();
+		LemmaIndexBuilder[] builders = new LemmaIndexBuilder[allPOS.size()];
+		for (int i = 0; i < builders.length; i++) {
+			builders[i] = new LemmaIndexBuilder((POS)allPOS.get(i), indexLemmas, indexSubstrings);
+			builders[i].start();
+		}
+		for (int i = 0; i < builders.length; i++) {
+			try {
+				builders[i].join();
+			} catch (InterruptedException ex) {
+				throw new IOException(ex.toString());
+			}
+			if (builders[i]._exception != null) {
+				throw builders[i]._exception;
+			}
+			if (builders[i]._index != null) {
+				LemmaIndex index = builders[i]._index;
+				_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_004",
+				    new Object[] {builders[i]._pos, new Integer(index.size()), new Long(index.getMemoryUsage())});
+				_lemmaIndexes.put(builders[i]._pos, index);
+			}
+			if (builders[i]._substringIndex != null) {
+				SubstringIndex index = builders[i]._substringIndex;
+				_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_011",
+				    new Object[] {builders[i]._pos, new Integer(index.size()), new Long(index.getMemoryUsage())});
+				_substringIndexes.put(builders[i]._pos, index);
+			}
+		}
+	}
+
+	/**
+	 * Builds the lemma and substring indexes of the index file of one part of speech, using
+	 * its own view of the file.
+	 */
+	private final class LemmaIndexBuilder extends Thread {
+		private POS _pos;
+		private boolean _indexLemmas;
+		private boolean _indexSubstrings;
+		private LemmaIndex _index = null;
+		private SubstringIndex _substringIndex = null;
+		private IOException _exception = null;
+
+		public LemmaIndexBuilder(POS pos, boolean indexLemmas, boolean indexSubstrings) {
+			_pos = pos;
+			_indexLemmas = indexLemmas;
+			_indexSubstrings = indexSubstrings;
+		}
+
+		public void run() {
+			try {
+				RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(_pos, DictionaryFileType.INDEX);
+				if (file != null) {
+					RandomAccessDictionaryFile view = file.newView();
+					if (_indexLemmas) {
+						_index = LemmaIndex.build(view);
+					}
+					if (_indexSubstrings) {
+						_substringIndex = SubstringIndex.build(view);
+					}
+					view.close();
+				}
+			} catch (IOException ex) {
+				_exception = ex;
+			}
+		}
 	}
 
     /**
@@ -92,8 +228,13 @@ public class FileManagerImpl implements FileManager {
 
 		String path = ((Param)params.get(PATH)).getValue();
 
+		boolean indexLemmas =
+		    params.containsKey(LEMMA_INDEX) && ((Param)params.get(LEMMA_INDEX)).getValue().equalsIgnoreCase("true");
+		boolean indexSubstrings =
+		    params.containsKey(SUBSTRING_INDEX) && ((Param)params.get(SUBSTRING_INDEX)).getValue().equalsIgnoreCase("true");
+
 		try {
-			return new FileManagerImpl(path, fileClass);
+			return new FileManagerImpl(path, fileClass, indexLemmas, indexSubstrings);
 		} catch (IOException ex) {
 			throw new JWNLException("DICTIONARY_EXCEPTION_016", fileClass, ex);
 		}
@@ -114,6 +255,17 @@ public class FileManagerImpl implements FileManager {
      */
 	public void close() {
 		_files.close();
+		// forget every thread's views of the closed files, not just this thread's
+		_views.remove();
+		_views = createViews();
+	}
+
+	private static ThreadLocal createViews() {
+		return new ThreadLocal() {
+			protected Object initialValue() {
+				return new HashMap();
+			}
+		};
 	}
 
     /**
@@ -126,7 +278,23 @@ public class FileManagerImpl implements FileManager {
 		return _files.getDictionaryFile(pos, fileType);
 	}
 
-	
+
+    /**
+     * Gets the current thread's view of the file from a part of speech and file type.
+     * @return - the view, or null if there is no such file
+     * @throws IOException
+     */
+	private RandomAccessDictionaryFile getRandomAccessFile(POS pos, DictionaryFileType fileType) throws IOException {
+		RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(pos, fileType);
+		if (file == null) return null;
+		Map views = (Map)_views.get();
+		RandomAccessDictionaryFile view = (RandomAccessDictionaryFile)views.get(file);
+		if (view == null) {
+			view = file.newView();
+			views.put(file, view);
+		}
+		return view;
+	}
 
     /**
      * Skips the next line in the file. 
@@ -142,21 +310,30 @@ public class FileManagerImpl implements FileManager {
 		}
 	}
 
+	/**
+	 * Open a reader of the lines of a file starting at <var>offset</var>, for reading the file
+	 * sequentially. The reader has its own stream and buffer, so it doesn't disturb (or take the
+	 * place of) the current thread's view of the file; the caller must close it.
+	 * @return - the reader, or null if there is no such file
+	 */
+	public DictionaryLineReader getLineReader(POS pos, DictionaryFileType fileType, long offset) throws IOException {
+		DictionaryFile file = getFile(pos, fileType);
+		return (file == null) ? null : new DictionaryLineReader(file.getFile(), offset);
+	}
+
 	/**
      * {@inheritDoc}
 	 */
 	public String readLineAt(POS pos, DictionaryFileType fileType, long offset) throws IOException {
-		RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(pos, fileType);
-		synchronized (file) {
-			file.seek(offset);
-			String line = file.readLine();
-			long nextOffset = file.getFilePointer();
-			if (line == null) {
-				nextOffset = -1;
-			}
-			file.setNextLineOffset(offset, nextOffset);
-			return line;
+		RandomAccessDictionaryFile file = getRandomAccessFile(pos, fileType);
+		file.seek(offset);
+		String line = file.readLine();
+		long nextOffset = file.getFilePointer();
+		if (line == null) {
+			nextOffset = -1;
 		}
+		file.setNextLineOffset(offset, nextOffset);
+		return line;
 	}
 	
 	
@@ -179,15 +356,23 @@ public class FileManagerImpl implements FileManager {
      * {@inheritDoc}
      */
 	public long getNextLinePointer(POS pos, DictionaryFileType fileType, long offset) throws IOException {
-		RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(pos, fileType);
-		synchronized (file) {
-			if (file.isPreviousLineOffset(offset) && offset != file.getNextLineOffset()) {
-                return file.getNextLineOffset();
-			}
-			file.seek(offset);
-			skipLine(file);
-			return file.getFilePointer();
+		RandomAccessDictionaryFile file = getRandomAccessFile(pos, fileType);
+		if (file.isPreviousLineOffset(offset) && offset != file.getNextLineOffset()) {
+			return file.getNextLineOffset();
 		}
+		file.seek(offset);
+		skipLine(file);
+		return file.getFilePointer();
+	}
+
+	/**
+	 * Return the line pointers, in file order, of all the lines of the specified file whose
+	 * lemma contains <var>substring</var>, or null if the file doesn't have a substring index.
+	 * This lets an iterator find all its matches with one query.
+	 */
+	public long[] getMatchingLinePointers(POS pos, DictionaryFileType fileType, String substring) {
+		SubstringIndex index = (fileType == DictionaryFileType.INDEX) ? (SubstringIndex)_substringIndexes.get(pos) : null;
+		return (index == null) ? null : index.getMatchingOffsets(substring);
 	}
 
 	/**
@@ -196,20 +381,23 @@ public class FileManagerImpl implements FileManager {
 	public long getMatchingLinePointer(POS pos, DictionaryFileType fileType, long offset, String substring)
 	    throws IOException {
 
-		RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(pos, fileType);
+		if (fileType == DictionaryFileType.INDEX && _substringIndexes.containsKey(pos)) {
+			return ((SubstringIndex)_substringIndexes.get(pos)).getMatchingOffset(offset, substring);
+		}
+
+		RandomAccessDictionaryFile file = getRandomAccessFile(pos, fileType);
 		if (file == null || file.length() == 0) return -1;
 
-		synchronized (file) {
-			file.seek(offset);
-			do {
-				String line = readLineWord(file);
-				long nextOffset = file.getFilePointer();
-				if (line == null) return -1;
-				file.setNextLineOffset(offset, nextOffset);
-				if (line.indexOf(substring) >= 0) return offset;
-				offset = nextOffset;
-			} while (true);
-		}
+		file.seek(offset);
+		do {
+			String line = file.readLine();
+			if (line == null) return -1;
+			long nextOffset = file.getFilePointer();
+			file.setNextLineOffset(offset, nextOffset);
+			int end = line.indexOf(' ');
+			if ((end < 0 ? line : line.substring(0, end)).indexOf(substring) >= 0) return offset;
+			offset = nextOffset;
+		} while (true);
 	}
 
     /**
@@ -218,47 +406,56 @@ public class FileManagerImpl implements FileManager {
      * by using an offset and string comparison algorithm. 
      */
 	public long getIndexedLinePointer(POS pos, DictionaryFileType fileType, String target) throws IOException {
-		RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(pos, fileType);
+		RandomAccessDictionaryFile file = getRandomAccessFile(pos, fileType);
 		if (file == null || file.length() == 0) {
 			return -1;
 		}
-		synchronized (file) {
-			long start = 0;
-			long stop = file.length();
-			long offset = start, midpoint; //our current offset within the file
-			int compare;
-			String word; //current word at a line
-			while (true) {
-				midpoint = (start + stop) / 2;
-				file.seek(midpoint);
-				file.readLine();
+		if (fileType == DictionaryFileType.INDEX && _lemmaIndexes.containsKey(pos)) {
+			long offset = ((LemmaIndex)_lemmaIndexes.get(pos)).getOffset(target);
+			if (offset < 0) {
+				return -1;
+			}
+			file.seek(offset);
+			if (readLineWord(file).equals(target)) {
+				return offset;
+			}
+			// the hash of another lemma matched so fall back to searching the file
+		}
+		long start = 0;
+		long stop = file.length();
+		long offset = start, midpoint; //our current offset within the file
+		int compare;
+		String word; //current word at a line
+		while (true) {
+			midpoint = (start + stop) / 2;
+			file.seek(midpoint);
+			file.readLine();
+			offset = file.getFilePointer();
+			if (stop == offset) { //we are at eof
+				file.seek(start);
 				offset = file.getFilePointer();
-				if (stop == offset) { //we are at eof
-					file.seek(start);
-					offset = file.getFilePointer();
-					while (offset != stop) {
-						word = readLineWord(file);
-						if (word.equals(target)) {
-							return offset;
-						} else {
-							file.readLine();
-							offset = file.getFilePointer();
-						}
+				while (offset != stop) {
+					word = readLineWord(file);
+					if (word.equals(target)) {
+						return offset;
+					} else {
+						file.readLine();
+						offset = file.getFilePointer();
 					}
-					return -1;
-				}
-				word = readLineWord(file);
-				compare = word.compareTo(target);
-                /**
-                 * Determines where to go within the file. 
-                 */
-				if (compare == 0) {
-					return offset;
-				} else if (compare > 0) {
-					stop = offset;
-				} else {
-					start = offset;
 				}
+				return -1;
+			}
+			word = readLineWord(file);
+			compare = word.compareTo(target);
+			/**
+			 * Determines where to go within the file. 
+			 */
+			if (compare == 0) {
+				return offset;
+			} else if (compare > 0) {
+				stop = offset;
+			} else {
+				start = offset;
 			}
 		}
 	}
@@ -267,10 +464,80 @@ public class FileManagerImpl implements FileManager {
      * {@inheritDoc}
      */
     public long getRandomLinePointer(POS pos, DictionaryFileType fileType) throws IOException {
-        long fileLength = ((RandomAccessDictionaryFile) getFile(pos, fileType)).length();
-        long start = getFirstLinePointer(pos, fileType);
-        long offset = start + (long) _rand.nextInt(((int) fileLength) - (int) start);
-        return getNextLinePointer(pos, fileType, offset);
+        int count = getLineCount(pos, fileType);
+        return (count == 0) ? -1 : getLinePointer(pos, fileType, _rand.nextInt(count));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getLineCount(POS pos, DictionaryFileType fileType) throws IOException {
+        LineIndex index = getLineIndex(pos, fileType);
+        return (index == null) ? 0 : index.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getLinePointer(POS pos, DictionaryFileType fileType, int line) throws IOException {
+        return getLineIndex(pos, fileType).getOffset(line);
+    }
+
+    /**
+     * Gets the line index of a file, reading the whole file through a new view the first time.
+     * @return - the index, or null if there is no such file
+     * @throws IOException
+     */
+    private LineIndex getLineIndex(POS pos, DictionaryFileType fileType) throws IOException {
+        RandomAccessDictionaryFile file = (RandomAccessDictionaryFile)getFile(pos, fileType);
+        if (file == null) return null;
+        synchronized (_lineIndexes) {
+            LineIndex index = (LineIndex)_lineIndexes.get(file);
+            if (index == null) {
+                RandomAccessDictionaryFile view = file.newView();
+                try {
+                    index = LineIndex.build(view);
+                } finally {
+                    view.close();
+                }
+                _lineIndexes.put(file, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getFileLength(POS pos, DictionaryFileType fileType) throws IOException {
+        RandomAccessDictionaryFile file = getRandomAccessFile(pos, fileType);
+        return (file == null) ? 0 : file.length();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getSenseIndexLine(long offset, String lemma) throws IOException {
+        SenseIndex index = getSenseIndex();
+        return (index == null) ? null : index.getLine(offset, lemma.toLowerCase().replace(' ', '_'));
+    }
+
+    /**
+     * Return the index of the sense key file, building it if need be, or null if
+     * the dictionary has no sense key file.
+     */
+    private SenseIndex getSenseIndex() throws IOException {
+        SenseIndex index = _senseIndex;
+        if (index == null && senseFile.exists()) {
+            synchronized (this) {
+                index = _senseIndex;
+                if (index == null) {
+                    index = new SenseIndex(senseFile);
+                    _senseIndex = index;
+                }
+            }
+        }
+        return index;
     }
 
     /**
@@ -278,10 +545,13 @@ public class FileManagerImpl implements FileManager {
      */
     public long getFirstLinePointer(POS pos, DictionaryFileType fileType) throws IOException {
         long offset = 0;
-        RandomAccessDictionaryFile file = (RandomAccessDictionaryFile) getFile(pos, fileType);
-        String line = null;
-        for (line = null; line == null || line.trim().length() == 0; line = readLineWord(file)) {
+        RandomAccessDictionaryFile file = getRandomAccessFile(pos, fileType);
+        long length = file.length();
+        // the license header lines start with spaces, and the exception files have no header
+        file.seek(offset);
+        while (offset < length && readLineWord(file).length() == 0) {
             offset = getNextLinePointer(pos, fileType, offset);
+            file.seek(offset);
         }
         return offset;
     }
@@ -0,0 +1,112 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.file_manager;
+
+import java.io.IOException;
+
+import net.didion.jwnl.dictionary.file.DictionaryFile;
+import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
+
+/**
+ * An in-memory index mapping the first word of each line in a sorted dictionary
+ * file (i.e. the lemma of each line of an index file) to the offset of the line.
+ * Lemmas are stored as 64-bit hashes in an open addressing table, so a lookup is a
+ * single probe sequence. The file offset found should be checked against the lemma,
+ * which <code>FileManagerImpl</code> does as part of reading the line.
+ */
+public class LemmaIndex {
+	/** The hashes of the lemmas. A hash of 0 marks an empty slot. */
+	private long[] _hashes;
+	/** The offset of the line of each lemma. */
+	private int[] _offsets;
+	/** The number of lemmas in the index. */
+	private int _size;
+
+	private LemmaIndex(int capacity) {
+		_hashes = new long[capacity];
+		_offsets = new int[capacity];
+	}
+
+	/**
+	 * Build the index by reading every line of <var>file</var>. The file should
+	 * be a view that is not used by any other thread.
+	 */
+	public static LemmaIndex build(RandomAccessDictionaryFile file) throws IOException {
+		LemmaIndex index = new LemmaIndex(1024);
+		file.seek(0);
+		long offset = 0;
+		for (String line = file.readLine(); line != null; line = file.readLine()) {
+			if (!line.startsWith(DictionaryFile.COMMENT_HEADER) && line.length() > 0) {
+				int end = line.indexOf(' ');
+				index.put(hash(end < 0 ? line : line.substring(0, end)), offset);
+			}
+			offset = file.getFilePointer();
+		}
+		return index;
+	}
+
+	/** FNV-1a hash of <var>lemma</var>, never 0. */
+	private static long hash(String lemma) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < lemma.length(); i++) {
+			h ^= lemma.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return (h == 0) ? 1 : h;
+	}
+
+	private int slot(long hash) {
+		int h = (int)(hash ^ (hash >>> 32));
+		return (h ^ (h >>> 16)) & (_hashes.length - 1);
+	}
+
+	private void put(long hash, long offset) {
+		if ((_size + 1) * 2 > _hashes.length) {
+			long[] hashes = _hashes;
+			int[] offsets = _offsets;
+			_hashes = new long[hashes.length * 2];
+			_offsets = new int[hashes.length * 2];
+			_size = 0;
+			for (int i = 0; i < hashes.length; i++) {
+				if (hashes[i] != 0) {
+					put(hashes[i], offsets[i]);
+				}
+			}
+		}
+		int slot = slot(hash);
+		while (_hashes[slot] != 0) {
+			if (_hashes[slot] == hash) return; // keep the first line with the lemma
+			slot = (slot + 1) & (_hashes.length - 1);
+		}
+		_hashes[slot] = hash;
+		_offsets[slot] = (int)offset;
+		_size++;
+	}
+
+	/**
+	 * Return the offset of the line whose first word is <var>lemma</var>, or -1 if
+	 * there is no such line. Since only hashes are stored, the line at the returned
+	 * offset may (very rarely) be for a different lemma.
+	 */
+	public long getOffset(String lemma) {
+		long hash = hash(lemma);
+		int slot = slot(hash);
+		while (_hashes[slot] != 0) {
+			if (_hashes[slot] == hash) return _offsets[slot];
+			slot = (slot + 1) & (_hashes.length - 1);
+		}
+		return -1;
+	}
+
+	/** Return the number of lemmas in the index. */
+	public int size() {
+		return _size;
+	}
+
+	/** Return the approximate number of bytes of memory used by the index. */
+	public long getMemoryUsage() {
+		return 12L * _hashes.length;
+	}
+}
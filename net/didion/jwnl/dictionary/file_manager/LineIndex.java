@@ -0,0 +1,72 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.file_manager;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.didion.jwnl.dictionary.file.DictionaryFile;
+import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
+
+/**
+ * The offsets of the lines of a dictionary file, in file order, not counting the comment
+ * lines of the license header. The offset of the <var>n</var>th line is found without
+ * reading the file, so a line can be picked uniformly at random in constant time.
+ */
+public class LineIndex {
+	private long[] _offsets;
+
+	private LineIndex(long[] offsets) {
+		_offsets = offsets;
+	}
+
+	/**
+	 * Build the index by reading every line of <var>file</var>. The file should
+	 * be a view that is not used by any other thread.
+	 */
+	public static LineIndex build(RandomAccessDictionaryFile file) throws IOException {
+		return new LineIndex(readLineOffsets(file, null));
+	}
+
+	/**
+	 * Return the offsets, in file order, of the lines of <var>file</var> that are neither empty
+	 * nor part of the license header. If <var>firstWords</var> is not null, the first word of
+	 * each of those lines is added to it.
+	 */
+	static long[] readLineOffsets(RandomAccessDictionaryFile file, List firstWords) throws IOException {
+		long[] offsets = new long[1024];
+		int size = 0;
+		file.seek(0);
+		long offset = 0;
+		for (String line = file.readLine(); line != null; line = file.readLine()) {
+			if (!line.startsWith(DictionaryFile.COMMENT_HEADER) && line.length() > 0) {
+				if (size == offsets.length) {
+					long[] grown = new long[offsets.length * 2];
+					System.arraycopy(offsets, 0, grown, 0, offsets.length);
+					offsets = grown;
+				}
+				offsets[size++] = offset;
+				if (firstWords != null) {
+					int end = line.indexOf(' ');
+					firstWords.add(end < 0 ? line : line.substring(0, end));
+				}
+			}
+			offset = file.getFilePointer();
+		}
+		long[] trimmed = new long[size];
+		System.arraycopy(offsets, 0, trimmed, 0, size);
+		return trimmed;
+	}
+
+	/** Return the number of lines in the index. */
+	public int size() {
+		return _offsets.length;
+	}
+
+	/** Return the offset of the <var>index</var>th line. */
+	public long getOffset(int index) {
+		return _offsets[index];
+	}
+}
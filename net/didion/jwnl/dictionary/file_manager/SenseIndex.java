@@ -0,0 +1,166 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.file_manager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An index over the sense index file (index.sense, or sense.idx before WordNet 2.1),
+ * which has one line per sense of the form <code>sense_key synset_offset sense_number tag_cnt</code>.
+ * The file is memory mapped and a hash table maps each (synset offset, lemma) pair to the start
+ * of its line, so finding the line for a sense takes constant time. The index is
+ * read-only once it has been built and so can be shared by any number of threads.
+ */
+public class SenseIndex {
+	/** The mapped file. Only absolute gets are used, so the buffer can be shared between threads. */
+	private ByteBuffer _buffer;
+	/** The hashes of the (offset, lemma) pair of each line. A hash of 0 marks an empty slot. */
+	private long[] _hashes;
+	/** The start of each line. */
+	private int[] _lines;
+
+	/**
+	 * Build the index of the sense index file <var>file</var>.
+	 */
+	public SenseIndex(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+		int count = 0;
+		int limit = _buffer.limit();
+		for (int i = 0; i < limit; i++) {
+			if (_buffer.get(i) == '\n') count++;
+		}
+		int capacity = 16;
+		while (capacity < (count + 1) * 2) {
+			capacity <<= 1;
+		}
+		_hashes = new long[capacity];
+		_lines = new int[capacity];
+		int start = 0;
+		while (start < limit) {
+			int end = endOfLine(start);
+			int lemmaEnd = indexOf((byte)'%', start, end);
+			int keyEnd = indexOf((byte)' ', start, end);
+			if (lemmaEnd > start && keyEnd > lemmaEnd) {
+				long offset = parseOffset(keyEnd + 1, end);
+				if (offset >= 0) {
+					put(hash(hashBytes(start, lemmaEnd), offset), start);
+				}
+			}
+			start = end + 1;
+		}
+	}
+
+	private int endOfLine(int start) {
+		int limit = _buffer.limit();
+		int end = start;
+		while (end < limit && _buffer.get(end) != '\n') {
+			end++;
+		}
+		return end;
+	}
+
+	private int indexOf(byte b, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (_buffer.get(i) == b) return i;
+		}
+		return -1;
+	}
+
+	/** Parse the synset offset at <var>start</var>, or return -1 if there isn't one. */
+	private long parseOffset(int start, int end) {
+		long offset = 0;
+		int i = start;
+		for (; i < end; i++) {
+			byte b = _buffer.get(i);
+			if (b < '0' || b > '9') break;
+			offset = offset * 10 + (b - '0');
+		}
+		return (i == start) ? -1 : offset;
+	}
+
+	private long hashBytes(int start, int end) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = start; i < end; i++) {
+			h ^= _buffer.get(i) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	private static long hashChars(String lemma) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < lemma.length(); i++) {
+			h ^= lemma.charAt(i) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/** Combine the hash of a lemma with a synset offset, never returning 0. */
+	private static long hash(long lemmaHash, long offset) {
+		long h = (lemmaHash ^ offset) * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 29;
+		return (h == 0) ? 1 : h;
+	}
+
+	private int slot(long hash) {
+		return (int)(hash ^ (hash >>> 32)) & (_hashes.length - 1);
+	}
+
+	private void put(long hash, int line) {
+		int slot = slot(hash);
+		while (_hashes[slot] != 0) {
+			slot = (slot + 1) & (_hashes.length - 1);
+		}
+		_hashes[slot] = hash;
+		_lines[slot] = line;
+	}
+
+	/** Return true if the line at <var>start</var> is for the sense of <var>lemma</var> in the synset at <var>offset</var>. */
+	private boolean matches(int start, long offset, String lemma) {
+		int end = endOfLine(start);
+		int lemmaEnd = start + lemma.length();
+		if (lemmaEnd >= end || _buffer.get(lemmaEnd) != '%') return false;
+		for (int i = 0; i < lemma.length(); i++) {
+			if ((_buffer.get(start + i) & 0xff) != lemma.charAt(i)) return false;
+		}
+		int keyEnd = indexOf((byte)' ', lemmaEnd, end);
+		return keyEnd > 0 && parseOffset(keyEnd + 1, end) == offset;
+	}
+
+	/**
+	 * Return the line for the sense of <var>lemma</var> in the synset at <var>offset</var>,
+	 * without its line terminator, or null if there is no such line.
+	 * @param lemma the lemma, in lower case, with spaces replaced by underscores
+	 */
+	public String getLine(long offset, String lemma) {
+		long hash = hash(hashChars(lemma), offset);
+		int slot = slot(hash);
+		while (_hashes[slot] != 0) {
+			if (_hashes[slot] == hash && matches(_lines[slot], offset, lemma)) {
+				int start = _lines[slot];
+				int end = endOfLine(start);
+				if (end > start && _buffer.get(end - 1) == '\r') end--;
+				char[] line = new char[end - start];
+				for (int i = 0; i < line.length; i++) {
+					line[i] = (char)(_buffer.get(start + i) & 0xff);
+				}
+				return new String(line);
+			}
+			slot = (slot + 1) & (_hashes.length - 1);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.file_manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
+import net.didion.jwnl.util.TrigramIndex;
+
+/**
+ * An in-memory {@link TrigramIndex} of the first word of each line in a dictionary file (i.e.
+ * the lemma of each line of an index file), used to find the lines whose lemma contains a
+ * substring without reading the file. An iterator should find all its matches at once with
+ * {@link #getMatchingOffsets(String)} rather than asking for each in turn.
+ */
+public class SubstringIndex {
+	private TrigramIndex _lemmas;
+	/** The offset of the line of each lemma, in file order. */
+	private long[] _offsets;
+
+	private SubstringIndex(TrigramIndex lemmas, long[] offsets) {
+		_lemmas = lemmas;
+		_offsets = offsets;
+	}
+
+	/**
+	 * Build the index by reading every line of <var>file</var>. The file should
+	 * be a view that is not used by any other thread.
+	 */
+	public static SubstringIndex build(RandomAccessDictionaryFile file) throws IOException {
+		List lemmas = new ArrayList();
+		long[] offsets = LineIndex.readLineOffsets(file, lemmas);
+		return new SubstringIndex(new TrigramIndex((String[]) lemmas.toArray(new String[lemmas.size()])), offsets);
+	}
+
+	/**
+	 * Return the offset of the first line at or after <var>offset</var> whose lemma contains
+	 * <var>substring</var>, or -1 if there is no such line.
+	 */
+	public long getMatchingOffset(long offset, String substring) {
+		int[] matches = _lemmas.find(substring);
+		int low = 0;
+		int high = matches.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (_offsets[matches[mid]] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return (low < matches.length) ? _offsets[matches[low]] : -1;
+	}
+
+	/** Return the offsets, in file order, of all the lines whose lemma contains <var>substring</var>. */
+	public long[] getMatchingOffsets(String substring) {
+		int[] matches = _lemmas.find(substring);
+		long[] offsets = new long[matches.length];
+		for (int i = 0; i < matches.length; i++) {
+			offsets[i] = _offsets[matches[i]];
+		}
+		return offsets;
+	}
+
+	/** Return the number of lemmas in the index. */
+	public int size() {
+		return _offsets.length;
+	}
+
+	/** Return the approximate number of bytes of memory used by the index. */
+	public long getMemoryUsage() {
+		return _lemmas.getMemoryUsage() + 8L * _offsets.length;
+	}
+}
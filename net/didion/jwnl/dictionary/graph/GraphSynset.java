@@ -0,0 +1,124 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.graph;
+
+import java.util.BitSet;
+
+import net.didion.jwnl.data.LexFileIdMap;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerTarget;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.data.SynsetProxy;
+import net.didion.jwnl.data.VerbFrame;
+import net.didion.jwnl.data.Word;
+
+/**
+ * A view of one synset of a {@link WordNetGraph}. Only the graph and the synset's id are
+ * stored; the words and pointers are decoded from the graph the first time they are used,
+ * and the targets of a single pointer type are found without decoding any pointers at all.
+ */
+class GraphSynset extends Synset {
+	static final long serialVersionUID = 5129748123604932785L;
+
+	private transient WordNetGraph _graph;
+	private int _id;
+	private transient Word[] _words;
+	private transient Pointer[] _pointers;
+
+	public GraphSynset(WordNetGraph graph, int id) {
+		super(graph.getPOS(id), graph.getOffset(id), null, null, null, null);
+		_graph = graph;
+		_id = id;
+	}
+
+	public synchronized Word[] getWords() {
+		if (_words == null) {
+			_words = _graph.createWords(this, _id);
+		}
+		return _words;
+	}
+
+	public int getWordsSize() {
+		return _graph.getWordCount(_id);
+	}
+
+	public Word getWord(int index) {
+		return getWords()[index];
+	}
+
+	public boolean containsWord(String lemma) {
+		for (int i = 0; i < getWordsSize(); i++) {
+			if (_graph.getWordLemma(_id, i).equals(lemma))
+				return true;
+		}
+		return false;
+	}
+
+	public synchronized Pointer[] getPointers() {
+		if (_pointers == null) {
+			_pointers = _graph.createPointers(this, getWords(), _id);
+		}
+		return _pointers;
+	}
+
+	/** Find the targets from the graph's arrays, only creating the targets themselves. */
+	public PointerTarget[] getTargets(PointerType type) {
+		PointerTarget[] targets = new PointerTarget[_graph.getPointerCount(_id)];
+		int count = 0;
+		for (int i = 0; i < targets.length; i++) {
+			if (WordNetGraph.matches(type, _graph.getPointerType(_id, i))) {
+				Synset target = _graph.getSynset(_graph.getPointerTarget(_id, i));
+				int index = _graph.getPointerTargetIndex(_id, i);
+				targets[count++] = (index == 0) ? (PointerTarget) target : target.getWord(index - 1);
+			}
+		}
+		PointerTarget[] result = new PointerTarget[count];
+		System.arraycopy(targets, 0, result, 0, count);
+		return result;
+	}
+
+	public String getGloss() {
+		return _graph.getGloss(_id);
+	}
+
+	public boolean isAdjectiveCluster() {
+		return _graph.isAdjectiveCluster(_id);
+	}
+
+	public String[] getVerbFrames() {
+		return VerbFrame.getFrames(getVerbFrameFlags());
+	}
+
+	public BitSet getVerbFrameFlags() {
+		return _graph.getVerbFrames(_id);
+	}
+
+	public int[] getVerbFrameIndicies() {
+		return VerbFrame.getVerbFrameIndicies(getVerbFrameFlags());
+	}
+
+	public long getLexFileId() {
+		return _graph.getLexFileId(_id);
+	}
+
+	public String getLexFileName() {
+		return LexFileIdMap.getFileName(getLexFileId());
+	}
+
+	/**
+	 * The graph isn't serialized with its synsets, so serialize a plain copy of this synset
+	 * instead. The copy's pointers are resolved using the dictionary when they are read back.
+	 */
+	private Object writeReplace() {
+		SynsetProxy proxy = new SynsetProxy(getPOS());
+		Word[] words = _graph.createWords(proxy, _id);
+		Synset copy = new Synset(getPOS(), getOffset(), words, _graph.createPointers(proxy, words, _id),
+		                         getGloss(), getVerbFrameFlags(), isAdjectiveCluster());
+		copy.setLexFileId(getLexFileId());
+		proxy.setSource(copy);
+		return copy;
+	}
+}
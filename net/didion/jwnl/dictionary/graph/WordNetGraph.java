@@ -0,0 +1,706 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.Exc;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerTarget;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.data.Verb;
+import net.didion.jwnl.data.Word;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.SynsetIdMap;
+import net.didion.jwnl.util.MessageLog;
+import net.didion.jwnl.util.MessageLogLevel;
+
+/**
+ * The whole of a dictionary held in primitive arrays. Synsets are identified by the ids
+ * of a {@link SynsetIdMap}, lemmas by their position in a sorted array of every distinct
+ * lemma, and the words, pointers, index words and exceptions are stored in compressed
+ * sparse row form: the elements belonging to synset (or index word) <var>i</var> occupy
+ * positions <code>start[i]</code> to <code>start[i + 1]</code> of flat arrays.
+ * <p>
+ * The <code>Synset</code>s returned by {@link #getSynset(int)} are views which decode their
+ * words and pointers from the arrays when they are first asked for. Code which only needs
+ * the shape of the graph, such as walking the hypernym hierarchy, can avoid creating synsets
+ * at all by using {@link #getTargetIds(int, PointerType)}, which reads the adjacency list of
+ * a single pointer type.
+ * <p>
+ * A graph is immutable once built and may be shared between threads.
+ */
+public class WordNetGraph {
+	private static final MessageLog _log = new MessageLog(WordNetGraph.class);
+
+	private static final byte ADJECTIVE_CLUSTER = 1;
+	private static final List POINTER_TYPES = PointerType.getAllPointerTypes();
+
+	private SynsetIdMap _ids;
+	/** The dictionary serving this graph, which owns the synsets it returns. */
+	private Dictionary _dictionary;
+	/** Every distinct lemma, sorted. */
+	private String[] _lemmas;
+
+	// per synset
+	private int[] _lexFileIds;
+	private byte[] _flags;
+	private String[] _glosses;
+
+	// words
+	private int[] _wordStarts;
+	private int[] _wordLemmas;
+	private String[] _senseKeys;
+	private int[] _usageCounts;
+	private long[] _verbFrames;
+
+	// pointers
+	private int[] _pointerStarts;
+	/** The index of each pointer's type in <code>PointerType.getAllPointerTypes()</code>. */
+	private byte[] _pointerTypes;
+	private int[] _pointerTargets;
+	/** The index (plus one) of the word each pointer comes from, or 0 if it comes from the synset. */
+	private byte[] _pointerSources;
+	/** The index (plus one) of the word each pointer goes to, or 0 if it goes to the synset. */
+	private byte[] _pointerTargetIndexes;
+
+	/**
+	 * The adjacency list of each pointer type, built the first time it is used. The array is
+	 * replaced, never updated, when a list is added, so it can be read without locking.
+	 */
+	private volatile Adjacency[] _adjacency = new Adjacency[POINTER_TYPES.size()];
+
+	// index words and exceptions of each part-of-speech, sorted by lemma id
+	private POS[] _pos;
+	private int[][] _indexLemmas;
+	private int[][] _senseStarts;
+	private int[][] _senses;
+	private int[][] _excLemmas;
+	private int[][] _excStarts;
+	private int[][] _excTargets;
+
+	/**
+	 * Read every synset, index word and exception of <var>source</var> into a new graph.
+	 * Sense keys and usage counts are copied from the source dictionary as well.
+	 */
+	public static WordNetGraph build(Dictionary source) throws JWNLException {
+		long start = System.currentTimeMillis();
+		WordNetGraph graph = new Builder(source).build();
+		_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_009", new Object[] {
+		    new Integer(graph.getSynsetCount()), new Integer(graph._wordLemmas.length),
+		    new Integer(graph._pointerTargets.length), new Integer(graph._lemmas.length),
+		    new Long(System.currentTimeMillis() - start)});
+		return graph;
+	}
+
+	private WordNetGraph() {
+	}
+
+	/** Return the map between synsets and the ids used by this graph. */
+	public SynsetIdMap getSynsetIdMap() {
+		return _ids;
+	}
+
+	public int getSynsetCount() {
+		return _ids.size();
+	}
+
+	/** Set the dictionary serving this graph. It is set on every synset the graph returns. */
+	public void setDictionary(Dictionary dictionary) {
+		_dictionary = dictionary;
+	}
+
+	/** Return a view of the synset with id <var>id</var>. */
+	public Synset getSynset(int id) {
+		Synset synset = new GraphSynset(this, id);
+		synset.setDictionary(_dictionary);
+		return synset;
+	}
+
+	public POS getPOS(int id) {
+		return _ids.getPOS(id);
+	}
+
+	public long getOffset(int id) {
+		return _ids.getOffset(id);
+	}
+
+	public int getLexFileId(int id) {
+		return _lexFileIds[id];
+	}
+
+	public boolean isAdjectiveCluster(int id) {
+		return (_flags[id] & ADJECTIVE_CLUSTER) != 0;
+	}
+
+	public String getGloss(int id) {
+		return _glosses[id];
+	}
+
+	/** Return the number of words in the synset with id <var>id</var>. */
+	public int getWordCount(int id) {
+		return _wordStarts[id + 1] - _wordStarts[id];
+	}
+
+	/** Return the lemma of the <var>index</var>th word of the synset with id <var>id</var>. */
+	public String getWordLemma(int id, int index) {
+		return _lemmas[_wordLemmas[_wordStarts[id] + index]];
+	}
+
+	/** Return the number of pointers from the synset with id <var>id</var> (or its words). */
+	public int getPointerCount(int id) {
+		return _pointerStarts[id + 1] - _pointerStarts[id];
+	}
+
+	/** Return the type of the <var>index</var>th pointer of the synset with id <var>id</var>. */
+	public PointerType getPointerType(int id, int index) {
+		return (PointerType) POINTER_TYPES.get(_pointerTypes[_pointerStarts[id] + index]);
+	}
+
+	/** Return the id of the synset the <var>index</var>th pointer of the synset with id <var>id</var> points to. */
+	public int getPointerTarget(int id, int index) {
+		return _pointerTargets[_pointerStarts[id] + index];
+	}
+
+	/**
+	 * Return the index (plus one) of the word the <var>index</var>th pointer of the synset with
+	 * id <var>id</var> points to, or 0 if it points to the whole synset.
+	 */
+	public int getPointerTargetIndex(int id, int index) {
+		return _pointerTargetIndexes[_pointerStarts[id] + index] & 0xff;
+	}
+
+	/**
+	 * Return the ids of the synsets which are the targets of the pointers of type <var>type</var>
+	 * from the synset with id <var>id</var>, in the order of the pointers. As with
+	 * {@link net.didion.jwnl.data.PointerTarget#getPointers(PointerType)}, hypernyms include
+	 * instance hypernyms and hyponyms include instance hyponyms. Lexical pointers give the id of
+	 * the synset containing their target word.
+	 */
+	public int[] getTargetIds(int id, PointerType type) {
+		Adjacency adjacency = getAdjacency(type);
+		int start = adjacency._starts[id];
+		int[] targets = new int[adjacency._starts[id + 1] - start];
+		System.arraycopy(adjacency._targets, start, targets, 0, targets.length);
+		return targets;
+	}
+
+	/** Return the number of pointers of type <var>type</var> from the synset with id <var>id</var>. */
+	public int getTargetCount(int id, PointerType type) {
+		Adjacency adjacency = getAdjacency(type);
+		return adjacency._starts[id + 1] - adjacency._starts[id];
+	}
+
+	private Adjacency getAdjacency(PointerType type) {
+		Adjacency adjacency = _adjacency[type.getIndex()];
+		return (adjacency != null) ? adjacency : buildAdjacency(type);
+	}
+
+	/** Build the adjacency list of <var>type</var> if another thread hasn't already, and publish it. */
+	private synchronized Adjacency buildAdjacency(PointerType type) {
+		int t = type.getIndex();
+		if (_adjacency[t] == null) {
+			int n = getSynsetCount();
+			int[] starts = new int[n + 1];
+			for (int id = 0; id < n; id++) {
+				starts[id + 1] = starts[id];
+				for (int p = _pointerStarts[id]; p < _pointerStarts[id + 1]; p++) {
+					if (matches(type, _pointerTypes[p])) {
+						starts[id + 1]++;
+					}
+				}
+			}
+			int[] targets = new int[starts[n]];
+			for (int id = 0, i = 0; id < n; id++) {
+				for (int p = _pointerStarts[id]; p < _pointerStarts[id + 1]; p++) {
+					if (matches(type, _pointerTypes[p])) {
+						targets[i++] = _pointerTargets[p];
+					}
+				}
+			}
+			Adjacency[] adjacency = (Adjacency[]) _adjacency.clone();
+			adjacency[t] = new Adjacency(starts, targets);
+			_adjacency = adjacency;
+		}
+		return _adjacency[t];
+	}
+
+	/** The targets of the pointers of one type, in compressed sparse row form. */
+	private static final class Adjacency {
+		private final int[] _starts;
+		private final int[] _targets;
+
+		private Adjacency(int[] starts, int[] targets) {
+			_starts = starts;
+			_targets = targets;
+		}
+	}
+
+	private static boolean matches(PointerType type, int t) {
+		return matches(type, (PointerType) POINTER_TYPES.get(t));
+	}
+
+	/** Return true if a pointer of type <var>pointerType</var> is one of the pointers of type <var>type</var>. */
+	static boolean matches(PointerType type, PointerType pointerType) {
+		return pointerType.equals(type)
+		    || type.equals(PointerType.HYPERNYM) && pointerType.equals(PointerType.INSTANCE_HYPERNYM)
+		    || type.equals(PointerType.HYPONYM) && pointerType.equals(PointerType.INSTANCES_HYPONYM);
+	}
+
+	/** Return the number of distinct lemmas in the graph. */
+	public int getLemmaCount() {
+		return _lemmas.length;
+	}
+
+	public String getLemma(int lemmaId) {
+		return _lemmas[lemmaId];
+	}
+
+	/** Return the id of <var>lemma</var>, or a negative number if it is not in the graph. */
+	public int getLemmaId(String lemma) {
+		return Arrays.binarySearch(_lemmas, lemma);
+	}
+
+	public int getIndexWordCount(POS pos) {
+		int p = indexOf(pos);
+		return (p < 0) ? 0 : _indexLemmas[p].length;
+	}
+
+	/** Return the position of the index word <var>lemma</var> of <var>pos</var>, or -1 if there is none. */
+	public int findIndexWord(POS pos, String lemma) {
+		int p = indexOf(pos);
+		return (p < 0) ? -1 : find(_indexLemmas[p], lemma);
+	}
+
+	/** Create the <var>index</var>th index word of <var>pos</var>. */
+	public IndexWord createIndexWord(POS pos, int index) {
+		int p = indexOf(pos);
+		long[] offsets = new long[_senseStarts[p][index + 1] - _senseStarts[p][index]];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = _ids.getOffset(_senses[p][_senseStarts[p][index] + i]);
+		}
+		return new IndexWord(_lemmas[_indexLemmas[p][index]], pos, offsets);
+	}
+
+	public int getExceptionCount(POS pos) {
+		int p = indexOf(pos);
+		return (p < 0) ? 0 : _excLemmas[p].length;
+	}
+
+	/** Return the position of the exception <var>derivation</var> of <var>pos</var>, or -1 if there is none. */
+	public int findException(POS pos, String derivation) {
+		int p = indexOf(pos);
+		return (p < 0) ? -1 : find(_excLemmas[p], derivation);
+	}
+
+	/** Create the <var>index</var>th exception of <var>pos</var>. */
+	public Exc createExc(POS pos, int index) {
+		int p = indexOf(pos);
+		List exceptions = new ArrayList(_excStarts[p][index + 1] - _excStarts[p][index]);
+		for (int i = _excStarts[p][index]; i < _excStarts[p][index + 1]; i++) {
+			exceptions.add(_lemmas[_excTargets[p][i]]);
+		}
+		return new Exc(pos, _lemmas[_excLemmas[p][index]], exceptions);
+	}
+
+	/**
+	 * Return the position of the word <var>lemma</var> within the synset at <var>offset</var>, in
+	 * the flat word arrays, or -1 if there is no such word. Since the offset alone doesn't say which
+	 * part-of-speech the synset belongs to, the synsets of each are tried in turn.
+	 */
+	private int findWord(long offset, String lemma) {
+		int lemmaId = getLemmaId(lemma.replace(' ', '_'));
+		if (lemmaId < 0) {
+			return -1;
+		}
+		for (int i = 0; i < _pos.length; i++) {
+			int id = _ids.getId(_pos[i], offset);
+			if (id != SynsetIdMap.NO_ID) {
+				for (int w = _wordStarts[id]; w < _wordStarts[id + 1]; w++) {
+					if (_wordLemmas[w] == lemmaId) {
+						return w;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/** Return the usage count of the word <var>lemma</var> in the synset at <var>offset</var>. */
+	public int getUsageCount(long offset, String lemma) {
+		int w = findWord(offset, lemma);
+		return (w < 0) ? 0 : _usageCounts[w];
+	}
+
+	/** Return the sense key of the word <var>lemma</var> in the synset at <var>offset</var>. */
+	public String getSenseKey(long offset, String lemma) {
+		int w = findWord(offset, lemma);
+		return (w < 0) ? null : _senseKeys[w];
+	}
+
+	/** Decode the words of the synset with id <var>id</var>, attached to <var>synset</var>. */
+	Word[] createWords(Synset synset, int id) {
+		Word[] words = new Word[getWordCount(id)];
+		for (int i = 0; i < words.length; i++) {
+			int w = _wordStarts[id] + i;
+			if (synset.getPOS() == POS.VERB) {
+				words[i] = new Verb(synset, i, _lemmas[_wordLemmas[w]], toBitSet(_verbFrames[w]));
+			} else {
+				words[i] = new Word(synset, i, _lemmas[_wordLemmas[w]]);
+			}
+			words[i].setSenseKey(_senseKeys[w]);
+			words[i].setUsageCount(_usageCounts[w]);
+		}
+		return words;
+	}
+
+	/** Decode the pointers of the synset with id <var>id</var>, whose words are <var>words</var>. */
+	Pointer[] createPointers(Synset synset, Word[] words, int id) {
+		Pointer[] pointers = new Pointer[getPointerCount(id)];
+		for (int i = 0; i < pointers.length; i++) {
+			int p = _pointerStarts[id] + i;
+			int source = _pointerSources[p] & 0xff;
+			int target = _pointerTargets[p];
+			int targetIndex = _pointerTargetIndexes[p] & 0xff;
+			pointers[i] = new Pointer((source == 0) ? (PointerTarget) synset : words[source - 1], i,
+			                          (PointerType) POINTER_TYPES.get(_pointerTypes[p]),
+			                          _ids.getPOS(target), _ids.getOffset(target), targetIndex);
+			// the target is already known, so it never has to be looked up in the dictionary
+			Synset targetSynset = getSynset(target);
+			if (targetIndex == 0) {
+				pointers[i].setTarget(targetSynset);
+			} else {
+				pointers[i].setTarget(targetSynset.getWord(targetIndex - 1));
+			}
+		}
+		return pointers;
+	}
+
+	/** Return the verb frames shared by any of the words of the synset with id <var>id</var>. */
+	BitSet getVerbFrames(int id) {
+		long frames = 0;
+		for (int w = _wordStarts[id]; w < _wordStarts[id + 1]; w++) {
+			frames |= _verbFrames[w];
+		}
+		return toBitSet(frames);
+	}
+
+	private int indexOf(POS pos) {
+		for (int i = 0; i < _pos.length; i++) {
+			if (_pos[i] == pos) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int find(int[] lemmaIds, String lemma) {
+		int lemmaId = getLemmaId(lemma);
+		int index = (lemmaId < 0) ? -1 : Arrays.binarySearch(lemmaIds, lemmaId);
+		return (index < 0) ? -1 : index;
+	}
+
+	private static BitSet toBitSet(long bits) {
+		BitSet set = new BitSet();
+		for (int i = 0; bits != 0; i++, bits >>>= 1) {
+			if ((bits & 1) != 0) {
+				set.set(i);
+			}
+		}
+		return set;
+	}
+
+	private static long toLong(BitSet set) {
+		long bits = 0;
+		for (int i = set.nextSetBit(0); i >= 0 && i < 64; i = set.nextSetBit(i + 1)) {
+			bits |= 1L << i;
+		}
+		return bits;
+	}
+
+	/**
+	 * Copies a dictionary into the arrays of a graph. Lemmas are given temporary ids in the
+	 * order they are met, which are replaced by their sorted ids once every lemma is known.
+	 */
+	private static final class Builder {
+		private Dictionary _source;
+		private WordNetGraph _graph = new WordNetGraph();
+		private Map _lemmaIds = new HashMap();
+		private List _lemmas = new ArrayList();
+
+		private IntList _wordLemmas = new IntList();
+		private List _senseKeys = new ArrayList();
+		private IntList _usageCounts = new IntList();
+		private LongList _verbFrames = new LongList();
+		private IntList _pointerTypes = new IntList();
+		private IntList _pointerTargets = new IntList();
+		private IntList _pointerSources = new IntList();
+		private IntList _pointerTargetIndexes = new IntList();
+
+		public Builder(Dictionary source) {
+			_source = source;
+		}
+
+		public WordNetGraph build() throws JWNLException {
+			SynsetIdMap ids = _source.getSynsetIdMap();
+			_graph._ids = ids;
+			addSynsets(ids);
+
+			List allPOS = POS.getAllPOS();
+			_graph._pos = (POS[]) allPOS.toArray(new POS[allPOS.size()]);
+			int[][] indexLemmas = new int[_graph._pos.length][];
+			int[][] excLemmas = new int[_graph._pos.length][];
+			for (int i = 0; i < _graph._pos.length; i++) {
+				indexLemmas[i] = addIndexWords(_graph._pos[i], i);
+				excLemmas[i] = addExceptions(_graph._pos[i], i);
+			}
+
+			// give the lemmas their sorted ids and sort the index words and exceptions by them
+			String[] lemmas = (String[]) _lemmas.toArray(new String[_lemmas.size()]);
+			String[] sorted = (String[]) lemmas.clone();
+			Arrays.sort(sorted);
+			int[] remap = new int[lemmas.length];
+			for (int i = 0; i < lemmas.length; i++) {
+				remap[i] = Arrays.binarySearch(sorted, lemmas[i]);
+			}
+			_graph._lemmas = sorted;
+			_graph._wordLemmas = remap(_wordLemmas.toArray(), remap);
+			for (int i = 0; i < _graph._pos.length; i++) {
+				_graph._excTargets[i] = remap(_graph._excTargets[i], remap);
+				int[] keys = remap(indexLemmas[i], remap);
+				int[] order = sortedOrder(keys);
+				_graph._indexLemmas[i] = permute(keys, order);
+				int[][] csr = permute(_graph._senseStarts[i], _graph._senses[i], order);
+				_graph._senseStarts[i] = csr[0];
+				_graph._senses[i] = csr[1];
+				keys = remap(excLemmas[i], remap);
+				order = sortedOrder(keys);
+				_graph._excLemmas[i] = permute(keys, order);
+				csr = permute(_graph._excStarts[i], _graph._excTargets[i], order);
+				_graph._excStarts[i] = csr[0];
+				_graph._excTargets[i] = csr[1];
+			}
+
+			_graph._senseKeys = (String[]) _senseKeys.toArray(new String[_senseKeys.size()]);
+			_graph._usageCounts = _usageCounts.toArray();
+			_graph._verbFrames = _verbFrames.toArray();
+			_graph._pointerTypes = _pointerTypes.toByteArray();
+			_graph._pointerTargets = _pointerTargets.toArray();
+			_graph._pointerSources = _pointerSources.toByteArray();
+			_graph._pointerTargetIndexes = _pointerTargetIndexes.toByteArray();
+			return _graph;
+		}
+
+		private void addSynsets(SynsetIdMap ids) throws JWNLException {
+			int n = ids.size();
+			_graph._lexFileIds = new int[n];
+			_graph._flags = new byte[n];
+			_graph._glosses = new String[n];
+			_graph._wordStarts = new int[n + 1];
+			_graph._pointerStarts = new int[n + 1];
+			// the ids follow the order of the offsets, so the synsets are read in order of id
+			for (int id = 0; id < n; id++) {
+				Synset synset = _source.getSynsetById(id);
+				_graph._lexFileIds[id] = (int) synset.getLexFileId();
+				_graph._flags[id] = synset.isAdjectiveCluster() ? ADJECTIVE_CLUSTER : 0;
+				_graph._glosses[id] = synset.getGloss();
+
+				Word[] words = synset.getWords();
+				for (int i = 0; i < words.length; i++) {
+					_wordLemmas.add(getLemmaId(words[i].getLemma()));
+					_senseKeys.add(_source.getSenseKey(synset.getOffset(), words[i].getLemma()));
+					_usageCounts.add(_source.getUsageCount(synset.getOffset(), words[i].getLemma()));
+					_verbFrames.add((words[i] instanceof Verb) ? toLong(((Verb) words[i]).getVerbFrameFlags()) : 0);
+				}
+				_graph._wordStarts[id + 1] = _wordLemmas.size();
+
+				Pointer[] pointers = synset.getPointers();
+				for (int i = 0; i < pointers.length; i++) {
+					int target = ids.getId(pointers[i].getTargetPOS(), pointers[i].getTargetOffset());
+					if (target == SynsetIdMap.NO_ID) {
+						throw new JWNLException("DICTIONARY_EXCEPTION_036", new Object[] {
+						    synset.getPOS(), new Long(synset.getOffset()),
+						    pointers[i].getTargetPOS(), new Long(pointers[i].getTargetOffset())});
+					}
+					_pointerTypes.add(pointers[i].getType().getIndex());
+					_pointerTargets.add(target);
+					_pointerSources.add(pointers[i].isLexical() ? ((Word) pointers[i].getSource()).getIndex() + 1 : 0);
+					_pointerTargetIndexes.add(pointers[i].getTargetIndex());
+				}
+				_graph._pointerStarts[id + 1] = _pointerTargets.size();
+			}
+		}
+
+		/** Read the index words of <var>pos</var>, returning their (temporary) lemma ids. */
+		private int[] addIndexWords(POS pos, int p) throws JWNLException {
+			if (_graph._senseStarts == null) {
+				_graph._indexLemmas = new int[_graph._pos.length][];
+				_graph._senseStarts = new int[_graph._pos.length][];
+				_graph._senses = new int[_graph._pos.length][];
+			}
+			IntList lemmas = new IntList();
+			IntList starts = new IntList();
+			IntList senses = new IntList();
+			starts.add(0);
+			for (Iterator itr = _source.getIndexWordIterator(pos); itr.hasNext();) {
+				IndexWord word = (IndexWord) itr.next();
+				lemmas.add(getLemmaId(word.getLemma()));
+				long[] offsets = word.getSynsetOffsets();
+				for (int i = 0; i < offsets.length; i++) {
+					int sense = _graph._ids.getId(pos, offsets[i]);
+					if (sense == SynsetIdMap.NO_ID) {
+						throw new JWNLException("DICTIONARY_EXCEPTION_038", new Object[] {
+						    word.getLemma(), pos, new Long(offsets[i])});
+					}
+					senses.add(sense);
+				}
+				starts.add(senses.size());
+			}
+			_graph._senseStarts[p] = starts.toArray();
+			_graph._senses[p] = senses.toArray();
+			return lemmas.toArray();
+		}
+
+		/** Read the exceptions of <var>pos</var>, returning their (temporary) lemma ids. */
+		private int[] addExceptions(POS pos, int p) throws JWNLException {
+			if (_graph._excStarts == null) {
+				_graph._excLemmas = new int[_graph._pos.length][];
+				_graph._excStarts = new int[_graph._pos.length][];
+				_graph._excTargets = new int[_graph._pos.length][];
+			}
+			IntList lemmas = new IntList();
+			IntList starts = new IntList();
+			IntList targets = new IntList();
+			starts.add(0);
+			for (Iterator itr = _source.getExceptionIterator(pos); itr.hasNext();) {
+				Exc exc = (Exc) itr.next();
+				lemmas.add(getLemmaId(exc.getLemma()));
+				for (Iterator e = exc.getExceptions().iterator(); e.hasNext();) {
+					targets.add(getLemmaId((String) e.next()));
+				}
+				starts.add(targets.size());
+			}
+			_graph._excStarts[p] = starts.toArray();
+			_graph._excTargets[p] = targets.toArray();
+			return lemmas.toArray();
+		}
+
+		private int getLemmaId(String lemma) {
+			Integer id = (Integer) _lemmaIds.get(lemma);
+			if (id == null) {
+				id = new Integer(_lemmas.size());
+				_lemmaIds.put(lemma, id);
+				_lemmas.add(lemma);
+			}
+			return id.intValue();
+		}
+
+		private static int[] remap(int[] ids, int[] remap) {
+			int[] result = new int[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				result[i] = remap[ids[i]];
+			}
+			return result;
+		}
+
+		/** Return the positions of <var>keys</var> in ascending order of key. */
+		private static int[] sortedOrder(int[] keys) {
+			long[] pairs = new long[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				pairs[i] = ((long) keys[i] << 32) | i;
+			}
+			Arrays.sort(pairs);
+			int[] order = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				order[i] = (int) pairs[i];
+			}
+			return order;
+		}
+
+		private static int[] permute(int[] values, int[] order) {
+			int[] result = new int[values.length];
+			for (int i = 0; i < order.length; i++) {
+				result[i] = values[order[i]];
+			}
+			return result;
+		}
+
+		/** Reorder the rows of a compressed sparse row array, returning the new starts and values. */
+		private static int[][] permute(int[] starts, int[] values, int[] order) {
+			int[] newStarts = new int[starts.length];
+			int[] newValues = new int[values.length];
+			for (int i = 0; i < order.length; i++) {
+				int length = starts[order[i] + 1] - starts[order[i]];
+				System.arraycopy(values, starts[order[i]], newValues, newStarts[i], length);
+				newStarts[i + 1] = newStarts[i] + length;
+			}
+			return new int[][] {newStarts, newValues};
+		}
+	}
+
+	/** A growable array of ints. */
+	private static final class IntList {
+		private int[] _values = new int[1024];
+		private int _size = 0;
+
+		public void add(int value) {
+			if (_size == _values.length) {
+				int[] grown = new int[_size * 2];
+				System.arraycopy(_values, 0, grown, 0, _size);
+				_values = grown;
+			}
+			_values[_size++] = value;
+		}
+
+		public int size() {
+			return _size;
+		}
+
+		public int[] toArray() {
+			int[] values = new int[_size];
+			System.arraycopy(_values, 0, values, 0, _size);
+			return values;
+		}
+
+		public byte[] toByteArray() {
+			byte[] values = new byte[_size];
+			for (int i = 0; i < _size; i++) {
+				values[i] = (byte) _values[i];
+			}
+			return values;
+		}
+	}
+
+	/** A growable array of longs. */
+	private static final class LongList {
+		private long[] _values = new long[1024];
+		private int _size = 0;
+
+		public void add(long value) {
+			if (_size == _values.length) {
+				long[] grown = new long[_size * 2];
+				System.arraycopy(_values, 0, grown, 0, _size);
+				_values = grown;
+			}
+			_values[_size++] = value;
+		}
+
+		public long[] toArray() {
+			long[] values = new long[_size];
+			System.arraycopy(_values, 0, values, 0, _size);
+			return values;
+		}
+	}
+}
@@ -0,0 +1,426 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.image;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import net.didion.jwnl.JWNLRuntimeException;
+import net.didion.jwnl.data.Exc;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerTarget;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.data.SynsetProxy;
+import net.didion.jwnl.data.Verb;
+import net.didion.jwnl.data.Word;
+import net.didion.jwnl.util.LemmaPool;
+
+/**
+ * A memory mapped dictionary image, as written by {@link DictionaryImageWriter}. Nothing
+ * is read from the image until it is needed: each call to one of the <code>create</code>
+ * methods decodes a single record straight from the mapped bytes.
+ * <p>
+ * An image is laid out as follows (all numbers are big-endian):
+ * <pre>
+ * header     MAGIC, VERSION, pool start, pool length, record start, record length, POS count
+ * directory  for each POS: POS key, then the entry count and start of its synset,
+ *            index word and exception tables
+ * pool       strings, each an int byte count followed by the UTF-8 bytes; a string is
+ *            referred to by its position in the pool
+ * records    the variable length synset, index word and exception records
+ * tables     fixed width (key, record) pairs, synsets sorted by offset and index words
+ *            and exceptions sorted by lemma, so each can be binary searched
+ * </pre>
+ * A synset record holds the lex file id, flags, word and pointer counts and the gloss,
+ * followed by a (lemma, sense key, usage count[, verb frames]) entry per word and a
+ * (symbol, target offset, target POS, source index, target index) entry per pointer.
+ * An index word record holds the synset offsets of the word's senses, and an exception
+ * record the exception lemmas.
+ */
+public class DictionaryImage {
+	/** The first four bytes of every image ("JWNI"). */
+	public static final int MAGIC = 0x4A574E49;
+	/** The version of the format written by this release. */
+	public static final int VERSION = 1;
+
+	/** The size, in ints, of each part-of-speech's directory entry. */
+	static final int DIRECTORY_ENTRY_SIZE = 7;
+	/** The size, in bytes, of each table entry. */
+	static final int TABLE_ENTRY_SIZE = 8;
+	/** Value stored in place of a string that is not present. */
+	static final int NO_STRING = -1;
+	/** Synset record flag marking a synset as part of an adjective cluster. */
+	static final int ADJECTIVE_CLUSTER = 1;
+
+	static final int SYNSET_TABLE = 0;
+	static final int INDEX_TABLE = 1;
+	static final int EXCEPTION_TABLE = 2;
+
+	private File _file;
+	private FileChannel _channel;
+	/** The mapped image. Only absolute gets are used, so it can be shared between threads. */
+	private ByteBuffer _buffer;
+	private int _poolStart;
+	private int _recordStart;
+	/** The part-of-speech of each directory entry. */
+	private POS[] _pos;
+	/** The entry count and table start of each table of each part-of-speech. */
+	private int[][] _counts;
+	private int[][] _tables;
+	/** The lemmas of the elements decoded from the image, so each is only held once. */
+	private LemmaPool _lemmas = new LemmaPool();
+
+	/** Map <var>file</var> into memory. */
+	public DictionaryImage(File file) throws IOException {
+		_file = file;
+		FileChannel channel = new FileInputStream(file).getChannel();
+		if (channel.size() > Integer.MAX_VALUE) {
+			channel.close();
+			throw new JWNLRuntimeException("DICTIONARY_EXCEPTION_034", file);
+		}
+		_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		_channel = channel;
+		if (_buffer.limit() < 28 || _buffer.getInt(0) != MAGIC || _buffer.getInt(4) != VERSION) {
+			close();
+			throw new JWNLRuntimeException("DICTIONARY_EXCEPTION_032", file);
+		}
+		_poolStart = _buffer.getInt(8);
+		_recordStart = _buffer.getInt(16);
+		int posCount = _buffer.getInt(24);
+		_pos = new POS[posCount];
+		_counts = new int[posCount][3];
+		_tables = new int[posCount][3];
+		int position = 28;
+		for (int i = 0; i < posCount; i++) {
+			_pos[i] = POS.getPOSForKey((char) _buffer.getInt(position));
+			for (int j = 0; j < 3; j++) {
+				_counts[i][j] = _buffer.getInt(position + 4 + j * 8);
+				_tables[i][j] = _buffer.getInt(position + 8 + j * 8);
+			}
+			position += DIRECTORY_ENTRY_SIZE * 4;
+		}
+	}
+
+	public File getFile() {
+		return _file;
+	}
+
+	/** Return the size of the image, in bytes. */
+	public int length() {
+		return _buffer.limit();
+	}
+
+	public void close() {
+		try {
+			_buffer = null;
+			_channel.close();
+		} catch (IOException ex) {
+		}
+	}
+
+	/** Return the number of synsets of part-of-speech <var>pos</var>. */
+	public int getSynsetCount(POS pos) {
+		return getCount(pos, SYNSET_TABLE);
+	}
+
+	/** Return the number of index words of part-of-speech <var>pos</var>. */
+	public int getIndexWordCount(POS pos) {
+		return getCount(pos, INDEX_TABLE);
+	}
+
+	/** Return the number of exceptions of part-of-speech <var>pos</var>. */
+	public int getExceptionCount(POS pos) {
+		return getCount(pos, EXCEPTION_TABLE);
+	}
+
+	/**
+	 * Return the position in the synset table of the synset at <var>offset</var>
+	 * in the data file, or -1 if there is no such synset.
+	 */
+	public int findSynset(POS pos, long offset) {
+		int p = getDirectoryIndex(pos);
+		if (p < 0) return -1;
+		int table = _tables[p][SYNSET_TABLE];
+		int low = 0;
+		int high = _counts[p][SYNSET_TABLE] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long key = _buffer.getInt(table + mid * TABLE_ENTRY_SIZE) & 0xffffffffL;
+			if (key < offset) {
+				low = mid + 1;
+			} else if (key > offset) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the position in the index word table of <var>lemma</var>, or -1 if
+	 * there is no such word. <var>lemma</var> should already be prepared for lookup.
+	 */
+	public int findIndexWord(POS pos, String lemma) {
+		return findLemma(pos, INDEX_TABLE, lemma);
+	}
+
+	/** Return the position in the exception table of <var>derivation</var>, or -1. */
+	public int findException(POS pos, String derivation) {
+		return findLemma(pos, EXCEPTION_TABLE, derivation);
+	}
+
+	/** Return the data file offset of the <var>index</var>th synset. */
+	public long getSynsetOffset(POS pos, int index) {
+		return getKey(pos, SYNSET_TABLE, index) & 0xffffffffL;
+	}
+
+	/** Decode the <var>index</var>th synset of part-of-speech <var>pos</var>. */
+	public Synset createSynset(POS pos, int index) {
+		return createSynset(pos, index, false);
+	}
+
+	/**
+	 * Decode the <var>index</var>th synset of part-of-speech <var>pos</var>. If <var>lazyGloss</var>
+	 * is true the gloss is left in the image until it is asked for.
+	 */
+	public Synset createSynset(POS pos, int index, boolean lazyGloss) {
+		long offset = getSynsetOffset(pos, index);
+		int position = getRecord(pos, SYNSET_TABLE, index);
+		int lexFileId = _buffer.getInt(position);
+		int flags = _buffer.get(position + 4);
+		int wordCount = _buffer.getShort(position + 5);
+		int pointerCount = _buffer.getShort(position + 7);
+		String gloss = lazyGloss ? null : getString(_buffer.getInt(position + 9));
+		position += 13;
+
+		SynsetProxy proxy = new SynsetProxy(pos);
+		BitSet verbFrames = new BitSet();
+		Word[] words = new Word[wordCount];
+		for (int i = 0; i < wordCount; i++) {
+			String lemma = getLemma(_buffer.getInt(position));
+			String senseKey = getString(_buffer.getInt(position + 4));
+			int usageCount = _buffer.getInt(position + 8);
+			position += 12;
+			if (pos == POS.VERB) {
+				BitSet flagsForWord = toBitSet(_buffer.getLong(position));
+				position += 8;
+				words[i] = new Verb(proxy, i, lemma, flagsForWord);
+				verbFrames.or(flagsForWord);
+			} else {
+				words[i] = new Word(proxy, i, lemma);
+			}
+			words[i].setSenseKey(senseKey);
+			words[i].setUsageCount(usageCount);
+		}
+
+		Pointer[] pointers = new Pointer[pointerCount];
+		for (int i = 0; i < pointerCount; i++) {
+			PointerType pointerType = PointerType.getPointerTypeForKey(getString(_buffer.getInt(position)));
+			long targetOffset = _buffer.getInt(position + 4) & 0xffffffffL;
+			POS targetPOS = POS.getPOSForKey((char) _buffer.get(position + 8));
+			int sourceIndex = _buffer.get(position + 9) & 0xff;
+			int targetIndex = _buffer.get(position + 10) & 0xff;
+			position += 11;
+			PointerTarget source = (sourceIndex == 0) ? (PointerTarget) proxy : (PointerTarget) words[sourceIndex - 1];
+			pointers[i] = new Pointer(source, i, pointerType, targetPOS, targetOffset, targetIndex);
+		}
+
+		Synset synset;
+		if (lazyGloss) {
+			synset = new Synset(pos, offset, words, pointers, verbFrames, (flags & ADJECTIVE_CLUSTER) != 0);
+		} else {
+			synset = new Synset(pos, offset, words, pointers, gloss, verbFrames, (flags & ADJECTIVE_CLUSTER) != 0);
+		}
+		synset.setLexFileId(lexFileId);
+		proxy.setSource(synset);
+		return proxy;
+	}
+
+	/** Return the gloss of the synset at <var>offset</var>, or null if there is no such synset. */
+	public String getGloss(POS pos, long offset) {
+		int index = findSynset(pos, offset);
+		return (index < 0) ? null : getString(_buffer.getInt(getRecord(pos, SYNSET_TABLE, index) + 9));
+	}
+
+	/** Return the lemma of the <var>index</var>th index word of part-of-speech <var>pos</var>. */
+	public String getIndexWordLemma(POS pos, int index) {
+		return getLemma(getKey(pos, INDEX_TABLE, index));
+	}
+
+	/** Return the derivation of the <var>index</var>th exception of part-of-speech <var>pos</var>. */
+	public String getExceptionLemma(POS pos, int index) {
+		return getLemma(getKey(pos, EXCEPTION_TABLE, index));
+	}
+
+	/** Decode the <var>index</var>th index word of part-of-speech <var>pos</var>. */
+	public IndexWord createIndexWord(POS pos, int index) {
+		String lemma = getLemma(getKey(pos, INDEX_TABLE, index));
+		int position = getRecord(pos, INDEX_TABLE, index);
+		long[] offsets = new long[_buffer.getInt(position)];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = _buffer.getInt(position + 4 + i * 4) & 0xffffffffL;
+		}
+		return new IndexWord(lemma, pos, offsets);
+	}
+
+	/** Decode the <var>index</var>th exception of part-of-speech <var>pos</var>. */
+	public Exc createExc(POS pos, int index) {
+		String lemma = getLemma(getKey(pos, EXCEPTION_TABLE, index));
+		int position = getRecord(pos, EXCEPTION_TABLE, index);
+		int count = _buffer.getInt(position);
+		List exceptions = new ArrayList(count);
+		for (int i = 0; i < count; i++) {
+			exceptions.add(getLemma(_buffer.getInt(position + 4 + i * 4)));
+		}
+		return new Exc(pos, lemma, exceptions);
+	}
+
+	/**
+	 * Return the position of the word with lemma <var>lemma</var> in the record of the
+	 * <var>index</var>th synset, or -1 if the synset has no such word.
+	 */
+	private int findWord(POS pos, int index, String lemma) {
+		int position = getRecord(pos, SYNSET_TABLE, index);
+		int wordCount = _buffer.getShort(position + 5);
+		position += 13;
+		int wordSize = (pos == POS.VERB) ? 20 : 12;
+		for (int i = 0; i < wordCount; i++, position += wordSize) {
+			if (lemma.equalsIgnoreCase(getString(_buffer.getInt(position)))) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the usage count of the word <var>lemma</var> in the synset at <var>offset</var>,
+	 * or 0 if there is no such word.
+	 */
+	public int getUsageCount(long offset, String lemma) {
+		lemma = lemma.replace(' ', '_');
+		for (int i = 0; i < _pos.length; i++) {
+			int index = findSynset(_pos[i], offset);
+			int position = (index < 0) ? -1 : findWord(_pos[i], index, lemma);
+			if (position >= 0) {
+				return _buffer.getInt(position + 8);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the sense key of the word <var>lemma</var> in the synset at <var>offset</var>,
+	 * or null if there is no such word.
+	 */
+	public String getSenseKey(long offset, String lemma) {
+		lemma = lemma.replace(' ', '_');
+		for (int i = 0; i < _pos.length; i++) {
+			int index = findSynset(_pos[i], offset);
+			int position = (index < 0) ? -1 : findWord(_pos[i], index, lemma);
+			if (position >= 0) {
+				return getString(_buffer.getInt(position + 4));
+			}
+		}
+		return null;
+	}
+
+	private int findLemma(POS pos, int table, String lemma) {
+		int p = getDirectoryIndex(pos);
+		if (p < 0) return -1;
+		int start = _tables[p][table];
+		int low = 0;
+		int high = _counts[p][table] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = getString(_buffer.getInt(start + mid * TABLE_ENTRY_SIZE)).compareTo(lemma);
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private int getDirectoryIndex(POS pos) {
+		for (int i = 0; i < _pos.length; i++) {
+			if (_pos[i] == pos) return i;
+		}
+		return -1;
+	}
+
+	private int getCount(POS pos, int table) {
+		int p = getDirectoryIndex(pos);
+		return (p < 0) ? 0 : _counts[p][table];
+	}
+
+	private int getKey(POS pos, int table, int index) {
+		return _buffer.getInt(getTableEntry(pos, table, index));
+	}
+
+	private int getRecord(POS pos, int table, int index) {
+		return _recordStart + _buffer.getInt(getTableEntry(pos, table, index) + 4);
+	}
+
+	private int getTableEntry(POS pos, int table, int index) {
+		int p = getDirectoryIndex(pos);
+		if (p < 0 || index < 0 || index >= _counts[p][table]) {
+			throw new IndexOutOfBoundsException(pos + " " + index);
+		}
+		return _tables[p][table] + index * TABLE_ENTRY_SIZE;
+	}
+
+	/** Decode the lemma at position <var>handle</var> in the pool, and return its pooled copy. */
+	private String getLemma(int handle) {
+		return _lemmas.intern(getString(handle));
+	}
+
+	/** Decode the string at position <var>handle</var> in the pool. */
+	private String getString(int handle) {
+		if (handle == NO_STRING) {
+			return null;
+		}
+		int position = _poolStart + handle;
+		int length = _buffer.getInt(position);
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = _buffer.get(position + 4 + i);
+		}
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException ex) {
+			throw new JWNLRuntimeException("DICTIONARY_EXCEPTION_031", _file, ex);
+		}
+	}
+
+	private static BitSet toBitSet(long bits) {
+		BitSet set = new BitSet();
+		for (int i = 0; bits != 0; i++, bits >>>= 1) {
+			if ((bits & 1) != 0) set.set(i);
+		}
+		return set;
+	}
+
+	static long toLong(BitSet set) {
+		long bits = 0;
+		for (int i = set.nextSetBit(0); i >= 0 && i < 64; i = set.nextSetBit(i + 1)) {
+			bits |= 1L << i;
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,381 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.dictionary.image;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.Exc;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.data.Verb;
+import net.didion.jwnl.data.Word;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.util.MessageLog;
+import net.didion.jwnl.util.MessageLogLevel;
+
+/**
+ * Writes the contents of a <code>Dictionary</code> to a {@link DictionaryImage}.
+ * Sense keys and usage counts are copied from the source dictionary as well.
+ * <p>
+ * Each file is read once. The string pool and records are streamed to temporary files
+ * next to the image as they are encoded, so only the (key, record) tables, the shared
+ * lemma strings and a few batches of parsed elements are held in memory at any time.
+ * If the dictionary can split its files (see {@link Dictionary#getSynsetIterators(POS, int)}),
+ * each batch of ranges is parsed in parallel, but the elements are always encoded in
+ * file order so the image written for a given dictionary is always the same.
+ */
+public class DictionaryImageWriter {
+	private static final MessageLog _log = new MessageLog(DictionaryImageWriter.class);
+	/** The number of ranges each file is split into per thread. */
+	private static final int RANGES_PER_THREAD = 8;
+
+	private int _threads;
+	/** Maps each lemma already in the pool to its position in the pool. */
+	private Map _strings;
+	private DataOutputStream _pool;
+	private DataOutputStream _records;
+
+	/** Create a writer which uses one thread per processor to parse the dictionary. */
+	public DictionaryImageWriter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/** Create a writer which uses <var>threads</var> threads to parse the dictionary. */
+	public DictionaryImageWriter(int threads) {
+		_threads = Math.max(1, threads);
+	}
+
+	/** Write every synset, index word and exception in <var>dictionary</var> to <var>file</var>. */
+	public void write(Dictionary dictionary, File file) throws JWNLException {
+		List allPOS = POS.getAllPOS();
+		int[][][] tables = new int[allPOS.size()][3][];
+		File dir = file.getAbsoluteFile().getParentFile();
+		File poolFile = null;
+		File recordFile = null;
+		try {
+			poolFile = File.createTempFile("jwnl", ".pool", dir);
+			recordFile = File.createTempFile("jwnl", ".records", dir);
+			_strings = new HashMap();
+			_pool = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(poolFile), 65536));
+			_records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordFile), 65536));
+			try {
+				for (int i = 0; i < allPOS.size(); i++) {
+					POS pos = (POS) allPOS.get(i);
+					_log.log(MessageLogLevel.INFO, "DICTIONARY_INFO_007", pos);
+					int parts = _threads * RANGES_PER_THREAD;
+					tables[i][DictionaryImage.SYNSET_TABLE] =
+					    writeElements(dictionary, dictionary.getSynsetIterators(pos, parts));
+					tables[i][DictionaryImage.INDEX_TABLE] =
+					    writeElements(dictionary, dictionary.getIndexWordIterators(pos, parts));
+					tables[i][DictionaryImage.EXCEPTION_TABLE] =
+					    writeElements(dictionary, dictionary.getExceptionIterators(pos, parts));
+				}
+			} finally {
+				_pool.close();
+				_records.close();
+			}
+			writeImage(allPOS, tables, poolFile, recordFile, file);
+		} catch (IOException ex) {
+			throw new JWNLException("DICTIONARY_EXCEPTION_033", file, ex);
+		} finally {
+			_strings = null;
+			if (poolFile != null) poolFile.delete();
+			if (recordFile != null) recordFile.delete();
+		}
+	}
+
+	/**
+	 * Encode all the elements returned by <var>itrs</var>, in order, and return
+	 * their table, sorted by key.
+	 */
+	private int[] writeElements(Dictionary dictionary, Iterator[] itrs) throws JWNLException, IOException {
+		List entries = new ArrayList();
+		if (_threads == 1 || itrs.length == 1) {
+			for (int i = 0; i < itrs.length; i++) {
+				while (itrs[i].hasNext()) {
+					entries.add(writeElement(dictionary, itrs[i].next()));
+				}
+			}
+		} else {
+			// parse a batch of ranges at a time in parallel, then encode them in order
+			for (int start = 0; start < itrs.length; start += _threads) {
+				RangeReader[] readers = new RangeReader[Math.min(_threads, itrs.length - start)];
+				for (int i = 0; i < readers.length; i++) {
+					readers[i] = new RangeReader(itrs[start + i]);
+					readers[i].start();
+				}
+				int done = 0;
+				try {
+					for (; done < readers.length; done++) {
+						List elements = readers[done].getElements();
+						for (int j = 0; j < elements.size(); j++) {
+							entries.add(writeElement(dictionary, elements.get(j)));
+						}
+					}
+				} finally {
+					// if a range failed, or we were interrupted, don't let the other readers carry on
+					for (int i = done; i < readers.length; i++) {
+						readers[i].cancel();
+					}
+				}
+			}
+		}
+		TableEntry[] array = (TableEntry[]) entries.toArray(new TableEntry[entries.size()]);
+		entries = null;
+		Arrays.sort(array);
+		int[] table = new int[array.length * 2];
+		for (int i = 0; i < array.length; i++) {
+			table[i * 2] = array[i]._key;
+			table[i * 2 + 1] = array[i]._record;
+		}
+		return table;
+	}
+
+	private TableEntry writeElement(Dictionary dictionary, Object element) throws IOException {
+		if (element instanceof Synset) {
+			Synset synset = (Synset) element;
+			return new TableEntry(synset.getOffset(), null, writeSynset(dictionary, synset));
+		} else if (element instanceof IndexWord) {
+			IndexWord word = (IndexWord) element;
+			return new TableEntry(addString(word.getLemma()), word.getLemma(), writeIndexWord(word));
+		} else {
+			Exc exc = (Exc) element;
+			return new TableEntry(addString(exc.getLemma()), exc.getLemma(), writeExc(exc));
+		}
+	}
+
+	private int writeSynset(Dictionary dictionary, Synset synset) throws IOException {
+		int position = _records.size();
+		Word[] words = synset.getWords();
+		Pointer[] pointers = synset.getPointers();
+		_records.writeInt((int) synset.getLexFileId());
+		_records.writeByte(synset.isAdjectiveCluster() ? DictionaryImage.ADJECTIVE_CLUSTER : 0);
+		_records.writeShort(words.length);
+		_records.writeShort(pointers.length);
+		_records.writeInt(writeString(synset.getGloss()));
+		for (int i = 0; i < words.length; i++) {
+			_records.writeInt(addString(words[i].getLemma()));
+			_records.writeInt(writeString(dictionary.getSenseKey(synset.getOffset(), words[i].getLemma())));
+			_records.writeInt(dictionary.getUsageCount(synset.getOffset(), words[i].getLemma()));
+			if (synset.getPOS() == POS.VERB) {
+				_records.writeLong((words[i] instanceof Verb) ?
+				                   DictionaryImage.toLong(((Verb) words[i]).getVerbFrameFlags()) : 0);
+			}
+		}
+		for (int i = 0; i < pointers.length; i++) {
+			Pointer pointer = pointers[i];
+			_records.writeInt(addString(pointer.getType().getKey()));
+			_records.writeInt((int) pointer.getTargetOffset());
+			_records.writeByte(pointer.getTargetPOS().getKey().charAt(0));
+			_records.writeByte(pointer.isLexical() ? ((Word) pointer.getSource()).getIndex() + 1 : 0);
+			_records.writeByte(pointer.getTargetIndex());
+		}
+		return position;
+	}
+
+	private int writeIndexWord(IndexWord word) throws IOException {
+		int position = _records.size();
+		long[] offsets = word.getSynsetOffsets();
+		_records.writeInt(offsets.length);
+		for (int i = 0; i < offsets.length; i++) {
+			_records.writeInt((int) offsets[i]);
+		}
+		return position;
+	}
+
+	private int writeExc(Exc exc) throws IOException {
+		int position = _records.size();
+		_records.writeInt(exc.getExceptionsSize());
+		for (int i = 0; i < exc.getExceptionsSize(); i++) {
+			_records.writeInt(addString(exc.getException(i)));
+		}
+		return position;
+	}
+
+	/**
+	 * Return the position of <var>s</var> in the pool, adding it if it isn't there already.
+	 * This is used for strings which are repeated many times, such as lemmas.
+	 */
+	private int addString(String s) throws IOException {
+		if (s == null) {
+			return DictionaryImage.NO_STRING;
+		}
+		Integer handle = (Integer) _strings.get(s);
+		if (handle == null) {
+			handle = new Integer(writeString(s));
+			_strings.put(s, handle);
+		}
+		return handle.intValue();
+	}
+
+	/** Add <var>s</var> to the pool, without checking whether it is already there, and return its position. */
+	private int writeString(String s) throws IOException {
+		if (s == null) {
+			return DictionaryImage.NO_STRING;
+		}
+		int handle = _pool.size();
+		byte[] bytes = s.getBytes("UTF-8");
+		_pool.writeInt(bytes.length);
+		_pool.write(bytes);
+		return handle;
+	}
+
+	private void writeImage(List allPOS, int[][][] tables, File poolFile, File recordFile, File file)
+	    throws IOException, JWNLException {
+		int headerSize = 28 + allPOS.size() * DictionaryImage.DIRECTORY_ENTRY_SIZE * 4;
+		long poolLength = poolFile.length();
+		long recordLength = recordFile.length();
+		long position = headerSize + poolLength + recordLength;
+
+		// the image is memory mapped, so it must be checked before anything is written
+		long length = position;
+		for (int i = 0; i < tables.length; i++) {
+			for (int j = 0; j < 3; j++) {
+				length += (long) tables[i][j].length * 4;
+			}
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new JWNLException("DICTIONARY_EXCEPTION_034", file);
+		}
+
+		FileOutputStream stream = new FileOutputStream(file);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 65536));
+		boolean written = false;
+		try {
+			out.writeInt(DictionaryImage.MAGIC);
+			out.writeInt(DictionaryImage.VERSION);
+			out.writeInt(headerSize);
+			out.writeInt((int) poolLength);
+			out.writeInt((int) (headerSize + poolLength));
+			out.writeInt((int) recordLength);
+			out.writeInt(allPOS.size());
+			for (int i = 0; i < allPOS.size(); i++) {
+				out.writeInt(((POS) allPOS.get(i)).getKey().charAt(0));
+				for (int j = 0; j < 3; j++) {
+					out.writeInt(tables[i][j].length / 2);
+					out.writeInt((int) position);
+					position += (long) tables[i][j].length * 4;
+				}
+			}
+			out.flush();
+			append(poolFile, stream);
+			append(recordFile, stream);
+			for (int i = 0; i < tables.length; i++) {
+				for (int j = 0; j < 3; j++) {
+					for (int k = 0; k < tables[i][j].length; k++) {
+						out.writeInt(tables[i][j][k]);
+					}
+				}
+			}
+			out.close();
+			written = true;
+		} finally {
+			if (!written) {
+				// don't leave a truncated image behind
+				try {
+					out.close();
+				} catch (IOException ex) {
+					// the exception that got us here is the one to report
+				}
+				file.delete();
+			}
+		}
+	}
+
+	/** Copy the contents of <var>file</var> to the end of <var>out</var>. */
+	private void append(File file, FileOutputStream out) throws IOException {
+		FileChannel in = new FileInputStream(file).getChannel();
+		try {
+			long position = 0;
+			long size = in.size();
+			while (position < size) {
+				position += in.transferTo(position, size - position, out.getChannel());
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/** A table entry, ordered by offset or lemma. */
+	private static final class TableEntry implements Comparable {
+		private int _key;
+		private String _lemma;
+		private int _record;
+
+		public TableEntry(long key, String lemma, int record) {
+			_key = (int) key;
+			_lemma = lemma;
+			_record = record;
+		}
+
+		public int compareTo(Object obj) {
+			TableEntry e = (TableEntry) obj;
+			if (_lemma != null) {
+				return _lemma.compareTo(e._lemma);
+			}
+			long k1 = _key & 0xffffffffL;
+			long k2 = e._key & 0xffffffffL;
+			return (k1 < k2) ? -1 : ((k1 == k2) ? 0 : 1);
+		}
+	}
+
+	/** Reads all the elements from one range of a file. */
+	private static final class RangeReader extends Thread {
+		private Iterator _itr;
+		private List _elements = new ArrayList();
+		private RuntimeException _exception = null;
+		private volatile boolean _cancelled = false;
+
+		public RangeReader(Iterator itr) {
+			_itr = itr;
+		}
+
+		public void run() {
+			try {
+				while (!_cancelled && _itr.hasNext()) {
+					_elements.add(_itr.next());
+				}
+			} catch (RuntimeException ex) {
+				_exception = ex;
+			}
+		}
+
+		/** Wait for the range to be read and return its elements. */
+		public List getElements() throws JWNLException {
+			try {
+				join();
+			} catch (InterruptedException ex) {
+				throw new JWNLException("DICTIONARY_EXCEPTION_033", getName(), ex);
+			}
+			if (_exception != null) {
+				throw _exception;
+			}
+			return _elements;
+		}
+
+		/**
+		 * Stop reading once the current element has been read. The thread isn't interrupted,
+		 * since that would close the channel it shares with the dictionary's other readers.
+		 */
+		public void cancel() {
+			_cancelled = true;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package net.didion.jwnl.dictionary.morph;
 
 import net.didion.jwnl.JWNLRuntimeException;
+import net.didion.jwnl.dictionary.Dictionary;
 
 import java.util.List;
 import java.util.ArrayList;
@@ -10,15 +11,34 @@ public class BaseFormSet {
 	private List _forms = new ArrayList();
 	private int _index = -1;
 	private boolean _allowDuplicates;
+	/** The dictionary the base forms are looked up in, or null for the current dictionary. */
+	private Dictionary _dictionary;
 
 	public BaseFormSet() {
 		this(false);
 	}
 
 	public BaseFormSet(boolean allowDuplicates) {
+		this(null, allowDuplicates);
+	}
+
+	public BaseFormSet(Dictionary dictionary) {
+		this(dictionary, false);
+	}
+
+	public BaseFormSet(Dictionary dictionary, boolean allowDuplicates) {
+		_dictionary = dictionary;
 		_allowDuplicates = allowDuplicates;
 	}
 
+	/**
+	 * Return the dictionary the operations filling this set should look words up in:
+	 * the one it was created with, or {@link Dictionary#getInstance()} if none was given.
+	 */
+	public Dictionary getDictionary() {
+		return (_dictionary != null) ? _dictionary : Dictionary.getInstance();
+	}
+
 	public void add(String s) {
 		if (_allowDuplicates || !_forms.contains(s)) {
 			_forms.add(s);
@@ -70,20 +70,29 @@ public class DefaultMorphologicalProcessor implements MorphologicalProcessor {
 	 * entry most like that lemma. This function returns the first base form
 	 * found. Subsequent calls to this function with the same part-of-speech
 	 * and word will return the same base form. To find another base form for
-	 * the pos/word, call lookupNextBaseForm.
+	 * the pos/word, call lookupNextBaseForm. Words are looked up in
+	 * {@link Dictionary#getInstance()}.
 	 * @param pos the part-of-speech of the word to look up
 	 * @param derivation the word to look up
 	 * @return IndexWord the IndexWord found during lookup
 	 */
 	public IndexWord lookupBaseForm(POS pos, String derivation) throws JWNLException {
+		return lookupBaseForm(Dictionary.getInstance(), pos, derivation);
+	}
+
+	/**
+	 * Lookup the base form of a word in <var>dictionary</var>.
+	 * @see #lookupBaseForm(POS, String)
+	 */
+	public IndexWord lookupBaseForm(Dictionary dictionary, POS pos, String derivation) throws JWNLException {
 		// See if we've already looked this word up
-		LookupInfo info = getCachedLookupInfo(new POSKey(pos, derivation));
+		LookupInfo info = getCachedLookupInfo(dictionary, new POSKey(pos, derivation));
 		if (info != null && info.getBaseForms().isCurrentFormAvailable()) {
 			// get the last base form we retrieved. if you want
 			// the next possible base form, use lookupNextBaseForm
-			return Dictionary.getInstance().getIndexWord(pos, info.getBaseForms().getCurrentForm());
+			return dictionary.getIndexWord(pos, info.getBaseForms().getCurrentForm());
 		} else {
-			return lookupNextBaseForm(pos, derivation, info);
+			return lookupNextBaseForm(dictionary, pos, derivation, info);
 		}
 	}
 
@@ -91,8 +100,13 @@ public class DefaultMorphologicalProcessor implements MorphologicalProcessor {
 		_lookupCache.put(key, info);
 	}
 
-	private LookupInfo getCachedLookupInfo(POSKey key) {
-		return (LookupInfo) _lookupCache.get(key);
+	/**
+	 * Return the cached lookup of <var>key</var>, or null if there is none or it was
+	 * made in a different dictionary (a processor can be shared between dictionaries).
+	 */
+	private LookupInfo getCachedLookupInfo(Dictionary dictionary, POSKey key) {
+		LookupInfo info = (LookupInfo) _lookupCache.get(key);
+		return (info != null && info.getBaseForms().getDictionary() == dictionary) ? info : null;
 	}
 
 	/**
@@ -103,7 +117,8 @@ public class DefaultMorphologicalProcessor implements MorphologicalProcessor {
 	 * @param derivation the word to look up
 	 * @return IndexWord the IndexWord found during lookup, or null if an IndexWord is not found
 	 */
-	private IndexWord lookupNextBaseForm(POS pos, String derivation, LookupInfo info) throws JWNLException {
+	private IndexWord lookupNextBaseForm(Dictionary dictionary, POS pos, String derivation, LookupInfo info)
+	    throws JWNLException {
 		if (derivation.equals("") || derivation == null) {
 			return null;
 		}
@@ -111,9 +126,9 @@ public class DefaultMorphologicalProcessor implements MorphologicalProcessor {
 		String str = null;
 		if (info == null) {
 			POSKey key = new POSKey(pos, derivation);
-			info = getCachedLookupInfo(key);
+			info = getCachedLookupInfo(dictionary, key);
 			if (info == null) {
-				info = new LookupInfo(pos, derivation, _operations);
+				info = new LookupInfo(dictionary, pos, derivation, _operations);
 				cacheLookupInfo(key, info);
 			}
 		}
@@ -128,18 +143,24 @@ public class DefaultMorphologicalProcessor implements MorphologicalProcessor {
 			}
 		}
 
-		return (str == null) ? null : Dictionary.getInstance().getIndexWord(pos, str);
+		return (str == null) ? null : dictionary.getIndexWord(pos, str);
 	}
 
+	/** Return all the base forms of a word, looking words up in {@link Dictionary#getInstance()}. */
 	public List lookupAllBaseForms(POS pos, String derivation) throws JWNLException {
-		LookupInfo info = getCachedLookupInfo(new POSKey(pos, derivation));
+		return lookupAllBaseForms(Dictionary.getInstance(), pos, derivation);
+	}
+
+	/** Return all the base forms of a word, looking words up in <var>dictionary</var>. */
+	public List lookupAllBaseForms(Dictionary dictionary, POS pos, String derivation) throws JWNLException {
+		LookupInfo info = getCachedLookupInfo(dictionary, new POSKey(pos, derivation));
 		if (info == null) {
-			info = new LookupInfo(pos, derivation, _operations);
+			info = new LookupInfo(dictionary, pos, derivation, _operations);
 			cacheLookupInfo(new POSKey(pos, derivation), info);
 		}
 		int index = info.getBaseForms().getIndex();
 		while (info.isNextOperationAvailable()) {
-			lookupNextBaseForm(pos, derivation, info);
+			lookupNextBaseForm(dictionary, pos, derivation, info);
 		}
 		info.getBaseForms().setIndex(index);
 		return info.getBaseForms().getForms();
@@ -152,11 +173,11 @@ public class DefaultMorphologicalProcessor implements MorphologicalProcessor {
 		private Operation[] _operations;
 		private int _currentOperation;
 
-		public LookupInfo(POS pos, String derivation, Operation[] operations) {
+		public LookupInfo(Dictionary dictionary, POS pos, String derivation, Operation[] operations) {
 			_pos = pos;
 			_derivation = derivation;
 			_operations = operations;
-			_baseForms = new BaseFormSet();
+			_baseForms = new BaseFormSet(dictionary);
 			_currentOperation = -1;
 		}
 
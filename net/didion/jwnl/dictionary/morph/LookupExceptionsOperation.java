@@ -3,7 +3,6 @@ package net.didion.jwnl.dictionary.morph;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.data.Exc;
 import net.didion.jwnl.JWNLException;
-import net.didion.jwnl.dictionary.Dictionary;
 
 import java.util.Map;
 
@@ -14,7 +13,7 @@ public class LookupExceptionsOperation implements Operation {
 	}
 
 	public boolean execute(POS pos, String derivation, BaseFormSet form) throws JWNLException {
-		Exc exc = Dictionary.getInstance().getException(pos, derivation);
+		Exc exc = form.getDictionary().getException(pos, derivation);
 		if (exc != null) {
 			String[] exceptions = exc.getExceptionArray();
 			for (int i = 0; i < exceptions.length; i++) {
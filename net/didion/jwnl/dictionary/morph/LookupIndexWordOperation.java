@@ -2,7 +2,6 @@ package net.didion.jwnl.dictionary.morph;
 
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.JWNLException;
-import net.didion.jwnl.dictionary.Dictionary;
 
 import java.util.Map;
 
@@ -12,7 +11,7 @@ public class LookupIndexWordOperation implements Operation {
 	}
 
 	public boolean execute(POS pos, String lemma, BaseFormSet baseForms) throws JWNLException {
-		if (Dictionary.getInstance().getIndexWord(pos, lemma) != null) {
+		if (baseForms.getDictionary().getIndexWord(pos, lemma) != null) {
 			baseForms.add(lemma);
 			return true;
 		}
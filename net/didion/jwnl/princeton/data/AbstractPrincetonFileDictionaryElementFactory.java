@@ -7,7 +7,7 @@ package net.didion.jwnl.princeton.data;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
-import java.util.StringTokenizer;
+import java.util.Map;
 
 import net.didion.jwnl.data.Exc;
 import net.didion.jwnl.data.FileDictionaryElementFactory;
@@ -22,7 +22,9 @@ import net.didion.jwnl.data.Verb;
 import net.didion.jwnl.data.Word;
 import net.didion.jwnl.util.MessageLog;
 import net.didion.jwnl.util.MessageLogLevel;
-import net.didion.jwnl.util.TokenizerParser;
+import net.didion.jwnl.util.LemmaPool;
+import net.didion.jwnl.util.LineCursor;
+import net.didion.jwnl.util.factory.Param;
 
 /**
  * <code>FileDictionaryElementFactory</code> that parses lines from the dictionary files distributed by the
@@ -30,25 +32,51 @@ import net.didion.jwnl.util.TokenizerParser;
  */
 public abstract class AbstractPrincetonFileDictionaryElementFactory implements FileDictionaryElementFactory {
 	private static final MessageLog _log = new MessageLog(AbstractPrincetonFileDictionaryElementFactory.class);
+	/**
+	 * Install parameter. If "true", synsets are created without their glosses, which are
+	 * read from the data file when they are first used. The default is "false".
+	 */
+	public static final String LAZY_GLOSSES = "lazy_glosses";
 
-	
+	private boolean _lazyGlosses = false;
+	/** The lemmas of all the elements created by this factory. */
+	private LemmaPool _lemmas = new LemmaPool();
 	
 	protected AbstractPrincetonFileDictionaryElementFactory() {
 	}
 
+	protected AbstractPrincetonFileDictionaryElementFactory(Map params) {
+		_lazyGlosses = params.containsKey(LAZY_GLOSSES)
+		    && ((Param) params.get(LAZY_GLOSSES)).getValue().equalsIgnoreCase("true");
+	}
+
+	/**
+	 * Return the pool holding the lemmas of the elements created by this factory.
+	 * Subclasses which change a lemma should intern the result here.
+	 */
+	protected LemmaPool getLemmaPool() {
+		return _lemmas;
+	}
+
+	/** Return true if synsets are created without their glosses. */
+	public boolean isLazyGlosses() {
+		return _lazyGlosses;
+	}
+
 	public IndexWord createIndexWord(POS pos, String line) {
-        TokenizerParser tokenizer = new TokenizerParser(line, " ");
-        String lemma = tokenizer.nextToken().replace('_', ' ');
-        tokenizer.nextToken(); // pos
-        tokenizer.nextToken();	// poly_cnt
-        int pointerCount = tokenizer.nextInt();
+        LineCursor cursor = new LineCursor(line);
+        cursor.next();
+        String lemma = _lemmas.intern(line, cursor.getTokenStart(), cursor.getTokenEnd(), true);
+        cursor.skipToken(); // pos
+        cursor.skipToken();	// poly_cnt
+        int pointerCount = cursor.nextInt();
         // TODO: can we do anything interesting with these?
-        for (int i = 0; i < pointerCount; ++i) tokenizer.nextToken();	// ptr_symbol
-        int senseCount = tokenizer.nextInt();
-        tokenizer.nextInt(); // tagged sense count
+        for (int i = 0; i < pointerCount; ++i) cursor.skipToken();	// ptr_symbol
+        int senseCount = cursor.nextInt();
+        cursor.skipToken(); // tagged sense count
         long[] synsetOffsets = new long[senseCount];
         for (int i = 0; i < senseCount; i++) {
-            synsetOffsets[i] = tokenizer.nextLong();
+            synsetOffsets[i] = cursor.nextLong();
         }
         if (_log.isLevelEnabled(MessageLogLevel.TRACE)) {
             _log.log(MessageLogLevel.TRACE, "PRINCETON_INFO_003", new Object[]{lemma, pos});
@@ -57,44 +85,39 @@ public abstract class AbstractPrincetonFileDictionaryElementFactory implements F
 	}
 
 	public Synset createSynset(POS pos, String line) {
-        TokenizerParser tokenizer = new TokenizerParser(line, " ");
+        LineCursor cursor = new LineCursor(line);
 
-        long offset = tokenizer.nextLong();
+        long offset = cursor.nextLong();
         /**
          * Grab the filenum token here. 
          */
-        //String lexFileNameId = tokenizer.nextToken();	// lex_filenum
-        long lexFileNameId = tokenizer.nextLong();
+        long lexFileNameId = cursor.nextLong();	// lex_filenum
        
-        String synsetPOS = tokenizer.nextToken();
+        cursor.next();	// ss_type
         boolean isAdjectiveCluster = false;
-        if (synsetPOS.equals("s")) {
+        if (cursor.getTokenEnd() - cursor.getTokenStart() == 1 && line.charAt(cursor.getTokenStart()) == 's') {
             isAdjectiveCluster = true;
         }
 
         SynsetProxy proxy = new SynsetProxy(pos);
 
-        int wordCount = tokenizer.nextHexInt();
+        int wordCount = cursor.nextHexInt();
         Word[] words = new Word[wordCount];
         for (int i = 0; i < wordCount; i++) {
-            String lemma = tokenizer.nextToken();
-            
-            tokenizer.nextHexInt(); // lex id
-            
-          
-            
+            cursor.next();
+            String lemma = _lemmas.intern(line, cursor.getTokenStart(), cursor.getTokenEnd(), false);
+            cursor.skipToken(); // lex id
             words[i] = createWord(proxy, i, lemma);
-            
         }
 
-        int pointerCount = tokenizer.nextInt();
+        int pointerCount = cursor.nextInt();
         Pointer[] pointers = new Pointer[pointerCount];
         for (int i = 0; i < pointerCount; i++) {
-            String pt = tokenizer.nextToken();
-            PointerType pointerType = PointerType.getPointerTypeForKey(pt);
-            long targetOffset = tokenizer.nextLong();
-            POS targetPOS = POS.getPOSForKey(tokenizer.nextToken());
-            int linkIndices = tokenizer.nextHexInt();
+            cursor.next();
+            PointerType pointerType = PointerType.getPointerTypeForKey(line, cursor.getTokenStart(), cursor.getTokenEnd());
+            long targetOffset = cursor.nextLong();
+            POS targetPOS = POS.getPOSForKey(cursor.nextChar());
+            int linkIndices = cursor.nextHexInt();
             int sourceIndex = linkIndices / 256;
             int targetIndex = linkIndices & 255;
             PointerTarget source = (sourceIndex == 0) ? (PointerTarget) proxy : (PointerTarget) words[sourceIndex - 1];
@@ -103,11 +126,11 @@ public abstract class AbstractPrincetonFileDictionaryElementFactory implements F
         }
 
         if (pos == POS.VERB) {
-            int verbFrameCount = tokenizer.nextInt();
+            int verbFrameCount = cursor.nextInt();
             for (int i = 0; i < verbFrameCount; i++) {
-                tokenizer.nextToken();	// "+"
-                int frameNumber = tokenizer.nextInt();
-                int wordIndex = tokenizer.nextHexInt();
+                cursor.skipToken();	// "+"
+                int frameNumber = cursor.nextInt();
+                int wordIndex = cursor.nextHexInt();
                 if (wordIndex > 0) {
                     ((MutableVerb) words[wordIndex - 1]).setVerbFrameFlag(frameNumber);
                 } else {
@@ -117,18 +140,17 @@ public abstract class AbstractPrincetonFileDictionaryElementFactory implements F
             }
         }
 
-        String gloss = null;
-        int index = line.indexOf('|');
-        if (index > 0) {
-            gloss = line.substring(index + 2).trim();
-        }
-
         BitSet verbFrames = new BitSet();
         for (int i = 0; i < words.length; i++)
             if (words[i] instanceof Verb)
                 verbFrames.or(((Verb)words[i]).getVerbFrameFlags());
 
-        Synset synset = new Synset(pos, offset, words, pointers, gloss, verbFrames, isAdjectiveCluster);
+        Synset synset;
+        if (_lazyGlosses) {
+            synset = new Synset(pos, offset, words, pointers, verbFrames, isAdjectiveCluster);
+        } else {
+            synset = new Synset(pos, offset, words, pointers, parseGloss(line, cursor.getPosition()), verbFrames, isAdjectiveCluster);
+        }
         
         //set the lexicographer file identifier
         synset.setLexFileId(lexFileNameId);
@@ -139,6 +161,16 @@ public abstract class AbstractPrincetonFileDictionaryElementFactory implements F
         return proxy;
 	}
 
+	public String parseGloss(POS pos, String line) {
+		return parseGloss(line, 0);
+	}
+
+	/** Return the gloss which follows the first '|' at or after <var>start</var> in <var>line</var>. */
+	private String parseGloss(String line, int start) {
+		int index = line.indexOf('|', start);
+		return (index > 0) ? line.substring(index + 2).trim() : null;
+	}
+
 	/**
 	 * Creates a word, also access the sense.idx file. 
 	 * @param synset
@@ -159,11 +191,13 @@ public abstract class AbstractPrincetonFileDictionaryElementFactory implements F
 	}
 
 	public Exc createExc(POS pos, String line) {
-        StringTokenizer st = new StringTokenizer(line);
-        String lemma = st.nextToken().replace('_', ' ');
+        LineCursor cursor = new LineCursor(line);
+        cursor.next();
+        String lemma = _lemmas.intern(line, cursor.getTokenStart(), cursor.getTokenEnd(), true);
         List exceptions = new ArrayList();
-        while (st.hasMoreTokens()) {
-            exceptions.add(st.nextToken().replace('_', ' '));
+        while (cursor.hasMoreTokens()) {
+            cursor.next();
+            exceptions.add(_lemmas.intern(line, cursor.getTokenStart(), cursor.getTokenEnd(), true));
         }
         if (_log.isLevelEnabled(MessageLogLevel.TRACE)) {
             _log.log(MessageLogLevel.TRACE, "PRINCETON_INFO_001", new Object[]{pos, lemma});
@@ -17,8 +17,12 @@ public class PrincetonWN16FileDictionaryElementFactory extends AbstractPrinceton
 	public PrincetonWN16FileDictionaryElementFactory() {
 	}
 
+	public PrincetonWN16FileDictionaryElementFactory(Map params) {
+		super(params);
+	}
+
 	public Object create(Map params) throws JWNLException {
-		return new PrincetonWN16FileDictionaryElementFactory();
+		return new PrincetonWN16FileDictionaryElementFactory(params);
 	}
 
 	protected Word createWord(Synset synset, int index, String lemma) {
@@ -28,7 +32,7 @@ public class PrincetonWN16FileDictionaryElementFactory extends AbstractPrinceton
 				int lparen = lemma.indexOf('(');
 				String marker = lemma.substring(lparen + 1, lemma.length() - 1);
 				adjectivePosition = Adjective.getAdjectivePositionForKey(marker);
-				lemma = lemma.substring(0, lparen);
+				lemma = getLemmaPool().intern(lemma.substring(0, lparen));
 			}
 			return new Adjective(synset, index, lemma, adjectivePosition);
 		} else {
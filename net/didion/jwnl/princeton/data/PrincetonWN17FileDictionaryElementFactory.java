@@ -13,7 +13,11 @@ public class PrincetonWN17FileDictionaryElementFactory extends AbstractPrinceton
 	public PrincetonWN17FileDictionaryElementFactory() {
 	}
 
+	public PrincetonWN17FileDictionaryElementFactory(Map params) {
+		super(params);
+	}
+
 	public Object create(Map params) throws JWNLException {
-		return new PrincetonWN17FileDictionaryElementFactory();
+		return new PrincetonWN17FileDictionaryElementFactory(params);
 	}
 }
@@ -10,6 +10,7 @@ import net.didion.jwnl.JWNLRuntimeException;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.dictionary.file.DictionaryFile;
 import net.didion.jwnl.dictionary.file.DictionaryFileType;
+import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -26,6 +27,8 @@ public class PrincetonChannelDictionaryFile extends AbstractPrincetonRandomAcces
 	/** The random-access file. */
 	private CharBuffer _buffer = null;
 	private FileChannel _channel = null;
+	/** True if this is a view of another file, in which case it doesn't own the channel. */
+	private boolean _view = false;
 
 	public PrincetonChannelDictionaryFile() {}
 
@@ -37,6 +40,17 @@ public class PrincetonChannelDictionaryFile extends AbstractPrincetonRandomAcces
 		super(path, pos, fileType);
 	}
 
+	public RandomAccessDictionaryFile newView() throws IOException {
+		if (!isOpen()) {
+			throw new JWNLRuntimeException("PRINCETON_EXCEPTION_001");
+		}
+		PrincetonChannelDictionaryFile view = new PrincetonChannelDictionaryFile(getFile().getParent(), getPOS(), getFileType());
+		view._channel = _channel;
+		view._buffer = _buffer.duplicate();
+		view._view = true;
+		return view;
+	}
+
 	public String readLine() throws IOException {
 		if (isOpen()) {
 			//The following lines gratuitously lifted from java.io.RandomAccessFile.readLine()
@@ -84,7 +98,9 @@ public class PrincetonChannelDictionaryFile extends AbstractPrincetonRandomAcces
 	public void close() {
 		try {
 			_buffer = null;
-			_channel.close();
+			if (!_view) {
+				_channel.close();
+			}
 		} catch (IOException ex) {
 		} finally {
 			_channel = null;
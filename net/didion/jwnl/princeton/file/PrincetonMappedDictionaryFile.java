@@ -0,0 +1,127 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.princeton.file;
+
+import net.didion.jwnl.JWNLRuntimeException;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.dictionary.file.DictionaryFile;
+import net.didion.jwnl.dictionary.file.DictionaryFileType;
+import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A <code>RandomAccessDictionaryFile</code> that accesses files named with Princeton's dictionary file naming convention.
+ * The file is memory mapped and read directly from the mapped bytes, so it lives in the
+ * operating system's page cache rather than on the heap. Bytes are only decoded (as ISO-8859-1,
+ * like <code>java.io.RandomAccessFile.readLine()</code>) when a line is read.
+ * The mapped bytes are shared by all the views of the file, each of which has its own position.
+ */
+public class PrincetonMappedDictionaryFile extends AbstractPrincetonRandomAccessDictionaryFile {
+	/** The mapped file, positioned at the file pointer. */
+	private ByteBuffer _buffer = null;
+	private FileChannel _channel = null;
+	/** True if this is a view of another file, in which case it doesn't own the channel. */
+	private boolean _view = false;
+	/** Scratch space used to copy a line out of the mapped file before decoding it. */
+	private byte[] _line = new byte[256];
+
+	public PrincetonMappedDictionaryFile() {}
+
+	public DictionaryFile newInstance(String path, POS pos, DictionaryFileType fileType) {
+		return new PrincetonMappedDictionaryFile(path, pos, fileType);
+	}
+
+	public PrincetonMappedDictionaryFile(String path, POS pos, DictionaryFileType fileType) {
+		super(path, pos, fileType);
+	}
+
+	public RandomAccessDictionaryFile newView() throws IOException {
+		if (!isOpen()) {
+			throw new JWNLRuntimeException("PRINCETON_EXCEPTION_001");
+		}
+		PrincetonMappedDictionaryFile view = new PrincetonMappedDictionaryFile(getFile().getParent(), getPOS(), getFileType());
+		view._channel = _channel;
+		view._buffer = _buffer.duplicate();
+		view._buffer.position(0);
+		view._view = true;
+		return view;
+	}
+
+	public String readLine() throws IOException {
+		if (!isOpen()) {
+			throw new JWNLRuntimeException("PRINCETON_EXCEPTION_001");
+		}
+		int start = _buffer.position();
+		int limit = _buffer.limit();
+		if (start >= limit) {
+			return null;
+		}
+		int end = start;
+		while (end < limit) {
+			byte b = _buffer.get(end);
+			if (b == '\n' || b == '\r') break;
+			end++;
+		}
+		int length = end - start;
+		if (length > _line.length) {
+			_line = new byte[Math.max(length, _line.length * 2)];
+		}
+		_buffer.get(_line, 0, length);
+		if (end < limit) {
+			// skip the line terminator, treating \r\n as a single terminator
+			if (_buffer.get() == '\r' && end + 1 < limit && _buffer.get(end + 1) == '\n') {
+				_buffer.get();
+			}
+		}
+		return new String(_line, 0, length, "ISO-8859-1");
+	}
+
+	public void seek(long pos) throws IOException {
+		_buffer.position((int)Math.min(pos, _buffer.limit()));
+	}
+
+	public long getFilePointer() throws IOException {
+		return _buffer.position();
+	}
+
+	public boolean isOpen() {
+		return _channel != null;
+	}
+
+	public void close() {
+		try {
+			_buffer = null;
+			if (!_view) {
+				_channel.close();
+			}
+		} catch (IOException ex) {
+		} finally {
+			_channel = null;
+		}
+	}
+
+	protected void openFile(File file) throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		if (channel.size() > Integer.MAX_VALUE) {
+			channel.close();
+			throw new JWNLRuntimeException("PRINCETON_EXCEPTION_008", file);
+		}
+		_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		_channel = channel;
+	}
+
+	public long length() throws IOException {
+		return _buffer.limit();
+	}
+
+	public int read() throws IOException {
+		return _buffer.hasRemaining() ? _buffer.get() & 0xff : -1;
+	}
+}
@@ -8,14 +8,22 @@ import net.didion.jwnl.JWNLRuntimeException;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.dictionary.file.DictionaryFile;
 import net.didion.jwnl.dictionary.file.DictionaryFileType;
+import net.didion.jwnl.dictionary.file.RandomAccessDictionaryFile;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 
 /**
  * A <code>RandomAccessDictionaryFile</code> that accesses files
  * named with Princeton's dictionary file naming convention.
+ * Reads are positional reads on the file's channel into a buffer owned by
+ * this object, so views of the file (see {@link #newView()}) never contend
+ * with each other. Interrupting a thread while it is reading closes the channel,
+ * as specified by <code>FileChannel</code>; the other views then reopen it.
  */
 public class PrincetonRandomAccessDictionaryFile extends AbstractPrincetonRandomAccessDictionaryFile {
 	/** Read-only file permission. */
@@ -23,11 +31,29 @@ public class PrincetonRandomAccessDictionaryFile extends AbstractPrincetonRandom
 	/** Read-write file permission. */
 	public static final String READ_WRITE = "rw";
 
+	private static final int BUFFER_SIZE = 4096;
+
 	/** The random-access file. */
 	private RandomAccessFile _file = null;
+	/** The channel of the random-access file, shared by all views. */
+	private volatile FileChannel _channel = null;
+	/** The file this is a view of, or this file if it isn't a view. Only the owner holds the file. */
+	private PrincetonRandomAccessDictionaryFile _owner = this;
+	/** True if this is a view which has been closed. */
+	private boolean _closed = false;
 	/** The file permissions to use when opening a file. */
 	protected String _permissions;
 
+	/** The position of the file pointer. */
+	private long _position = 0;
+	/** The bytes read ahead of the file pointer. */
+	private byte[] _bytes = new byte[BUFFER_SIZE];
+	private ByteBuffer _buffer = ByteBuffer.wrap(_bytes);
+	/** The file offset of the first byte in the buffer. */
+	private long _bufferStart = 0;
+	/** The number of valid bytes in the buffer. */
+	private int _bufferLength = 0;
+
 	public DictionaryFile newInstance(String path, POS pos, DictionaryFileType fileType) {
 		return new PrincetonRandomAccessDictionaryFile(path, pos, fileType);
 	}
@@ -43,44 +69,154 @@ public class PrincetonRandomAccessDictionaryFile extends AbstractPrincetonRandom
 		_permissions = permissions;
 	}
 
+	public RandomAccessDictionaryFile newView() throws IOException {
+		if (!isOpen()) {
+			throw new JWNLRuntimeException("PRINCETON_EXCEPTION_001");
+		}
+		PrincetonRandomAccessDictionaryFile view =
+		    new PrincetonRandomAccessDictionaryFile(getFile().getParent(), getPOS(), getFileType(), _permissions);
+		view._owner = this;
+		return view;
+	}
+
 	public String readLine() throws IOException {
         if (isOpen()) {
-            return _file.readLine();
+			//Follows the behaviour of java.io.RandomAccessFile.readLine()
+			StringBuffer input = new StringBuffer();
+			int c = -1;
+			boolean eol = false;
+
+			while (!eol) {
+				switch (c = read()) {
+					case -1:
+					case '\n':
+						eol = true;
+						break;
+					case '\r':
+						eol = true;
+						long current = _position;
+						if (read() != '\n') {
+							_position = current;
+						}
+						break;
+					default:
+						input.append((char)c);
+						break;
+				}
+			}
+			return ((c == -1) && (input.length() == 0)) ? null : input.toString();
         } else {
             throw new JWNLRuntimeException("PRINCETON_EXCEPTION_001");
         }
 	}
 
 	public void seek(long pos) throws IOException  {
-		_file.seek(pos);
+		_position = pos;
 	}
 
 	public long getFilePointer() throws IOException {
-		return _file.getFilePointer();
+		return _position;
 	}
 	
 	public boolean isOpen() {
-		return _file != null;
+		return !_closed && _owner._channel != null;
 	}
 		
 	public void close() {
-		try {
-			_file.close();
-		} catch (Exception ex) {
-		} finally {
-			_file = null;
+		if (_owner != this) {
+			_closed = true;
+			return;
+		}
+		synchronized (this) {
+			try {
+				_file.close();
+			} catch (Exception ex) {
+			} finally {
+				_file = null;
+				_channel = null;
+			}
 		}
 	}
 
-	protected void openFile(File path) throws IOException {
+	protected synchronized void openFile(File path) throws IOException {
 		_file = new RandomAccessFile(path, _permissions);
+		_channel = _file.getChannel();
+	}
+
+	/**
+	 * Reopen the file after <var>channel</var> was closed by an interrupted read, unless
+	 * another view has already done so or the file has been closed.
+	 * @return the open channel
+	 */
+	private synchronized FileChannel reopen(FileChannel channel) throws IOException {
+		if (_channel == null) {
+			throw new ClosedChannelException();
+		}
+		if (_channel == channel) {
+			try {
+				_file.close();
+			} catch (IOException ex) {
+			}
+			openFile(getFile());
+		}
+		return _channel;
+	}
+
+	/** Return the shared channel, failing if this view or the file has been closed. */
+	private FileChannel getChannel() throws IOException {
+		FileChannel channel = _owner._channel;
+		if (_closed || channel == null) {
+			throw new ClosedChannelException();
+		}
+		return channel;
 	}
 
 	public long length() throws IOException {
-		return _file.length();
+		FileChannel channel = getChannel();
+		try {
+			return channel.size();
+		} catch (ClosedChannelException ex) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw ex;
+			}
+			return _owner.reopen(channel).size();
+		}
 	}
 
 	public int read() throws IOException {
-		return _file.read();
+		if (_position < _bufferStart || _position >= _bufferStart + _bufferLength) {
+			if (!fill()) {
+				return -1;
+			}
+		}
+		return _bytes[(int)(_position++ - _bufferStart)] & 0xff;
+	}
+
+	/**
+	 * Fill the buffer with the bytes starting at the file pointer.
+	 * @return false if the file pointer is at the end of the file
+	 */
+	private boolean fill() throws IOException {
+		_buffer.clear();
+		_bufferStart = _position;
+		FileChannel channel = getChannel();
+		while (_buffer.hasRemaining()) {
+			int read;
+			try {
+				read = channel.read(_buffer, _position + _buffer.position());
+			} catch (ClosedChannelException ex) {
+				// only the interrupted thread gives up; everyone else reads on from a reopened channel
+				if (Thread.currentThread().isInterrupted()) {
+					throw ex;
+				}
+				channel = _owner.reopen(channel);
+				continue;
+			}
+			if (read < 0) {
+				break;
+			}
+		}
+		_bufferLength = _buffer.position();
+		return _bufferLength > 0;
 	}
-}
\ No newline at end of file
+}
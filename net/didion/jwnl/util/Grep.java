@@ -60,7 +60,9 @@ import java.util.regex.PatternSyntaxException;
 /**
  * This is a utility class to find a pattern within a file, specifically the sense.idx file. 
  * @author brett
- *
+ * @deprecated The file manager now looks sense keys and usage counts up in a
+ *             {@link net.didion.jwnl.dictionary.file_manager.SenseIndex}, which reads the
+ *             file once rather than scanning it for every lookup.
  */
 public class Grep {
 
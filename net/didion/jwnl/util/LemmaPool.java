@@ -0,0 +1,123 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.util;
+
+/**
+ * A thread-safe intern table for lemmas. Each distinct lemma is stored once, and every
+ * caller interning an equal lemma gets the same String back, so the lemmas of
+ * <code>Word</code>s, <code>IndexWord</code>s and <code>Exc</code>s parsed by one
+ * dictionary share their storage and can be compared by reference.
+ * <p>
+ * Lemmas can be interned straight from a region of a line, optionally with underscores
+ * replaced by spaces, without creating a String unless the lemma is new to the pool.
+ * The table is split into segments, each with its own lock, so that parsing threads
+ * rarely contend.
+ */
+public class LemmaPool {
+	private static final int SEGMENTS = 16;
+
+	private Segment[] _segments = new Segment[SEGMENTS];
+
+	public LemmaPool() {
+		for (int i = 0; i < SEGMENTS; i++) {
+			_segments[i] = new Segment();
+		}
+	}
+
+	/** Return the pooled copy of <var>lemma</var>, adding it to the pool if necessary. */
+	public String intern(String lemma) {
+		return (lemma == null) ? null : intern(lemma, 0, lemma.length(), false);
+	}
+
+	/**
+	 * Return the pooled copy of the characters of <var>chars</var> from <var>start</var>
+	 * up to <var>end</var>. If <var>spaces</var> is true, underscores are replaced with spaces.
+	 */
+	public String intern(CharSequence chars, int start, int end, boolean spaces) {
+		// the same hash as String.hashCode(), so it can be compared with the pooled strings' cached hashes
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + map(chars.charAt(i), spaces);
+		}
+		// pick the segment using the high bits of a multiplicative hash, leaving the low bits for the table
+		return _segments[(hash * 0x9E3779B9) >>> 28].intern(chars, start, end, spaces, hash);
+	}
+
+	/** Return the number of lemmas in the pool. */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < SEGMENTS; i++) {
+			size += _segments[i].size();
+		}
+		return size;
+	}
+
+	private static char map(char c, boolean spaces) {
+		return (spaces && c == '_') ? ' ' : c;
+	}
+
+	/** An open addressing hash table of strings. */
+	private static final class Segment {
+		private String[] _table = new String[64];
+		private int _size = 0;
+
+		public synchronized String intern(CharSequence chars, int start, int end, boolean spaces, int hash) {
+			int mask = _table.length - 1;
+			int i = hash & mask;
+			for (String s = _table[i]; s != null; s = _table[i]) {
+				if (s.hashCode() == hash && matches(s, chars, start, end, spaces)) {
+					return s;
+				}
+				i = (i + 1) & mask;
+			}
+			String lemma;
+			if (spaces) {
+				StringBuffer buf = new StringBuffer(end - start);
+				for (int j = start; j < end; j++) {
+					buf.append(map(chars.charAt(j), true));
+				}
+				lemma = buf.toString();
+			} else {
+				lemma = chars.subSequence(start, end).toString();
+			}
+			_table[i] = lemma;
+			if (++_size * 2 > _table.length) {
+				rehash();
+			}
+			return lemma;
+		}
+
+		public synchronized int size() {
+			return _size;
+		}
+
+		private static boolean matches(String s, CharSequence chars, int start, int end, boolean spaces) {
+			if (s.length() != end - start) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (s.charAt(i - start) != map(chars.charAt(i), spaces)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash() {
+			String[] old = _table;
+			_table = new String[old.length * 2];
+			int mask = _table.length - 1;
+			for (int j = 0; j < old.length; j++) {
+				if (old[j] != null) {
+					int i = old[j].hashCode() & mask;
+					while (_table[i] != null) {
+						i = (i + 1) & mask;
+					}
+					_table[i] = old[j];
+				}
+			}
+		}
+	}
+}
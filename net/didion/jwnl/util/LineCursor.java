@@ -0,0 +1,129 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A cursor over the space separated tokens of a line. Unlike <code>TokenizerParser</code>,
+ * numeric tokens are parsed in place and tokens can be skipped or inspected (using
+ * {@link #getTokenStart()} and {@link #getTokenEnd()}) without creating a String for each one.
+ */
+public class LineCursor {
+	private CharSequence _line;
+	private int _length;
+	/** The position of the cursor, which is always at the end of the current token. */
+	private int _position = 0;
+	private int _tokenStart = 0;
+	private int _tokenEnd = 0;
+
+	public LineCursor(CharSequence line) {
+		_line = line;
+		_length = line.length();
+	}
+
+	public CharSequence getLine() {
+		return _line;
+	}
+
+	/** The position of the cursor in the line */
+	public int getPosition() {
+		return _position;
+	}
+
+	/** The start of the current token */
+	public int getTokenStart() {
+		return _tokenStart;
+	}
+
+	/** The end (exclusive) of the current token */
+	public int getTokenEnd() {
+		return _tokenEnd;
+	}
+
+	/** Return true if there is another token in the line */
+	public boolean hasMoreTokens() {
+		int i = _position;
+		while (i < _length && _line.charAt(i) == ' ') i++;
+		return i < _length;
+	}
+
+	/**
+	 * Move to the next token.
+	 * @throws NoSuchElementException if there are no more tokens
+	 */
+	public void next() {
+		while (_position < _length && _line.charAt(_position) == ' ') _position++;
+		if (_position == _length) {
+			throw new NoSuchElementException();
+		}
+		_tokenStart = _position;
+		while (_position < _length && _line.charAt(_position) != ' ') _position++;
+		_tokenEnd = _position;
+	}
+
+	/** Skip the next token */
+	public void skipToken() {
+		next();
+	}
+
+	/** Return the next token */
+	public String nextToken() {
+		next();
+		return _line.subSequence(_tokenStart, _tokenEnd).toString();
+	}
+
+	/** Return the first character of the next token */
+	public char nextChar() {
+		next();
+		return _line.charAt(_tokenStart);
+	}
+
+	/** Convert the next token into an int */
+	public int nextInt() {
+		long value = nextLong();
+		if (value != (int)value) {
+			throw new NumberFormatException(_line.subSequence(_tokenStart, _tokenEnd).toString());
+		}
+		return (int)value;
+	}
+
+	/** Convert the next token into a base 16 int */
+	public int nextHexInt() {
+		next();
+		int value = 0;
+		if (_tokenEnd - _tokenStart > 8) {
+			throw new NumberFormatException(_line.subSequence(_tokenStart, _tokenEnd).toString());
+		}
+		for (int i = _tokenStart; i < _tokenEnd; i++) {
+			int digit = Character.digit(_line.charAt(i), 16);
+			if (digit < 0) {
+				throw new NumberFormatException(_line.subSequence(_tokenStart, _tokenEnd).toString());
+			}
+			value = (value << 4) | digit;
+		}
+		return value;
+	}
+
+	/** Convert the next token into a long */
+	public long nextLong() {
+		next();
+		int i = _tokenStart;
+		boolean negative = _line.charAt(i) == '-';
+		if (negative || _line.charAt(i) == '+') i++;
+		if (i == _tokenEnd || _tokenEnd - i > 18) {
+			return Long.parseLong(_line.subSequence(_tokenStart, _tokenEnd).toString());
+		}
+		long value = 0;
+		for (; i < _tokenEnd; i++) {
+			char c = _line.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new NumberFormatException(_line.subSequence(_tokenStart, _tokenEnd).toString());
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * Java WordNet Library (JWNL)
+ * See the documentation for copyright information.
+ */
+package net.didion.jwnl.util;
+
+import java.util.Arrays;
+
+/**
+ * An index of the three character substrings (trigrams) of a fixed array of keys, used to
+ * find the keys containing a given substring without looking at every key. The keys
+ * containing each trigram are stored in a posting list; a query intersects the lists of the
+ * query's trigrams, starting with the shortest, and then checks the few remaining candidates
+ * against the full query. Queries shorter than three characters have no trigrams, so they
+ * check every key.
+ * <p>
+ * The index is immutable once built and may be shared between threads.
+ */
+public class TrigramIndex {
+	private static final int[] NO_MATCHES = new int[0];
+
+	private String[] _keys;
+	/** The distinct trigrams of the keys, sorted. */
+	private long[] _grams;
+	/** The start of the posting list of each trigram in <code>_postings</code>, followed by its length. */
+	private int[] _starts;
+	/** The ascending positions of the keys containing each trigram. */
+	private int[] _postings;
+
+	/** Index the trigrams of <var>keys</var>. The array is not copied. */
+	public TrigramIndex(String[] keys) {
+		_keys = keys;
+
+		// find every distinct trigram
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			count += Math.max(0, keys[i].length() - 2);
+		}
+		long[] grams = new long[count];
+		for (int i = 0, n = 0; i < keys.length; i++) {
+			for (int j = 0; j + 2 < keys[i].length(); j++) {
+				grams[n++] = gram(keys[i], j);
+			}
+		}
+		Arrays.sort(grams);
+		_grams = distinct(grams);
+
+		// sort the (trigram, key) pairs, which puts the keys of each posting list in order
+		long[] pairs = new long[count];
+		for (int i = 0, n = 0; i < keys.length; i++) {
+			for (int j = 0; j + 2 < keys[i].length(); j++) {
+				pairs[n++] = ((long) Arrays.binarySearch(_grams, gram(keys[i], j)) << 32) | i;
+			}
+		}
+		Arrays.sort(pairs);
+		pairs = distinct(pairs);
+
+		_starts = new int[_grams.length + 1];
+		_postings = new int[pairs.length];
+		for (int i = 0; i < pairs.length; i++) {
+			_starts[(int) (pairs[i] >>> 32) + 1]++;
+			_postings[i] = (int) pairs[i];
+		}
+		for (int i = 0; i < _grams.length; i++) {
+			_starts[i + 1] += _starts[i];
+		}
+	}
+
+	/** Return the number of keys in the index. */
+	public int size() {
+		return _keys.length;
+	}
+
+	public String getKey(int index) {
+		return _keys[index];
+	}
+
+	/** Return the ascending positions of the keys which contain <var>substring</var>. */
+	public int[] find(String substring) {
+		if (substring.length() < 3) {
+			return check(null, _keys.length, substring);
+		}
+
+		// find the posting list of each trigram of the query
+		int[] lists = new int[substring.length() - 2];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = Arrays.binarySearch(_grams, gram(substring, i));
+			if (lists[i] < 0) {
+				return NO_MATCHES;
+			}
+		}
+
+		// intersect the lists, starting with the shortest
+		int shortest = 0;
+		for (int i = 1; i < lists.length; i++) {
+			if (length(lists[i]) < length(lists[shortest])) {
+				shortest = i;
+			}
+		}
+		int[] candidates = new int[length(lists[shortest])];
+		System.arraycopy(_postings, _starts[lists[shortest]], candidates, 0, candidates.length);
+		int size = candidates.length;
+		for (int i = 0; i < lists.length && size > 0; i++) {
+			if (lists[i] != lists[shortest]) {
+				size = intersect(candidates, size, lists[i]);
+			}
+		}
+		return check(candidates, size, substring);
+	}
+
+	/** Return the approximate number of bytes of memory used by the index, not counting the keys. */
+	public long getMemoryUsage() {
+		return 8L * _grams.length + 4L * _starts.length + 4L * _postings.length;
+	}
+
+	private int length(int list) {
+		return _starts[list + 1] - _starts[list];
+	}
+
+	/**
+	 * Remove the first <var>size</var> candidates which are not in the posting list
+	 * <var>list</var>, returning the number left.
+	 */
+	private int intersect(int[] candidates, int size, int list) {
+		int kept = 0;
+		int p = _starts[list];
+		int end = _starts[list + 1];
+		for (int i = 0; i < size && p < end; i++) {
+			while (p < end && _postings[p] < candidates[i]) {
+				p++;
+			}
+			if (p < end && _postings[p] == candidates[i]) {
+				candidates[kept++] = candidates[i];
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Return the candidates which actually contain <var>substring</var>. If
+	 * <var>candidates</var> is null, every key is a candidate.
+	 */
+	private int[] check(int[] candidates, int size, String substring) {
+		int[] matches = new int[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			int key = (candidates == null) ? i : candidates[i];
+			if (_keys[key].indexOf(substring) >= 0) {
+				matches[count++] = key;
+			}
+		}
+		if (count < size) {
+			int[] trimmed = new int[count];
+			System.arraycopy(matches, 0, trimmed, 0, count);
+			matches = trimmed;
+		}
+		return matches;
+	}
+
+	private static long gram(String s, int start) {
+		return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+	}
+
+	/** Remove the duplicates from a sorted array. */
+	private static long[] distinct(long[] sorted) {
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		long[] result = new long[count];
+		System.arraycopy(sorted, 0, result, 0, count);
+		return result;
+	}
+}
@@ -21,6 +21,10 @@ public class Element {
 		}
 	}
 
+	public String getClassName() {
+		return _className;
+	}
+
 	public void addParam(Param param) {
 		_paramMap.put(param.getName(), param);
 	}
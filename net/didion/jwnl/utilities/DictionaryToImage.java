@@ -0,0 +1,55 @@
+package net.didion.jwnl.utilities;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.image.DictionaryImageWriter;
+
+/**
+ * DictionaryToImage converts the dictionary described by a properties file (usually a
+ * file-based WordNet) into a single binary image which can be loaded by
+ * <code>ImageBackedDictionary</code>. Each dictionary file is read only once, in
+ * parallel, and the image is written as it goes, so the conversion needs little memory.
+ */
+public class DictionaryToImage {
+	private File _destFile;
+	private int _threads;
+
+	/**
+	 * Initialize with the given image file, using the properties file (usually file_properties.xml)
+	 * @param destFile - the image file to write
+	 * @param propFile - properties file of file-based WordNet
+	 * @param threads - the number of threads used to parse the dictionary files
+	 */
+	public DictionaryToImage(String destFile, String propFile, int threads) throws JWNLException, IOException {
+		JWNL.initialize(new FileInputStream(propFile));
+		_destFile = new File(destFile);
+		_threads = threads;
+	}
+
+	/** Converts the current Dictionary to an image. */
+	public void convert() throws JWNLException {
+		long start = System.currentTimeMillis();
+		new DictionaryImageWriter(_threads).write(Dictionary.getInstance(), _destFile);
+		System.out.println("Wrote " + _destFile + " (" + _destFile.length() + " bytes) in "
+		                   + (System.currentTimeMillis() - start) + "ms");
+	}
+
+	public static void main(String args[]) {
+		if (args.length < 2 || args.length > 3) {
+			System.out.println("java DictionaryToImage <destination file> <properties file> [threads]");
+			System.exit(-1);
+		}
+		try {
+			int threads = (args.length == 3) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			new DictionaryToImage(args[0], args[1], threads).convert();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+}
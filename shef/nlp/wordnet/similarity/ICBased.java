@@ -0,0 +1,41 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+/**
+ * Implemented by the information content based similarity measures whose
+ * score is computed solely from the IC values of the two synsets and of
+ * their lowest common subsumer. Such measures can share the (expensive)
+ * work of finding the LCS, as is done by {@link MultiICMeasure}.
+ * @author Mark A. Greenwood
+ */
+public interface ICBased
+{
+	/**
+	 * Computes the similarity of two synsets from their IC values and the
+	 * IC value of their LCS.
+	 * @param ic1 the IC of the first synset
+	 * @param ic2 the IC of the second synset
+	 * @param icLCS the IC of the lowest common subsumer of the two synsets
+	 * @param rootFreq the frequency of the root node for the POS tag of the synsets
+	 * @return the similarity between the two synsets
+	 */
+	public double getSimilarity(double ic1, double ic2, double icLCS, double rootFreq);
+}
@@ -23,20 +23,23 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import net.didion.jwnl.JWNL;
 import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.data.Pointer;
-import net.didion.jwnl.data.PointerUtils;
+import net.didion.jwnl.data.PointerType;
 import net.didion.jwnl.data.Synset;
 import net.didion.jwnl.data.Word;
-import net.didion.jwnl.data.list.PointerTargetNode;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.SynsetIdMap;
+import net.didion.jwnl.dictionary.graph.WordNetGraph;
 
 /**
  * An abstract class that addes information content based methods to the
@@ -48,14 +51,44 @@ public abstract class ICMeasure extends PathMeasure
 {
 	/**
 	 * This map stores the synset IDs and there associated frequencies
-	 * as read from the supplied information content file.
+	 * as read from the supplied information content file. Once the measure
+	 * has been configured the map is never modified, instead updates
+	 * replace it with a new map so readers always see a consistent set
+	 * of frequencies.
 	 */
-	private Map<String,Double> freq = new HashMap<String,Double>();
+	private volatile Map<String,Double> freq = new HashMap<String,Double>();
+	
+	/**
+	 * The optional lowest common ancestor indexes, keyed by POS tag, used to
+	 * speed up finding the LCS of synsets with a single hypernym path.
+	 */
+	private Map<POS,LCAIndex> lcaIndexes = new HashMap<POS,LCAIndex>();
 			
 	protected void config(Map<String,String> params) throws Exception
 	{
 		super.config(params);
 		
+		//get the location of the LCA indexes (if any)
+		String lcaURL = params.remove("lcaindex");
+		
+		if (lcaURL != null)
+		{
+			if (lcaURL.equals("build"))
+			{
+				//the user wants us to build the indexes now
+				lcaIndexes.put(POS.NOUN, LCAIndex.build(getDictionary(), POS.NOUN));
+				lcaIndexes.put(POS.VERB, LCAIndex.build(getDictionary(), POS.VERB));
+			}
+			else
+			{
+				//load the previously built indexes
+				for (LCAIndex index : LCAIndex.read(new URL(lcaURL), getDictionary().getVersion().getNumber()))
+				{
+					lcaIndexes.put(index.getPOS(), index);
+				}
+			}
+		}
+		
 		//a handle to the infocontent file
 		BufferedReader in = null;
 		
@@ -74,7 +107,7 @@ public abstract class ICMeasure extends PathMeasure
 			
 			//Check that the IC file is meant for use with the version
 			//of WordNet we are currently using
-			if (!line.endsWith("::"+JWNL.getVersion().getNumber())) throw new Exception("InfoContent file version doesn't match WordNet version");
+			if (!line.endsWith("::"+getDictionary().getVersion().getNumber())) throw new Exception("InfoContent file version doesn't match WordNet version");
 			
 			//Initially set the IC values of the noun and verb roots to 0
 			freq.put("n",0d);
@@ -139,21 +172,60 @@ public abstract class ICMeasure extends PathMeasure
 	 */
 	protected double getIC(Synset synset)
 	{
-		//get the POS tag of this synset
-		POS pos = synset.getPOS();
+		return getIC(synset, freq);
+	}
+	
+	/**
+	 * Gets the Information Content (IC) value associated with the given
+	 * synset using a given set of frequencies, so that all the IC values
+	 * used to compute one score come from the same set even if the
+	 * frequencies are updated in the meantime.
+	 * @param synset the synset for which to calcualte IC.
+	 * @param freq the frequencies to calculate the IC from.
+	 * @return the IC of the given synset.
+	 */
+	private double getIC(Synset synset, Map<String,Double> freq)
+	{
+		return getIC(synset.getPOS(), getFreqKey(synset), freq);
+	}
+	
+	/**
+	 * Gets the Information Content (IC) value associated with the synset
+	 * with the given id using a given set of frequencies.
+	 * @param ids the ids of the synsets in the dictionary
+	 * @param id the id of the synset for which to calculate IC.
+	 * @param freq the frequencies to calculate the IC from.
+	 * @return the IC of the synset.
+	 */
+	private double getIC(SynsetIdMap ids, int id, Map<String,Double> freq)
+	{
+		POS pos = ids.getPOS(id);
 		
+		return getIC(pos, ids.getOffset(id)+pos.getKey(), freq);
+	}
+	
+	/**
+	 * Gets the Information Content (IC) value associated with the synset
+	 * with the given frequency key using a given set of frequencies.
+	 * @param pos the POS tag of the synset
+	 * @param key the key of the synset in the frequencies
+	 * @param freq the frequencies to calculate the IC from.
+	 * @return the IC of the synset.
+	 */
+	private static double getIC(POS pos, String key, Map<String,Double> freq)
+	{
 		//Information Content is only defined for nouns and verbs
 		//so return 0 if the POS tag is something else
 		if (!pos.equals(POS.NOUN) && !pos.equals(POS.VERB)) return 0;
 		
 		//Get the frequency of this synset from the storred data
-		Double synFreq = freq.get(getFreqKey(synset));
+		Double synFreq = freq.get(key);
 				
 		//if the frequency isn't defined or it's 0 then simlpy return 0 
 		if (synFreq == null || synFreq.doubleValue() == 0) return 0;
 		
 		//Get the frequency of the root node for this POS tage
-		Double rootFreq = freq.get(synset.getPOS().getKey());
+		Double rootFreq = freq.get(pos.getKey());
 	
 		//calcualte the probability for this synset
 		double prob = synFreq.doubleValue() / rootFreq.doubleValue();
@@ -191,84 +263,410 @@ public abstract class ICMeasure extends PathMeasure
 	}
 	
 	/**
-	 * Finds the lowerst common subsumer of the two synsets using information content.
-	 * @param s1 the first synset
-	 * @param s2 the second synset
-	 * @return the lowest common subsumer of the two provided synsets
+	 * Updates the frequencies of the given synsets, and of all their ancestors,
+	 * by the supplied amounts. The frequency of the root node of each POS tag
+	 * is updated to match and the new set of frequencies replaces the old
+	 * in a single step, so concurrent calls to the similarity methods see
+	 * either the old or the new frequencies but never a mixture of the two.
+	 * Any cached similarities which depend on a frequency that has changed
+	 * are removed from the cache. Note that if the frequency of the root
+	 * node changes then so does the IC of every synset with that POS tag.
+	 * @param deltas the amount to add to the frequency of each synset, before
+	 *        it is propagated to the synset's ancestors
 	 * @throws JWNLException if an error occurs accessing WordNet
+	 * @throws IllegalArgumentException if a negative delta would make a
+	 *         frequency negative, in which case no frequencies are changed
 	 */
-	protected Synset getLCSbyIC(Synset s1, Synset s2) throws JWNLException
+	public synchronized void updateFrequencies(Map<Synset,Double> deltas) throws JWNLException
 	{
-		//TODO Handle the different types of LCS handled by the perl version which are
-		//   1) Largest IC value
-		//   2) Results in shortest path
-		//   3) Greatest depth (i.e. the LCS whose shortest path to root is longest)
-		//Although in here we only need the IC based one
-				
-		@SuppressWarnings("unchecked")
-		List<List<PointerTargetNode>> trees1 = PointerUtils.getInstance().getHypernymTree(s1).toList();
+		//work on a copy so readers continue to see the current frequencies
+		Map<String,Double> updated = new HashMap<String,Double>(freq);
 		
-		@SuppressWarnings("unchecked")
-		List<List<PointerTargetNode>> trees2 = PointerUtils.getInstance().getHypernymTree(s2).toList();
+		//the keys of every synset whose frequency changes
+		Set<String> changed = new HashSet<String>();
 		
-		Set<Synset> pLCS = new HashSet<Synset>();
+		//the POS tags whose root frequency changes
+		Set<String> roots = new HashSet<String>();
 		
-		for (List<PointerTargetNode> t1 : trees1)
+		for (Map.Entry<Synset,Double> delta : deltas.entrySet())
 		{
-			for (List<PointerTargetNode> t2 : trees2)
+			Synset synset = delta.getKey();
+			double d = delta.getValue().doubleValue();
+			
+			//IC is only defined for nouns and verbs
+			POS pos = synset.getPOS();
+			if (d == 0 || (!pos.equals(POS.NOUN) && !pos.equals(POS.VERB))) continue;
+			
+			//walk up the hypernym closure adding the delta to each
+			//ancestor once, even if there is more than one path to it
+			Set<Synset> visited = new HashSet<Synset>();
+			List<Synset> todo = new ArrayList<Synset>();
+			todo.add(synset);
+			visited.add(synset);
+			
+			while (!todo.isEmpty())
 			{
-				for (PointerTargetNode node : t1)
+				Synset s = todo.remove(todo.size()-1);
+				String key = getFreqKey(s);
+				
+				Double f = updated.get(key);
+				updated.put(key, checkFrequency(key, (f == null ? 0 : f.doubleValue()) + d));
+				changed.add(key);
+				
+				Pointer[] hypernyms = s.getPointers(PointerType.HYPERNYM);
+				
+				if (hypernyms.length == 0)
 				{
-					if (contains(t2,node.getSynset()))
-					{
-						pLCS.add(node.getSynset());
-						break;
-					}
+					//this is a root so update the frequency of the POS tag
+					updated.put(pos.getKey(), checkFrequency(pos.getKey(), updated.get(pos.getKey()) + d));
+					roots.add(pos.getKey());
+				}
+				
+				for (Pointer p : hypernyms)
+				{
+					Synset parent = p.getTargetSynset();
+					if (visited.add(parent)) todo.add(parent);
 				}
+			}
+		}
+		
+		//publish the new frequencies and then make sure that scores still
+		//being computed from the old ones don't get into the cache
+		freq = Collections.unmodifiableMap(updated);
+		nextCacheGeneration();
+		
+		//now work out which of the cached similarities are out of date
+		SynsetIdMap ids = getDictionary().getSynsetIdMap();
+		Set<Integer> invalid = new HashSet<Integer>();
+		Map<String,Boolean> checked = new HashMap<String,Boolean>();
+		
+		for (Integer id : getCachedSynsets())
+		{
+			POS idPOS = ids.getPOS(id);
+			String key = ids.getOffset(id)+idPOS.getKey();
+			
+			//if the root frequency has changed then every IC value for
+			//the POS tag has changed as well
+			if (roots.contains(idPOS.getKey()) || dependsOn(key, changed, checked)) invalid.add(id);
+		}
+		
+		removeFromCache(invalid);
+	}
+	
+	/**
+	 * Checks that an updated frequency is still valid.
+	 * @param key the key of the synset (or POS tag) whose frequency it is
+	 * @param f the updated frequency
+	 * @return the updated frequency
+	 * @throws IllegalArgumentException if the frequency is negative
+	 */
+	private static double checkFrequency(String key, double f)
+	{
+		if (f < 0) throw new IllegalArgumentException("Frequency of " + key + " would become negative: " + f);
+		
+		return f;
+	}
+	
+	/**
+	 * Determines if the synset with the given key, or one of its ancestors,
+	 * is in the set of changed synsets.
+	 * @param key the key of the synset to check
+	 * @param changed the keys of the synsets which have changed
+	 * @param checked the synsets that have already been checked
+	 * @return true if the synset or one of its ancestors has changed
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	private boolean dependsOn(String key, Set<String> changed, Map<String,Boolean> checked) throws JWNLException
+	{
+		Boolean result = checked.get(key);
+		if (result != null) return result.booleanValue();
+		
+		boolean depends = changed.contains(key);
+		
+		if (!depends)
+		{
+			//get the synset from its key
+			POS pos = POS.getPOSForKey(key.substring(key.length()-1));
+			long offset = Long.parseLong(key.substring(0, key.length()-1));
+			
+			//synsets with no offset (i.e. the fake root) have no ancestors
+			if (pos != null && offset != 0)
+			{
+				Synset synset = getDictionary().getSynsetAt(pos, offset);
 				
-				for (PointerTargetNode node : t2)
+				for (Pointer p : synset.getPointers(PointerType.HYPERNYM))
 				{
-					if (contains(t1,node.getSynset()))
+					if (dependsOn(getFreqKey(p.getTargetSynset()), changed, checked))
 					{
-						pLCS.add(node.getSynset());
+						depends = true;
 						break;
 					}
 				}
 			}
 		}
 		
-		Synset lcs = null;
+		checked.put(key, depends);
+		return depends;
+	}
+	
+	/**
+	 * Computes the similarity between two synsets using a number of IC based
+	 * measures at once. The IC values and the LCS are only computed once and
+	 * the scores from all the measures are cached together.
+	 * @param s1 one of the synsets between which we want to know the similarity.
+	 * @param s2 the other synset between which we want to know the similarity.
+	 * @param measures the measures used to calculate the scores. Only the
+	 *        {@link ICBased#getSimilarity(double, double, double, double)}
+	 *        method of these measures is used so they do not need to be configured.
+	 * @return the similarity between the two synsets according to each measure
+	 * @throws JWNLException if an error occurs accessing WordNet.
+	 */
+	protected final double[] getSimilarities(Synset s1, Synset s2, ICBased... measures) throws JWNLException
+	{
+		//assume the synsets are not at all similar
+		double[] scores = new double[measures.length];
+		
+		//if the POS tags are not the same then return 0 as these measures
+		//only work with 2 nouns or 2 verbs.
+		if (!s1.getPOS().equals(s2.getPOS())) return scores;
+		
+		//the cache and the LCS search both work with synset ids
+		SynsetIdMap ids = getDictionary().getSynsetIdMap();
+		int id1 = ids.getId(s1);
+		int id2 = ids.getId(s2);
+		
+		//see if the similarities are already cached and...
+		double[] cached = getScoresFromCache(id1, id2);
+		
+		//if they are then simply return them
+		if (cached != null) return cached;
+		
+		//use one set of frequencies for the whole computation, and note
+		//the cache generation first so that if the frequencies are updated
+		//while we are working the scores don't get cached
+		long generation = getCacheGeneration();
+		Map<String,Double> freq = this.freq;
+		
+		//Get the Information Content (IC) values for the two supplied synsets
+		double ic1 = getIC(s1, freq);
+		double ic2 = getIC(s2, freq);
+		
+		//if either IC value is zero then cache and return sims of 0
+		if (ic1 == 0 || ic2 == 0) return addToCache(id1,id2,scores,generation);
+		
+		//Get the Lowest Common Subsumer (LCS) of the two synsets, which
+		//if it has no id is the fake root node (if we are using one)
+		int lcs = (id1 == SynsetIdMap.NO_ID || id2 == SynsetIdMap.NO_ID ? SynsetIdMap.NO_ID : getLCSbyIC(ids,id1,id2,freq));
+		Synset root = (lcs == SynsetIdMap.NO_ID ? getFakeRoot(s1) : null);
+		
+		//if there isn't an LCS then cache and return sims of 0
+		if (lcs == SynsetIdMap.NO_ID && root == null) return addToCache(id1,id2,scores,generation);
+		
+		//get the IC value of the LCS
+		double icLCS = (root != null ? getIC(root, freq) : getIC(ids, lcs, freq));
+		
+		//get the root frequency for this POS tag
+		double rootFreq = freq.get(s1.getPOS().getKey());
+		
+		for (int i = 0 ; i < measures.length ; ++i)
+		{
+			//calculate the similarity score for each measure
+			scores[i] = measures[i].getSimilarity(ic1, ic2, icLCS, rootFreq);
+		}
+		
+		//cache and return the calculated similarities
+		return addToCache(id1,id2,scores,generation);
+	}
+	
+	/**
+	 * Finds the lowest common subsumer of the two synsets with the given ids.
+	 * See {@link Dictionary#getSynsetIdMap()} for details of the ids.
+	 * @param id1 the id of the first synset
+	 * @param id2 the id of the second synset
+	 * @return the id of the lowest common subsumer or {@link SynsetIdMap#NO_ID}
+	 *         if there isn't one (or it is the fake root node)
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	public int getLCS(int id1, int id2) throws JWNLException
+	{
+		return getLCSbyIC(getDictionary().getSynsetIdMap(), id1, id2, freq);
+	}
+	
+	/**
+	 * Finds the lowerst common subsumer of the two synsets using information content.
+	 * @param s1 the first synset
+	 * @param s2 the second synset
+	 * @return the lowest common subsumer of the two provided synsets
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	protected Synset getLCSbyIC(Synset s1, Synset s2) throws JWNLException
+	{
+		return getLCSbyIC(s1, s2, freq);
+	}
+	
+	/**
+	 * Finds the lowerst common subsumer of the two synsets using the
+	 * information content given by a set of frequencies.
+	 * @param s1 the first synset
+	 * @param s2 the second synset
+	 * @param freq the frequencies to calculate the IC from
+	 * @return the lowest common subsumer of the two provided synsets
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	private Synset getLCSbyIC(Synset s1, Synset s2, Map<String,Double> freq) throws JWNLException
+	{
+		//the search works with the ids of the synsets
+		SynsetIdMap ids = getDictionary().getSynsetIdMap();
+		int id1 = ids.getId(s1);
+		int id2 = ids.getId(s2);
+		
+		//synsets which aren't in the dictionary can only meet at the fake root
+		int lcs = (id1 == SynsetIdMap.NO_ID || id2 == SynsetIdMap.NO_ID ? SynsetIdMap.NO_ID : getLCSbyIC(ids, id1, id2, freq));
+		
+		return (lcs == SynsetIdMap.NO_ID ? getFakeRoot(s1) : getDictionary().getSynsetById(lcs));
+	}
+	
+	/**
+	 * Finds the lowest common subsumer of the two synsets with the given ids
+	 * using the information content given by a set of frequencies. This is
+	 * the common ancestor (a synset counts as its own ancestor) with the
+	 * highest IC.
+	 * @param ids the ids of the synsets in the dictionary
+	 * @param id1 the id of the first synset
+	 * @param id2 the id of the second synset
+	 * @param freq the frequencies to calculate the IC from
+	 * @return the id of the lowest common subsumer or {@link SynsetIdMap#NO_ID}
+	 *         if the synsets only meet at the fake root node
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	private int getLCSbyIC(SynsetIdMap ids, int id1, int id2, Map<String,Double> freq) throws JWNLException
+	{
+		//TODO Handle the different types of LCS handled by the perl version which are
+		//   1) Largest IC value
+		//   2) Results in shortest path
+		//   3) Greatest depth (i.e. the LCS whose shortest path to root is longest)
+		//Although in here we only need the IC based one
+		
+		//see if we have an LCA index that can answer this query
+		POS pos = ids.getPOS(id1);
+		LCAIndex index = lcaIndexes.get(pos);
+		
+		if (index != null && pos.equals(ids.getPOS(id2)))
+		{
+			long offset = index.getLCA(ids.getOffset(id1), ids.getOffset(id2));
+			
+			//if both synsets have a single path to the root then the
+			//LCA in the tree is the only possible LCS
+			if (offset >= 0) return ids.getId(pos, offset);
+			
+			//the synsets are in separate hierarchies so they can only
+			//be linked through the fake root node
+			if (offset == LCAIndex.NONE) return SynsetIdMap.NO_ID;
+			
+			//otherwise one of the synsets has multiple inheritance so fall
+			//through to the exact search over all the hypernyms
+		}
+		
+		//find all the ancestors of the first synset
+		Set<Integer> ancestors = getAncestors(ids, id1);
+		
+		int lcs = SynsetIdMap.NO_ID;
 		double score = 0;
 		
-		for (Synset s : pLCS)
+		//then walk up from the second synset, nearest ancestors first, looking
+		//for the common ancestor with the highest IC
+		Set<Integer> visited = new HashSet<Integer>();
+		List<Integer> todo = new ArrayList<Integer>();
+		todo.add(id2);
+		visited.add(id2);
+		
+		for (int i = 0 ; i < todo.size() ; ++i)
 		{
-			if (lcs == null)
-			{
-				lcs = s;
-				score = getIC(s);
-			}
-			else
+			int id = todo.get(i);
+			
+			if (ancestors.contains(id))
 			{
-				double ic = getIC(s);
+				double ic = getIC(ids, id, freq);
 				
-				if (ic > score)
+				if (lcs == SynsetIdMap.NO_ID || ic > score)
 				{
 					score = ic;
-					lcs = s;
+					lcs = id;
 				}
 			}
+			
+			for (int parent : getHypernymIds(ids, id))
+			{
+				if (visited.add(parent)) todo.add(parent);
+			}
+		}
+		
+		return lcs;
+	}
+	
+	/**
+	 * Finds all the ancestors of a synset, including the synset itself.
+	 * @param ids the ids of the synsets in the dictionary
+	 * @param id the id of the synset
+	 * @return the ids of the ancestors of the synset
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	private Set<Integer> getAncestors(SynsetIdMap ids, int id) throws JWNLException
+	{
+		Set<Integer> ancestors = new HashSet<Integer>();
+		List<Integer> todo = new ArrayList<Integer>();
+		todo.add(id);
+		ancestors.add(id);
+		
+		while (!todo.isEmpty())
+		{
+			for (int parent : getHypernymIds(ids, todo.remove(todo.size()-1)))
+			{
+				if (ancestors.add(parent)) todo.add(parent);
+			}
 		}
 		
+		return ancestors;
+	}
+	
+	/**
+	 * Gets the ids of the hypernyms of a synset.
+	 * @param ids the ids of the synsets in the dictionary
+	 * @param id the id of the synset
+	 * @return the ids of the hypernyms of the synset
+	 * @throws JWNLException if an error occurs accessing WordNet
+	 */
+	private int[] getHypernymIds(SynsetIdMap ids, int id) throws JWNLException
+	{
+		//if the dictionary holds its graph in memory then it already
+		//knows the ids of the hypernyms
+		WordNetGraph graph = getDictionary().getGraph();
+		if (graph != null) return graph.getTargetIds(id, PointerType.HYPERNYM);
 		
-		if (lcs == null && useSingleRoot())
-		{	
-			//link the two synsets by a fake root node
-			
-			//TODO: Should probably create one of these for each POS tag and cache them so that we can always return the same one
-			lcs = new Synset(s1.getPOS(),0l,new Word[0],new Pointer[0],"",new java.util.BitSet());
-						
+		Pointer[] hypernyms = getDictionary().getSynsetById(id).getPointers(PointerType.HYPERNYM);
+		
+		int[] parents = new int[hypernyms.length];
+		for (int i = 0 ; i < hypernyms.length ; ++i)
+		{
+			parents[i] = ids.getId(hypernyms[i].getTargetSynset());
 		}
 		
-		return lcs;
+		return parents;
+	}
+	
+	/**
+	 * Returns the fake root node used to link separate hierarchies if we are
+	 * using a single root node for each POS tag.
+	 * @param s a synset with the POS tag of the hierarchy
+	 * @return the fake root node or null if we are not using a single root
+	 */
+	private Synset getFakeRoot(Synset s)
+	{
+		if (!useSingleRoot()) return null;
+		
+		//link the two synsets by a fake root node
+		
+		//TODO: Should probably create one of these for each POS tag and cache them so that we can always return the same one
+		return new Synset(s.getPOS(),0l,new Word[0],new Pointer[0],"",new java.util.BitSet());
 	}
 }
@@ -0,0 +1,54 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.Synset;
+
+/**
+ * An implementation of the WordNet similarity measure developed by Resnik. For
+ * full details of the measure see:
+ * <blockquote>Resnik P. 1995. Using information content to evaluate semantic
+ * similarity in a taxonomy. In Proceedings of the 14th International Joint
+ * Conference on Artificial Intelligence, Montreal.</blockquote>
+ * @author Mark A. Greenwood
+ */
+public class Resnik extends ICMeasure implements ICBased
+{
+	/**
+	 * Instances of this similarity measure should be generated using the
+	 * factory methods of {@link SimilarityMeasure}.
+	 */
+	protected Resnik()
+	{
+		//A protected constructor to force the use of the newInstance method
+	}
+	
+	@Override public double getSimilarity(Synset s1, Synset s2) throws JWNLException
+	{
+		return getSimilarities(s1, s2, this)[0];
+	}
+	
+	public double getSimilarity(double ic1, double ic2, double icLCS, double rootFreq)
+	{
+		//the similarity is simply the IC of the LCS
+		return icLCS;
+	}
+}
@@ -44,6 +44,22 @@ public class SimilarityInfo
 	 * @throws JWNLException
 	 */
 	protected SimilarityInfo(String w1, Synset s1, String w2, Synset s2, double sim) throws JWNLException
+	{
+		this(s1.getDictionary(), w1, s1, w2, s2, sim);
+	}
+	
+	/**
+	 * Create a new instance of the SimilarityInfo class, looking the two words
+	 * up in the given dictionary.
+	 * @param dict the WordNet dictionary the synsets came from
+	 * @param w1 the first word (or it's encoded form)
+	 * @param s1 the first synset
+	 * @param w2 the second word (or it's encoded form)
+	 * @param s2 the second synset
+	 * @param sim the similarity between the two synsets
+	 * @throws JWNLException
+	 */
+	protected SimilarityInfo(Dictionary dict, String w1, Synset s1, String w2, Synset s2, double sim) throws JWNLException
 	{
 		//store the synsets and the similarity between them
 		this.s1 = s1;
@@ -53,9 +69,6 @@ public class SimilarityInfo
 		//The following is just for display purposes and as this class
 		//is immutable we just generate this stuff once
 		
-		//get access to WordNet
-		Dictionary dict = Dictionary.getInstance();
-		
 		//get the two index words
 		iw1 = dict.getIndexWord(s1.getPOS(), w1.split("#")[0]);
 		iw2 = dict.getIndexWord(s2.getPOS(), w2.split("#")[0]);
@@ -25,6 +25,7 @@ import java.net.URL;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +35,7 @@ import net.didion.jwnl.data.IndexWord;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.data.Synset;
 import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.SynsetIdMap;
 
 /**
  * An abstract notion of a similarity measure that all provided
@@ -54,14 +56,22 @@ public abstract class SimilarityMeasure
 	 */
 	private int cacheSize = 5000;
 	
+	/**
+	 * The WordNet dictionary this measure looks words and synsets up in
+	 */
+	private Dictionary dictionary;
+	
 	/**
 	 * To speed up computation of the similarity between two synsets
 	 * we cache each similarity that is computed so we only have to
-	 * do each one once.
+	 * do each one once. Measures which compute more than one score at a
+	 * time store all the scores for a pair of synsets in a single entry.
+	 * The entries are keyed by the ids of the two synsets (see
+	 * {@link #getCacheKey(int, int)}).
 	 */
-	private Map<String,Double> cache = new LinkedHashMap<String,Double>(16,0.75f,true)
+	private Map<Long,double[]> cache = new LinkedHashMap<Long,double[]>(16,0.75f,true)
 	{
-        public boolean removeEldestEntry(Map.Entry<String,Double> eldest)
+        public boolean removeEldestEntry(Map.Entry<Long,double[]> eldest)
         {
             //if the size is less than zero then the user is asking us
         	//not to limit the size of the cache so return false
@@ -72,6 +82,48 @@ public abstract class SimilarityMeasure
         }
     }; 
 	
+	/**
+	 * The generation of the cache, which moves on whenever the data the
+	 * similarities are computed from changes, so that scores computed from
+	 * the old data are not cached once it has been replaced. Guarded by the
+	 * cache.
+	 */
+	private long cacheGeneration = 0;
+	
+	/**
+	 * Generates the key used to store the similarity between two synsets
+	 * in the cache from their ids, with the first id in the high half of the
+	 * key so that the ids can be recovered from the key.
+	 * @param id1 the id of the first synset
+	 * @param id2 the id of the second synset
+	 * @return the key for the cache
+	 */
+	private static Long getCacheKey(int id1, int id2)
+	{
+		return Long.valueOf(((long)id1 << 32) | (id2 & 0xffffffffL));
+	}
+	
+	/**
+	 * Gets the id of a synset in this measure's dictionary, which is what the
+	 * cache is keyed on. See {@link Dictionary#getSynsetIdMap()} for details of
+	 * the ids.
+	 * @param s the synset
+	 * @return the id of the synset or {@link SynsetIdMap#NO_ID} if it doesn't
+	 *         have one, in which case its similarities are not cached
+	 */
+	private int getCacheId(Synset s)
+	{
+		try
+		{
+			return dictionary.getSynsetId(s);
+		}
+		catch (JWNLException e)
+		{
+			//without ids we simply can't cache anything
+			return SynsetIdMap.NO_ID;
+		}
+	}
+	
 	/**
 	 * Get a previously computed similarity between two synsets from the cache.
 	 * @param s1 the first synset between which we are looking for the similarity.
@@ -81,7 +133,43 @@ public abstract class SimilarityMeasure
 	 */
 	protected final Double getFromCache(Synset s1, Synset s2)
 	{
-		return cache.get(s1.getKey()+"-"+s2.getKey());
+		double[] scores = getScoresFromCache(s1, s2);
+		
+		return (scores == null ? null : scores[0]);
+	}
+	
+	/**
+	 * Get the previously computed similarity scores between two synsets from
+	 * the cache. This is used by measures which compute more than one score
+	 * for each pair of synsets.
+	 * @param s1 the first synset between which we are looking for the similarity.
+	 * @param s2 the other synset between which we are looking for the similarity.
+	 * @return a copy of the scores for the two synsets or null
+	 *         if they are not in the cache.
+	 */
+	protected final double[] getScoresFromCache(Synset s1, Synset s2)
+	{
+		return getScoresFromCache(getCacheId(s1), getCacheId(s2));
+	}
+	
+	/**
+	 * Get the previously computed similarity scores between the two synsets
+	 * with the given ids from the cache.
+	 * @param id1 the id of the first synset between which we are looking for the similarity.
+	 * @param id2 the id of the other synset between which we are looking for the similarity.
+	 * @return a copy of the scores for the two synsets or null
+	 *         if they are not in the cache.
+	 */
+	protected final double[] getScoresFromCache(int id1, int id2)
+	{
+		if (id1 == SynsetIdMap.NO_ID || id2 == SynsetIdMap.NO_ID) return null;
+		
+		synchronized (cache)
+		{
+			double[] scores = cache.get(getCacheKey(id1, id2));
+			
+			return (scores == null ? null : scores.clone());
+		}
 	}
 	
 	/**
@@ -94,11 +182,134 @@ public abstract class SimilarityMeasure
 	 */
 	protected final double addToCache(Synset s1, Synset s2, double sim)
 	{
-		cache.put(s1.getKey()+"-"+s2.getKey(),sim);
+		addToCache(s1, s2, new double[]{sim});
 		
 		return sim;
 	}
 	
+	/**
+	 * Add a set of computed similarity scores between two synsets to the
+	 * cache so that we don't have to compute them if they are needed in the
+	 * future.
+	 * @param s1 one of the synsets between which we are storring a similarity.
+	 * @param s2 the other synset between which we are storring a similarity.
+	 * @param scores the similarity scores between the two supplied synsets.
+	 * @return the similarity scores just added to the cache.
+	 */
+	protected final double[] addToCache(Synset s1, Synset s2, double[] scores)
+	{
+		return addToCache(getCacheId(s1), getCacheId(s2), scores, getCacheGeneration());
+	}
+	
+	/**
+	 * Add a set of computed similarity scores between two synsets to the
+	 * cache, unless the data they were computed from has changed since
+	 * the given generation of the cache.
+	 * @param s1 one of the synsets between which we are storring a similarity.
+	 * @param s2 the other synset between which we are storring a similarity.
+	 * @param scores the similarity scores between the two supplied synsets.
+	 * @param generation the value of {@link #getCacheGeneration()} read before
+	 *        any of the data used to compute the scores.
+	 * @return the similarity scores.
+	 */
+	protected final double[] addToCache(Synset s1, Synset s2, double[] scores, long generation)
+	{
+		return addToCache(getCacheId(s1), getCacheId(s2), scores, generation);
+	}
+	
+	/**
+	 * Add a set of computed similarity scores between the two synsets with
+	 * the given ids to the cache, unless the data they were computed from
+	 * has changed since the given generation of the cache.
+	 * @param id1 the id of one of the synsets between which we are storring a similarity.
+	 * @param id2 the id of the other synset between which we are storring a similarity.
+	 * @param scores the similarity scores between the two synsets.
+	 * @param generation the value of {@link #getCacheGeneration()} read before
+	 *        any of the data used to compute the scores.
+	 * @return the similarity scores.
+	 */
+	protected final double[] addToCache(int id1, int id2, double[] scores, long generation)
+	{
+		if (id1 == SynsetIdMap.NO_ID || id2 == SynsetIdMap.NO_ID) return scores;
+		
+		synchronized (cache)
+		{
+			//scores computed from data which has since been replaced
+			//would never be removed from the cache so drop them
+			if (generation == cacheGeneration) cache.put(getCacheKey(id1, id2),scores.clone());
+		}
+		
+		return scores;
+	}
+	
+	/**
+	 * Get the current generation of the cache. A measure whose data can
+	 * change reads this before reading the data used to compute a score and
+	 * passes it to {@link #addToCache(int, int, double[], long)}.
+	 * @return the current generation of the cache.
+	 */
+	protected final long getCacheGeneration()
+	{
+		synchronized (cache)
+		{
+			return cacheGeneration;
+		}
+	}
+	
+	/**
+	 * Moves the cache on to a new generation. This should be called after
+	 * new data has been published, but before the similarities which
+	 * depend on the old data are removed from the cache, so that any
+	 * scores still being computed from the old data are not cached.
+	 */
+	protected final void nextCacheGeneration()
+	{
+		synchronized (cache)
+		{
+			++cacheGeneration;
+		}
+	}
+	
+	/**
+	 * Returns the ids of all the synsets which appear in the cache.
+	 * @return the ids of the synsets in the cache
+	 */
+	protected final Set<Integer> getCachedSynsets()
+	{
+		Set<Integer> synsets = new HashSet<Integer>();
+		
+		synchronized (cache)
+		{
+			for (Long key : cache.keySet())
+			{
+				//the key is made up of the two synset ids
+				synsets.add((int)(key.longValue() >>> 32));
+				synsets.add((int)key.longValue());
+			}
+		}
+		
+		return synsets;
+	}
+	
+	/**
+	 * Removes every similarity involving one of the given synsets from the cache.
+	 * @param synsets the ids of the synsets whose similarities should be forgotten
+	 */
+	protected final void removeFromCache(Set<Integer> synsets)
+	{
+		if (synsets.isEmpty()) return;
+		
+		synchronized (cache)
+		{
+			Iterator<Long> it = cache.keySet().iterator();
+			while (it.hasNext())
+			{
+				long key = it.next().longValue();
+				if (synsets.contains((int)(key >>> 32)) || synsets.contains((int)key)) it.remove();
+			}
+		}
+	}
+	
 	/**
 	 * Configures the similarity measure using the supplied parameters.
 	 * @param params a set of key-value pairs that are used to configure
@@ -117,6 +328,21 @@ public abstract class SimilarityMeasure
 	 * @throws Exception if an error occurs while creating the similarity measure.
 	 */
 	public static SimilarityMeasure newInstance(URL confURL) throws Exception
+	{
+		return newInstance(confURL, Dictionary.getInstance());
+	}
+	
+	/**
+	 * Create a new instance of a similarity measure which uses the given
+	 * WordNet dictionary.
+	 * @param confURL the URL of a configuration file. Parameters are specified
+	 *        one per line as key:value pairs.
+	 * @param dictionary the WordNet dictionary the measure should use.
+	 * @return a new instance of a similairy measure as defined by the
+	 *         supplied configuration URL.
+	 * @throws Exception if an error occurs while creating the similarity measure.
+	 */
+	public static SimilarityMeasure newInstance(URL confURL, Dictionary dictionary) throws Exception
 	{
 		//create map to hold the key-value pairs we are going to read from
 		//the configuration file
@@ -167,7 +393,7 @@ public abstract class SimilarityMeasure
 		
 		//create and return a new instance of the similarity measure specified
 		//by the config file
-		return newInstance(params);
+		return newInstance(params, dictionary);
 	}
 	
 	/**
@@ -177,6 +403,20 @@ public abstract class SimilarityMeasure
 	 * @throws Exception if an error occurs  while creating the similarity measure.
 	 */
 	public static SimilarityMeasure newInstance(Map<String,String> params) throws Exception
+	{
+		return newInstance(params, Dictionary.getInstance());
+	}
+	
+	/**
+	 * Creates a new instance of a similarity measure which uses the given
+	 * WordNet dictionary, so that measures over different dictionaries (even
+	 * different versions of WordNet) can be used side by side.
+	 * @param params a set of key-value pairs which define the similarity measure.
+	 * @param dictionary the WordNet dictionary the measure should use.
+	 * @return the newly created similarity measure.
+	 * @throws Exception if an error occurs  while creating the similarity measure.
+	 */
+	public static SimilarityMeasure newInstance(Map<String,String> params, Dictionary dictionary) throws Exception
 	{
 		//get the class name of the implementation we need to load
 		String name = params.remove("simType");
@@ -190,6 +430,9 @@ public abstract class SimilarityMeasure
 		//create a new instance of the similarity measure
 		SimilarityMeasure sim = c.newInstance();
 		
+		//it needs to know the dictionary before it reads any mappings
+		sim.dictionary = dictionary;
+		
 		//get the cache parameter from the config params
 		String cSize = params.remove("cache");
 		
@@ -259,6 +502,37 @@ public abstract class SimilarityMeasure
 	 */
 	public abstract double getSimilarity(Synset s1, Synset s2) throws JWNLException;
 	
+	/**
+	 * Get the WordNet dictionary this measure uses, which is the one current
+	 * when the measure was created unless another was given.
+	 * @return the dictionary this measure uses.
+	 */
+	public final Dictionary getDictionary()
+	{
+		return dictionary;
+	}
+	
+	/**
+	 * Computes the similarity between the two synsets with the given ids.
+	 * See {@link Dictionary#getSynsetIdMap()} for details of the ids.
+	 * @param id1 the id of one of the synsets between which we want to know the similarity.
+	 * @param id2 the id of the other synset between which we want to know the similarity.
+	 * @return the similarity between the two synsets.
+	 * @throws JWNLException if an error occurs accessing WordNet.
+	 */
+	public final double getSimilarity(int id1, int id2) throws JWNLException
+	{
+		//if the similarity is cached there is no need to even find the synsets
+		double[] scores = getScoresFromCache(id1, id2);
+		if (scores != null) return scores[0];
+		
+		//get a handle on the WordNet dictionary
+		Dictionary dict = getDictionary();
+		
+		//find the synsets and compute their similarity
+		return getSimilarity(dict.getSynsetById(id1), dict.getSynsetById(id2));
+	}
+	
 	/**
 	 * Get the similarity between two words. The words can be specified either
 	 * as just the word or in an encoded form including the POS tag and possibly
@@ -290,7 +564,7 @@ public abstract class SimilarityMeasure
 					//if the similarity is better than we have seen before
 					//then create and store an info object describing the
 					//similarity between the two synsets
-					sim = new SimilarityInfo(w1, s1, w2, s2, score);
+					sim = new SimilarityInfo(getDictionary(), w1, s1, w2, s2, score);
 				}
 			}
 		}
@@ -309,7 +583,7 @@ public abstract class SimilarityMeasure
 	private final Set<Synset> getSynsets(String word) throws JWNLException
 	{		
 		//get a handle on the WordNet dictionary
-		Dictionary dict = Dictionary.getInstance();
+		Dictionary dict = getDictionary();
 		
 		//create an emptuy set to hold any synsets we find
 		Set<Synset> synsets = new HashSet<Synset>();
@@ -0,0 +1,249 @@
+/************************************************************************
+ *         Copyright (C) 2006-2007 The University of Sheffield          *
+ *      Developed by Mark A. Greenwood <m.greenwood@dcs.shef.ac.uk>     *
+ *                                                                      *
+ * This program is free software; you can redistribute it and/or modify *
+ * it under the terms of the GNU General Public License as published by *
+ * the Free Software Foundation; either version 2 of the License, or    *
+ * (at your option) any later version.                                  *
+ *                                                                      *
+ * This program is distributed in the hope that it will be useful,      *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of       *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the        *
+ * GNU General Public License for more details.                         *
+ *                                                                      *
+ * You should have received a copy of the GNU General Public License    *
+ * along with this program; if not, write to the Free Software          *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.            *
+ ************************************************************************/
+
+package shef.nlp.wordnet.similarity;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.dictionary.Dictionary;
+
+/**
+ * A WordNet dictionary together with the similarity measures which use it.
+ * A snapshot never changes once it has been built, so a request which
+ * acquires one from a {@link SimilarityService} sees the same data from
+ * start to finish, even if a new snapshot is swapped in while it runs. A
+ * snapshot which has been replaced is closed once the last request using it
+ * has released it.
+ * @author Mark A. Greenwood
+ */
+public class SimilaritySnapshot
+{
+	/**
+	 * The WordNet dictionary used by all the measures.
+	 */
+	private final Dictionary dictionary;
+	
+	/**
+	 * The similarity measures, by name.
+	 */
+	private final Map<String,SimilarityMeasure> measures;
+	
+	/**
+	 * Should the dictionary be closed along with the snapshot.
+	 */
+	private final boolean closeDictionary;
+	
+	/**
+	 * The number of requests which have acquired this snapshot and not yet
+	 * released it.
+	 */
+	private int users = 0;
+	
+	/**
+	 * Set once this snapshot has been replaced, so that it is closed when
+	 * its last user releases it.
+	 */
+	private boolean retired = false;
+	
+	/**
+	 * Creates a snapshot from an existing dictionary and measures.
+	 * @param dictionary the WordNet dictionary used by the measures.
+	 * @param measures the similarity measures, by name.
+	 * @param closeDictionary true if the dictionary should be closed once the
+	 *        snapshot has been replaced and is no longer in use, false if it is
+	 *        shared with other code (the default JWNL dictionary, for instance).
+	 */
+	public SimilaritySnapshot(Dictionary dictionary, Map<String,SimilarityMeasure> measures, boolean closeDictionary)
+	{
+		this.dictionary = dictionary;
+		this.measures = Collections.unmodifiableMap(new LinkedHashMap<String,SimilarityMeasure>(measures));
+		this.closeDictionary = closeDictionary;
+	}
+	
+	/**
+	 * Builds a new snapshot by creating a dictionary from a JWNL properties
+	 * file (see {@link JWNL#createDictionary(InputStream)}) and then creating
+	 * each of the similarity measures over it. The default JWNL dictionary is
+	 * left untouched, and JWNL must already have been initialized. The new
+	 * dictionary is closed along with the snapshot.
+	 * @param jwnlConfig the URL of the JWNL properties file describing the dictionary.
+	 * @param measureConfigs the URL of the configuration file of each
+	 *        similarity measure (see {@link SimilarityMeasure#newInstance(URL)}), by name.
+	 * @return the newly built snapshot.
+	 * @throws Exception if an error occurs creating the dictionary or any of the measures.
+	 */
+	public static SimilaritySnapshot build(URL jwnlConfig, Map<String,URL> measureConfigs) throws Exception
+	{
+		Dictionary dictionary;
+		
+		InputStream in = jwnlConfig.openStream();
+		try
+		{
+			//create the new dictionary without replacing the default one
+			dictionary = JWNL.createDictionary(in);
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		try
+		{
+			//create each of the measures over the new dictionary
+			Map<String,SimilarityMeasure> measures = new LinkedHashMap<String,SimilarityMeasure>();
+			for (Map.Entry<String,URL> config : measureConfigs.entrySet())
+			{
+				measures.put(config.getKey(), SimilarityMeasure.newInstance(config.getValue(), dictionary));
+			}
+			
+			return new SimilaritySnapshot(dictionary, measures, true);
+		}
+		catch (Exception e)
+		{
+			//nothing else can use the dictionary so don't leave it open
+			dictionary.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Warms the snapshot up before it is put into service by computing the
+	 * similarity of each of the given pairs of words with every measure. This
+	 * fills the caches of the measures with the pairs and reads the parts of
+	 * the dictionary they need, so the first requests against the snapshot
+	 * are not left waiting on the disk. A representative sample of the pairs
+	 * seen in recent requests is a good choice. As the sample is usually taken
+	 * from requests against older data, pairs which can't be scored (because a
+	 * word is no longer in WordNet, for instance) are skipped.
+	 * @param pairs the pairs of words, each in any of the forms accepted by
+	 *        {@link SimilarityMeasure#getSimilarity(String, String)}.
+	 * @return the number of pairs which were skipped by at least one measure.
+	 */
+	public int warm(List<String[]> pairs)
+	{
+		Set<String[]> skipped = new HashSet<String[]>();
+		
+		for (SimilarityMeasure measure : measures.values())
+		{
+			for (String[] pair : pairs)
+			{
+				try
+				{
+					measure.getSimilarity(pair[0], pair[1]);
+				}
+				catch (Exception e)
+				{
+					//the pair doesn't fit this WordNet so just move on
+					skipped.add(pair);
+				}
+			}
+		}
+		
+		return skipped.size();
+	}
+	
+	/**
+	 * Get the WordNet dictionary used by the measures of this snapshot.
+	 * @return the WordNet dictionary used by the measures of this snapshot.
+	 */
+	public Dictionary getDictionary()
+	{
+		return dictionary;
+	}
+	
+	/**
+	 * Get one of the similarity measures of this snapshot.
+	 * @param name the name of the measure.
+	 * @return the measure with the given name, or null if there isn't one.
+	 */
+	public SimilarityMeasure getMeasure(String name)
+	{
+		return measures.get(name);
+	}
+	
+	/**
+	 * Get the names of the similarity measures of this snapshot.
+	 * @return the names of the similarity measures of this snapshot.
+	 */
+	public Set<String> getMeasureNames()
+	{
+		return measures.keySet();
+	}
+	
+	/**
+	 * Pins the snapshot so that it isn't closed until it is released.
+	 * @return false if the snapshot has already been replaced and so can't be used.
+	 */
+	synchronized boolean acquire()
+	{
+		if (retired) return false;
+		
+		++users;
+		return true;
+	}
+	
+	/**
+	 * Releases a snapshot returned by {@link SimilarityService#acquire()}.
+	 * If the snapshot has since been replaced and this was its last user then
+	 * it is closed.
+	 */
+	public void release()
+	{
+		synchronized (this)
+		{
+			if (users == 0) throw new IllegalStateException("Snapshot released more times than it was acquired");
+			
+			//if the snapshot is still in use or still current then we are done
+			if (--users > 0 || !retired) return;
+		}
+		
+		close();
+	}
+	
+	/**
+	 * Marks the snapshot as replaced, closing it if it isn't in use.
+	 */
+	void retire()
+	{
+		synchronized (this)
+		{
+			retired = true;
+			
+			if (users > 0) return;
+		}
+		
+		close();
+	}
+	
+	/**
+	 * Closes the dictionary, if it belongs to this snapshot.
+	 */
+	private void close()
+	{
+		if (closeDictionary) dictionary.close();
+	}
+}